@@ -0,0 +1,66 @@
+package se.vgregion.inventory_management_backend.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.util.concurrent.TimeUnit;
+
+//findArticlesWithFilters with every filter combination the list view can send, the first page of 20 in name order.
+//lowStock also runs the index backed query the service uses for onlyLowStockArticles.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RepositoryBenchmark {
+
+    @Param({"none", "search", "category", "lowStock", "search+category+lowStock"})
+    public String filters;
+
+    private ArticleRepository articleRepository;
+    private TransactionTemplate readTransaction;
+    private String search;
+    private ECategory category;
+    private boolean onlyLowStock;
+    private final Pageable pageable = PageRequest.of(0, 20, Sort.by("name"));
+
+    @Setup
+    public void setUp(SeededInventory inventory) {
+        articleRepository = inventory.bean(ArticleRepository.class);
+        readTransaction = new TransactionTemplate(inventory.bean(PlatformTransactionManager.class));
+        readTransaction.setReadOnly(true);
+        search = filters.contains("search") ? "gloves" : null;
+        category = filters.contains("category") ? ECategory.MEDICATION : null;
+        onlyLowStock = filters.contains("lowStock");
+    }
+
+    @Benchmark
+    public Slice<ArticleSnapshot> findArticlesWithFilters() {
+        return readTransaction.execute(status -> articleRepository.findArticlesWithFilters(search, category, onlyLowStock, pageable));
+    }
+
+    @Benchmark
+    public Slice<ArticleSnapshot> findLowStockArticlesWithFilters() {
+        return readTransaction.execute(status -> articleRepository.findLowStockArticlesWithFilters(search, category,
+                PageRequest.of(0, 20, Sort.by("lowStock", "name"))));
+    }
+}
@@ -0,0 +1,57 @@
+package se.vgregion.inventory_management_backend.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.InventoryManagementBackendApplication;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+
+//The whole application without the web server, on an in-memory h2 database seeded with the same rows as the other benchmarks.
+//Started once per fork and shared by all benchmark threads.
+@State(Scope.Benchmark)
+public class SeededInventory {
+
+    @Param("100000")
+    public int articles;
+
+    private ConfigurableApplicationContext context;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(InventoryManagementBackendApplication.class)
+                .web(org.springframework.boot.WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN"
+                )
+                .run();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        ArticleSeeder.seed(jdbcTemplate, articles);
+        context.getBean(ArticleIndexer.class).rebuild();
+        //the ids have gaps, the sequence hands them out 50 at a time
+        ids = jdbcTemplate.queryForList("SELECT id FROM article ORDER BY id", Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    //the id of seeded row i
+    public long id(int i) {
+        return ids[i];
+    }
+}
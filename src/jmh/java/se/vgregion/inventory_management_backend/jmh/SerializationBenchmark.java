@@ -0,0 +1,62 @@
+package se.vgregion.inventory_management_backend.jmh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import se.vgregion.inventory_management_backend.controllers.ArticleController;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//The cpu part of a list request with size=200: mapping the snapshots to ArticleResponseDTOs and writing the response as json
+//with the ObjectMapper spring uses. The response body comes from the controller so it has exactly the fields a client gets.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SerializationBenchmark {
+
+    private List<ArticleSnapshot> articles;
+    private Object listResponse;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp(SeededInventory inventory) {
+        articles = inventory.bean(ArticleRepository.class)
+                .findArticlesWithFilters(null, null, false, PageRequest.of(0, 200, Sort.by("name")))
+                .getContent();
+        ResponseEntity<?> response = inventory.bean(ArticleController.class)
+                .getAllArticles(0, 200, false, null, "ALL", "name", "asc", null, true, new ServletWebRequest(new MockHttpServletRequest()));
+        listResponse = response.getBody();
+        objectMapper = inventory.bean(ObjectMapper.class);
+    }
+
+    @Benchmark
+    public List<ArticleResponseDTO> toResponseDTOs() {
+        return articles.stream().map(ArticleResponseDTO::new).toList();
+    }
+
+    @Benchmark
+    public byte[] serializeListResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(listResponse);
+    }
+}
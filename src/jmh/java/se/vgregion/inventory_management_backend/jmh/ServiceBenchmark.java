@@ -0,0 +1,75 @@
+package se.vgregion.inventory_management_backend.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.vgregion.inventory_management_backend.cache.ArticleCache;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//getArticleById from the cache and from the database, and the add/subtract patches, on random seeded articles.
+//The subtractions go to one article with a very large amount so they never run out.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ServiceBenchmark {
+
+    private static final PatchAmountDTO ONE = new PatchAmountDTO(1);
+
+    private SeededInventory inventory;
+    private ArticleService articleService;
+    private ArticleCache articleCache;
+    private long subtractId;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp(SeededInventory inventory) {
+        this.inventory = inventory;
+        articleService = inventory.bean(ArticleService.class);
+        articleCache = inventory.bean(ArticleCache.class);
+        subtractId = articleService.addArticle(new CreateArticleDTO("JMH subtract " + Thread.currentThread().threadId(),
+                100_000_000, 0, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+    }
+
+    private long randomId() {
+        return inventory.id(random.nextInt(inventory.articles));
+    }
+
+    @Benchmark
+    public ArticleResponseDTO getArticleById() {
+        return articleService.getArticleById(randomId());
+    }
+
+    @Benchmark
+    public ArticleResponseDTO getArticleByIdUncached() {
+        articleCache.clear();
+        return articleService.getArticleById(randomId());
+    }
+
+    @Benchmark
+    public ArticleResponseDTO patchArticleAmountAdd() {
+        return articleService.patchArticleAmountAdd(randomId(), ONE);
+    }
+
+    @Benchmark
+    public ArticleResponseDTO patchArticleAmountRemove() {
+        return articleService.patchArticleAmountRemove(subtractId, ONE);
+    }
+}
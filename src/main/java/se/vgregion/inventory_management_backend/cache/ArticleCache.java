@@ -0,0 +1,89 @@
+package se.vgregion.inventory_management_backend.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import se.vgregion.inventory_management_backend.dto.CacheStatsDTO;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+//Read-through cache of single articles for getArticleById, most articles are read far more often than they change.
+//Bounded by inventory.article-cache.max-size articles and every entry is dropped inventory.article-cache.ttl-ms after it was loaded.
+//Every change to an article removes its entry once the transaction has committed, using the ArticleChangedEvent.
+//It is removed instead of replaced with the new version, two changes that commit at the same time can have their events handled
+//in the other order and the older version would then stay in the cache.
+//Snapshots are cached, the same type the change events carry, and every request gets an ArticleResponseDTO made from one.
+//
+//The entries are futures so the article is loaded outside of the map's lock. A loader that runs inside caffeine's compute
+//holds the lock of the map bin while it waits for a database connection, and a writer that removes an article in the same
+//bin after its commit still holds its connection while it waits for that lock. With enough of both at the same time every
+//connection was taken and nothing could move.
+@Component
+public class ArticleCache {
+
+    private final AsyncCache<Long, ArticleSnapshot> articles;
+
+    public ArticleCache(
+            @Value("${inventory.article-cache.max-size:10000}") long maxSize,
+            @Value("${inventory.article-cache.ttl-ms:60000}") long ttlMillis
+    ) {
+        this.articles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .buildAsync();
+    }
+
+    //the cached article, or the one from the loader which is then cached. Empty if the article doesn't exist, that isn't cached.
+    //Requests for an article that is being loaded wait for that load instead of loading it again.
+    //A change that commits while the loader runs removes the entry right away, what was loaded is then handed to the requests
+    //that were waiting for it but isn't kept, so an old version is never left behind.
+    public Optional<ArticleSnapshot> get(Long id, Function<Long, Optional<ArticleSnapshot>> loader) {
+        CompletableFuture<ArticleSnapshot> loading = new CompletableFuture<>();
+        CompletableFuture<ArticleSnapshot> article = articles.get(id, (key, executor) -> loading);
+        if (article == loading) {
+            try {
+                //caffeine removes the entry again when the future completes with null or an exception
+                loading.complete(loader.apply(id).orElse(null));
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return Optional.ofNullable(article.join());
+        } catch (CompletionException e) {
+            //the exception from the loader of another request, like a failed query
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    //buffered changes are only in the HotStockCounters, the live amount is added on top of the cached article by the service
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onArticleChanged(ArticleChangedEvent event) {
+        if (!event.buffered()) {
+            articles.synchronous().invalidate(event.articleId());
+        }
+    }
+
+    public void clear() {
+        articles.synchronous().invalidateAll();
+    }
+
+    public CacheStatsDTO stats() {
+        CacheStats stats = articles.synchronous().stats();
+        return new CacheStatsDTO(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(), articles.synchronous().estimatedSize());
+    }
+}
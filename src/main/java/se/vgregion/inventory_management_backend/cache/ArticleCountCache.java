@@ -0,0 +1,60 @@
+package se.vgregion.inventory_management_backend.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+//Short lived cache of the total number of articles for each filter combination (search, category, low stock).
+//Counting means reading every matching row, so instead of counting on every list request the total is reused for a few seconds.
+//The totals are therefore approximate, a new or deleted article can take up to the ttl to show up in totalItems.
+@Component
+public class ArticleCountCache {
+
+    //search terms come from the users, so the number of keys has to be capped
+    static final int MAX_ENTRIES = 1_000;
+
+    private final long ttlNanos;
+    private final Map<Key, CachedCount> counts = new ConcurrentHashMap<>();
+
+    public ArticleCountCache(@Value("${inventory.count-cache.ttl-ms:5000}") long ttlMillis) {
+        this.ttlNanos = ttlMillis * 1_000_000;
+    }
+
+    //returns the cached count, or runs the counter and caches the result if there is none or it has expired
+    public long getCount(String search, ECategory categoryFilter, boolean onlyLowStock, LongSupplier counter) {
+        //the search is case insensitive, so "Gloves" and "gloves" can share the same count
+        Key key = new Key(search == null ? null : search.toLowerCase(), categoryFilter, onlyLowStock);
+        long now = System.nanoTime();
+
+        CachedCount cached = counts.get(key);
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            return cached.count();
+        }
+
+        long count = counter.getAsLong();
+        if (counts.size() >= MAX_ENTRIES) {
+            counts.values().removeIf(c -> now - c.loadedAt() >= ttlNanos);
+            if (counts.size() >= MAX_ENTRIES) {
+                counts.clear();
+            }
+        }
+        counts.put(key, new CachedCount(count, now));
+        return count;
+    }
+
+    public void clear() {
+        counts.clear();
+    }
+
+    int size() {
+        return counts.size();
+    }
+
+    private record Key(String search, ECategory categoryFilter, boolean onlyLowStock) {}
+
+    private record CachedCount(long count, long loadedAt) {}
+}
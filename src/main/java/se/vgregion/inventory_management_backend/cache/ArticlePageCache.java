@@ -0,0 +1,81 @@
+package se.vgregion.inventory_management_backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.CacheStatsDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+//Cache of whole list pages from getAllArticlesPaginated, the dashboard asks for the same few pages over and over.
+//Every page is stored with the InventoryVersion from before it was read and is only used while the version is unchanged.
+//A change that committed while the page was read has bumped the version afterwards, so an old page is never returned.
+//There is no invalidation per page, a page that is no longer valid just gets replaced the next time it is asked for.
+//A cached page is handed to every request that asks for it at the same time, that is safe since neither the page's content
+//list nor the ArticleResponseDTOs in it can be changed.
+@Component
+public class ArticlePageCache {
+
+    private final InventoryVersion inventoryVersion;
+    private final Cache<Key, CachedPage> pages;
+    //counted here since caffeine would count finding a page of an old version as a hit
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ArticlePageCache(InventoryVersion inventoryVersion, @Value("${inventory.page-cache.max-size:500}") long maxSize) {
+        this.inventoryVersion = inventoryVersion;
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    //returns the cached page if it is from the current version, otherwise loads it and caches it.
+    //the loader gets the version the page will be stored with
+    public Page<ArticleResponseDTO> getPage(
+            String search,
+            ECategory categoryFilter,
+            boolean onlyLowStock,
+            String sortBy,
+            String sortDir,
+            int page,
+            int size,
+            LongFunction<Page<ArticleResponseDTO>> loader
+    ) {
+        //the search and sort direction are case insensitive, so they share the same entry
+        Key key = new Key(search == null ? null : search.toLowerCase(), categoryFilter, onlyLowStock, sortBy, sortDir.toLowerCase(), page, size);
+        //read before loading, a change during the load makes the version newer than the one stored with the page
+        long version = inventoryVersion.current();
+
+        CachedPage cached = pages.getIfPresent(key);
+        if (cached != null && cached.version() == version) {
+            hits.increment();
+            return cached.page();
+        }
+        misses.increment();
+
+        Page<ArticleResponseDTO> loaded = loader.apply(version);
+        pages.put(key, new CachedPage(version, loaded));
+        return loaded;
+    }
+
+    public void clear() {
+        pages.invalidateAll();
+    }
+
+    public CacheStatsDTO stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        double hitRate = hitCount + missCount == 0 ? 1.0 : (double) hitCount / (hitCount + missCount);
+        return new CacheStatsDTO(hitCount, missCount, hitRate, pages.stats().evictionCount(), pages.estimatedSize());
+    }
+
+    private record Key(String search, ECategory categoryFilter, boolean onlyLowStock, String sortBy, String sortDir, int page, int size) {}
+
+    private record CachedPage(long version, Page<ArticleResponseDTO> page) {}
+}
@@ -0,0 +1,39 @@
+package se.vgregion.inventory_management_backend.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//A number that goes up after every change to the inventory has committed.
+//Caches remember the version their value was read at and only use it while the version is still the same,
+//so one increment makes every cached result old at once without having to find out which ones the change affected.
+@Component
+public class InventoryVersion {
+
+    private final AtomicLong version = new AtomicLong();
+    //the version starts at 0 again after a restart, the start time tells the versions of two runs apart
+    private final String startedAt = Long.toString(System.currentTimeMillis(), 36);
+
+    public long current() {
+        return version.get();
+    }
+
+    //the current version as text that is different for every version of every run, used for the ETag of the list responses
+    public String tag() {
+        return startedAt + "-" + current();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    //buffered changes are only in the HotStockCounters and not in the database yet, HotStockCounters bumps when it flushes them
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onArticleChanged(ArticleChangedEvent event) {
+        if (!event.buffered()) {
+            bump();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package se.vgregion.inventory_management_backend.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+//Brings an article table that was made by an older version (a file database with spring.jpa.hibernate.ddl-auto=update) up to date.
+//Runs before hibernate starts, hibernate's update can't do it:
+//- it adds low_stock and version as NOT NULL without a default, which fails on a table with rows, so they are added here with
+//  a default and low_stock is filled in from amount and minimum_amount
+//- it would create article_seq at 1 while the old IDENTITY ids are already taken, so the sequence is created (or moved) after them
+//Nothing happens when there is no article table yet or it is already up to date, so it is safe to run on every start.
+//The SQL is H2's (the information schema, ADD COLUMN IF NOT EXISTS, ALTER SEQUENCE ... RESTART WITH), the only database the
+//application is set up for. On any other database nothing is changed and a warning says the schema has to be updated by hand.
+@Configuration
+public class ArticleSchemaMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleSchemaMigration.class);
+
+    //the allocationSize of article_seq in Article
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ArticleSchemaMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryAfterArticleSchemaMigration() {
+        return new EntityManagerFactoryDependsOnPostProcessor(ArticleSchemaMigration.class);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"H2".equals(database)) {
+            log.warn("The article schema migration only runs on H2, not on {}. An article table made by an older version has to get " +
+                    "the version and low_stock columns and an article_seq after its highest id by hand", database);
+            return;
+        }
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'ARTICLE'", Integer.class) == 0) {
+            return;
+        }
+        addVersionColumn();
+        addLowStockColumn();
+        moveArticleSequence();
+    }
+
+    //new articles get their ids from article_seq instead of IDENTITY, the sequence has to start after the ids that are already taken
+    private void moveArticleSequence() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM article", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        //hibernate's pooled optimizer uses the ids next - 49 to next for the value next it gets from the sequence,
+        //so the first value has to be at least the highest id + 50
+        long start = maxId + ID_ALLOCATION_SIZE;
+        Long next = jdbcTemplate.query("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'ARTICLE_SEQ'",
+                rs -> rs.next() ? rs.getLong(1) : null);
+        if (next == null) {
+            jdbcTemplate.execute("CREATE SEQUENCE article_seq START WITH " + start + " INCREMENT BY " + ID_ALLOCATION_SIZE);
+            log.info("Created article_seq after the existing ids, starting at {}", start);
+        } else if (next < start) {
+            jdbcTemplate.execute("ALTER SEQUENCE article_seq RESTART WITH " + start);
+            log.info("Moved article_seq from {} to {}, after the existing ids", next, start);
+        }
+    }
+
+    //the version for optimistic locking (the ETag and If-Match), an article that existed before the column starts at version 0
+    private void addVersionColumn() {
+        jdbcTemplate.execute("ALTER TABLE article ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL");
+    }
+
+    //the stored low-stock flag (GET /low-stock and the onlyLowStock filter read it through its index), every article that
+    //existed before the column gets it from its amount and minimum amount
+    private void addLowStockColumn() {
+        jdbcTemplate.execute("ALTER TABLE article ADD COLUMN IF NOT EXISTS low_stock BOOLEAN DEFAULT FALSE NOT NULL");
+        int lowStock = jdbcTemplate.update("UPDATE article SET low_stock = (amount <= minimum_amount) WHERE low_stock <> (amount <= minimum_amount)");
+        if (lowStock > 0) {
+            log.info("Filled in low_stock of {} articles", lowStock);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package se.vgregion.inventory_management_backend.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//Turns on jdbc batching in hibernate, so that many inserts or updates of articles are sent to the database together
+//instead of one round trip each (used by the stock movements). Ordering groups the statements of the same kind into the same batch.
+//The values are only defaults, spring.jpa.properties.hibernate.* in application.properties still wins.
+@Configuration
+public class JpaBatchingConfig {
+
+    static final int BATCH_SIZE = 50;
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", String.valueOf(BATCH_SIZE));
+            properties.putIfAbsent("hibernate.order_inserts", "true");
+            properties.putIfAbsent("hibernate.order_updates", "true");
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package se.vgregion.inventory_management_backend.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import se.vgregion.inventory_management_backend.cache.ArticleCache;
+import se.vgregion.inventory_management_backend.cache.ArticlePageCache;
+import se.vgregion.inventory_management_backend.dto.CacheStatsDTO;
+import se.vgregion.inventory_management_backend.services.AmountGroupCommit;
+import se.vgregion.inventory_management_backend.services.ArticleChangeFeed;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+//The metrics on /actuator/prometheus that spring boot doesn't add by itself.
+//Spring boot already times every request (http_server_requests, by uri and status) and has the connection pool gauges (hikaricp_connections_*).
+//Here the service methods annotated with @Timed get timed (inventory_service, by class and method), hibernate counts its
+//statements, entity loads and flushes (hibernate_*) and the two caches report hits, misses and size (inventory_cache_*),
+//and the change feed its subscribers (inventory_changes_*).
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    //hibernate only counts when this is on, spring.jpa.properties.hibernate.generate_statistics=false in application.properties turns it off again.
+    //its log of every session is turned down in MetricsEnvironmentDefaults
+    @Bean
+    public HibernatePropertiesCustomizer hibernateStatisticsCustomizer() {
+        return properties -> properties.putIfAbsent("hibernate.generate_statistics", "true");
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(ArticleCache articleCache, ArticlePageCache articlePageCache) {
+        return meterRegistry -> {
+            bindCache(meterRegistry, "article", articleCache::stats);
+            bindCache(meterRegistry, "page", articlePageCache::stats);
+        };
+    }
+
+    //open GET /api/articles/changes streams and the ones that were dropped for being too slow
+    @Bean
+    public MeterBinder changeFeedMetrics(ArticleChangeFeed articleChangeFeed) {
+        return meterRegistry -> {
+            Gauge.builder("inventory.changes.subscribers", articleChangeFeed, ArticleChangeFeed::subscribers)
+                    .register(meterRegistry);
+            FunctionCounter.builder("inventory.changes.dropped", articleChangeFeed, ArticleChangeFeed::dropped)
+                    .register(meterRegistry);
+        };
+    }
+
+    //batches committed by the group commit and the patches in them, patches / batches is the average batch
+    @Bean
+    public MeterBinder groupCommitMetrics(AmountGroupCommit amountGroupCommit) {
+        return meterRegistry -> {
+            FunctionCounter.builder("inventory.group-commit.batches", amountGroupCommit, AmountGroupCommit::batches)
+                    .register(meterRegistry);
+            FunctionCounter.builder("inventory.group-commit.patches", amountGroupCommit, AmountGroupCommit::patches)
+                    .register(meterRegistry);
+        };
+    }
+
+    //list pages read from the database and the requests that shared a read that was already running
+    @Bean
+    public MeterBinder pageLoadMetrics(ArticleService articleService) {
+        return meterRegistry -> {
+            FunctionCounter.builder("inventory.list.loads", articleService, ArticleService::getPageLoads)
+                    .register(meterRegistry);
+            FunctionCounter.builder("inventory.list.shared", articleService, ArticleService::getSharedPageLoads)
+                    .register(meterRegistry);
+        };
+    }
+
+    //read from the same stats as GET /api/articles/cache-stats every time prometheus scrapes
+    private static void bindCache(MeterRegistry meterRegistry, String cache, Supplier<CacheStatsDTO> stats) {
+        counter(meterRegistry, "inventory.cache.hits", cache, stats, CacheStatsDTO::hits);
+        counter(meterRegistry, "inventory.cache.misses", cache, stats, CacheStatsDTO::misses);
+        counter(meterRegistry, "inventory.cache.evictions", cache, stats, CacheStatsDTO::evictions);
+        Gauge.builder("inventory.cache.size", stats, s -> s.get().size())
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+
+    private static void counter(MeterRegistry meterRegistry, String name, String cache, Supplier<CacheStatsDTO> stats,
+                                ToDoubleFunction<CacheStatsDTO> value) {
+        FunctionCounter.builder(name, stats, s -> value.applyAsDouble(s.get()))
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,29 @@
+package se.vgregion.inventory_management_backend.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+//Default settings for the actuator, so /actuator/prometheus works without an application.properties (it isn't in git, see the readme).
+//Added last, so the same keys in application.properties or on the command line still win.
+//Registered in META-INF/spring.factories since it has to run before the beans are made.
+public class MetricsEnvironmentDefaults implements EnvironmentPostProcessor {
+
+    static final Map<String, Object> DEFAULTS = Map.of(
+            "management.endpoints.web.exposure.include", "health,info,metrics,prometheus",
+            //buckets so prometheus can work out the percentiles of the request times over all instances
+            "management.metrics.distribution.percentiles-histogram.http.server.requests", "true",
+            "management.metrics.distribution.percentiles-histogram.inventory.query", "true",
+            //with hibernate's statistics on (see MetricsConfig) every session logs a "Session Metrics" block at INFO when it closes,
+            //that is one for every request. The numbers are in the metrics already.
+            "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener", "WARN"
+    );
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        environment.getPropertySources().addLast(new MapPropertySource("inventoryMetricsDefaults", DEFAULTS));
+    }
+}
@@ -0,0 +1,40 @@
+package se.vgregion.inventory_management_backend.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.Profiles;
+
+import java.util.Map;
+
+//The virtual-threads profile (--spring.profiles.active=virtual-threads, needs java 21): tomcat runs every request on its own
+//virtual thread instead of one of its 200 platform threads, and so do the @Transactional service calls made from it, the
+//@Scheduled jobs and the @TransactionalEventListeners. A request that waits (a slow client sending its body, a database call)
+//then doesn't take a thread from the others.
+//
+//Without the 200 threads nothing limits how many requests run at the same time anymore, the connection pool is the limit.
+//It is sized for the database instead of for the threads: waiting for a connection only parks a virtual thread, but more
+//connections than the database can work on at once only makes every query slower. The virtual threads that wait give up
+//after the connection timeout instead of queueing forever.
+//Added last like the MetricsEnvironmentDefaults, so the same keys in application.properties or on the command line still win.
+public class VirtualThreadsEnvironmentDefaults implements EnvironmentPostProcessor {
+
+    static final String PROFILE = "virtual-threads";
+
+    static Map<String, Object> defaults(int processors) {
+        return Map.of(
+                "spring.threads.virtual.enabled", "true",
+                "spring.datasource.hikari.maximum-pool-size", String.valueOf(Math.max(10, 2 * processors)),
+                "spring.datasource.hikari.connection-timeout", "10000"
+        );
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (environment.acceptsProfiles(Profiles.of(PROFILE))) {
+            environment.getPropertySources().addLast(new MapPropertySource("inventoryVirtualThreadsDefaults",
+                    defaults(Runtime.getRuntime().availableProcessors())));
+        }
+    }
+}
@@ -1,20 +1,42 @@
 package se.vgregion.inventory_management_backend.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import se.vgregion.inventory_management_backend.dto.CacheStatsDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleImportSummaryDTO;
+import se.vgregion.inventory_management_backend.dto.ArticlePageDTO;
 import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleStatsDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleSuggestionDTO;
 import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
 import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.StockLedgerPageDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementResultDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementsDTO;
 import se.vgregion.inventory_management_backend.dto.UpdateArticleDTO;
+import se.vgregion.inventory_management_backend.exception.ArticleVersionConflictException;
+import se.vgregion.inventory_management_backend.services.ArticleChangeFeed;
+import se.vgregion.inventory_management_backend.services.ArticleExportService;
+import se.vgregion.inventory_management_backend.services.ArticleImportService;
 import se.vgregion.inventory_management_backend.services.ArticleService;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -23,9 +45,16 @@ import java.util.Map;
 @Validated
 public class ArticleController {
     private final ArticleService articleService;
+    private final ArticleImportService articleImportService;
+    private final ArticleExportService articleExportService;
+    private final ArticleChangeFeed articleChangeFeed;
 
-    public ArticleController(ArticleService articleService) {
+    public ArticleController(ArticleService articleService, ArticleImportService articleImportService, ArticleExportService articleExportService,
+                             ArticleChangeFeed articleChangeFeed) {
         this.articleService = articleService;
+        this.articleImportService = articleImportService;
+        this.articleExportService = articleExportService;
+        this.articleChangeFeed = articleChangeFeed;
     }
 
     //POST an article
@@ -34,7 +63,23 @@ public class ArticleController {
         return ResponseEntity.status(HttpStatus.CREATED).body(articleService.addArticle(createArticleDTO));
     }
 
+    //POST many articles from a csv or ndjson file, the body is read while it is uploaded instead of all at once.
+    //Articles with a name that already exists are updated.
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ArticleImportSummaryDTO> importArticlesCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(articleImportService.importCsv(new InputStreamReader(body, StandardCharsets.UTF_8)));
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ArticleImportSummaryDTO> importArticlesNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(articleImportService.importNdjson(new InputStreamReader(body, StandardCharsets.UTF_8)));
+    }
+
     //GET ALL articles
+    //sending the cursor parameter (empty for the first page) switches to keyset pagination, the page parameter is then ignored
+    //withTotals=false skips totalItems and totalPages, which saves counting the articles
+    //The ETag is the version of the whole inventory, if nothing has changed since the If-None-Match the answer is an empty 304
+    //and the page isn't read or turned into json. totalItems can be up to a few seconds old (see ArticleCountCache), a 304 keeps the old one.
     @GetMapping
     public ResponseEntity<?> getAllArticles(
             @RequestParam(defaultValue = "0") @Min(0) int page,
@@ -43,28 +88,112 @@ public class ArticleController {
             @RequestParam(required = false) String search,
             @RequestParam(defaultValue = "ALL") String categoryFilter,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotals,
+            WebRequest webRequest
     ) {
+        String eTag = eTag(articleService.getInventoryVersion());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        if (cursor != null) {
+            return ResponseEntity.ok().eTag(eTag).body(articleService.getArticlesByCursor(
+                    cursor, size, search, onlyLowStockArticles, categoryFilter, sortBy, sortDir
+            ));
+        }
+
+        if (!withTotals) {
+            Slice<ArticleResponseDTO> sliceResult = articleService.getArticlesWithoutTotals(
+                    page, size, search, onlyLowStockArticles, categoryFilter, sortBy, sortDir
+            );
+            return ResponseEntity.ok().eTag(eTag).body(ArticlePageDTO.withoutTotals(sliceResult));
+        }
+
         Page<ArticleResponseDTO> pageResult = articleService.getAllArticlesPaginated(
                 page, size, search, onlyLowStockArticles, categoryFilter, sortBy, sortDir
         );
+        return ResponseEntity.ok().eTag(eTag).body(ArticlePageDTO.of(pageResult));
+    }
+
+    //GET all articles (or the ones matching the filters) as csv or ndjson, for the nightly reports.
+    //The rows are written to the response while they are read from the database, instead of paging through getAllArticles.
+    //Written straight to the response instead of a StreamingResponseBody, which would be cut off by the async request timeout on big exports.
+    @GetMapping("/export")
+    public void exportArticles(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false, defaultValue = "false") boolean onlyLowStockArticles,
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "ALL") String categoryFilter,
+            HttpServletResponse response
+    ) throws IOException {
+        ArticleExportService.Format exportFormat = ArticleExportService.Format.parse(format);
+        response.setContentType(exportFormat.mediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"articles." + exportFormat.extension() + "\"");
+        articleExportService.export(response.getOutputStream(), exportFormat, search, onlyLowStockArticles, categoryFilter);
+    }
+
+    //GET a stream (server-sent events) with a "change" event for every committed change to an article, see ArticleChangeFeed.
+    //A "resync" event means changes were missed, reload the list. 503 when there are already too many streams open.
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getArticleChanges() {
+        return articleChangeFeed.subscribe()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    //GET name suggestions for the search box, meant to be called on every keystroke
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ArticleSuggestionDTO>> suggestArticles(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(50) int limit
+    ) {
+        return ResponseEntity.ok(articleService.suggestArticles(prefix, limit));
+    }
+
+    //GET number of articles, low-stock articles and summed amount, in total and per category and unit
+    @GetMapping("/stats")
+    public ResponseEntity<ArticleStatsDTO> getStats() {
+        return ResponseEntity.ok(articleService.getStats());
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("content", pageResult.getContent());
-        response.put("currentPage", pageResult.getNumber());
-        response.put("totalItems", pageResult.getTotalElements());
-        response.put("totalPages", pageResult.getTotalPages());
-        response.put("pageSize", pageResult.getSize());
-        response.put("hasNext", pageResult.hasNext());
-        response.put("hasPrevious", pageResult.hasPrevious());
+    //GET the low-stock articles in name order, for the restocking view
+    @GetMapping("/low-stock")
+    public ResponseEntity<List<ArticleResponseDTO>> getLowStockArticles(
+            @RequestParam(defaultValue = "1000") @Min(1) @Max(10000) int limit
+    ) {
+        return ResponseEntity.ok(articleService.getLowStockArticles(limit));
+    }
 
-        return ResponseEntity.ok(response);
+    //GET hits, misses and evictions of the caches behind get article by id (articles) and get all articles (pages)
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, CacheStatsDTO>> getCacheStats() {
+        return ResponseEntity.ok(Map.of(
+                "articles", articleService.getArticleCacheStats(),
+                "pages", articleService.getPageCacheStats()
+        ));
     }
 
     //GET article by id
+    //with an If-None-Match that is still the article's ETag the answer is an empty 304, checked before the DTO is made
     @GetMapping("/{id}")
-    public ResponseEntity<ArticleResponseDTO> getArticleById(@PathVariable Long id) {
-        return ResponseEntity.ok(articleService.getArticleById(id));
+    public ResponseEntity<ArticleResponseDTO> getArticleById(@PathVariable Long id, WebRequest webRequest) {
+        String eTag = eTag(articleService.getArticleVersion(id));
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(articleService.getArticleById(id));
+    }
+
+    //GET the stock movements of an article, newest first. The nextBefore of a page is the before of the next one
+    @GetMapping("/{id}/movements")
+    public ResponseEntity<StockLedgerPageDTO> getStockMovements(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(1000) int size
+    ) {
+        return ResponseEntity.ok(articleService.getStockMovements(id, before, size));
     }
 
     //Remove an article
@@ -75,9 +204,15 @@ public class ArticleController {
     }
 
     //UPDATE article by id
+    //with If-Match (the ETag from GET article by id) the update only goes through if nobody has changed the article since, otherwise 412
     @PutMapping("/{id}")
-    public ResponseEntity<ArticleResponseDTO> updateArticle(@PathVariable Long id, @Valid @RequestBody UpdateArticleDTO updateArticleDTO) {
-        return ResponseEntity.ok(articleService.updateArticle(id, updateArticleDTO));
+    public ResponseEntity<ArticleResponseDTO> updateArticle(
+            @PathVariable Long id,
+            @Valid @RequestBody UpdateArticleDTO updateArticleDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        ArticleResponseDTO updated = articleService.updateArticle(id, updateArticleDTO, expectedVersion(id, ifMatch));
+        return ResponseEntity.ok().eTag(eTag(ArticleService.versionTag(updated.getVersion(), updated.getAmount()))).body(updated);
     }
 
     //PATCH article amount by id, Add
@@ -91,4 +226,31 @@ public class ArticleController {
     public ResponseEntity<ArticleResponseDTO> patchArticleAmountRemove(@PathVariable Long id, @Valid @RequestBody PatchAmountDTO patchAmountDTO) {
         return ResponseEntity.ok(articleService.patchArticleAmountRemove(id, patchAmountDTO));
     }
+
+    //POST many amount changes at once, a positive delta adds and a negative delta subtracts.
+    //The results come back in the same order as the movements, one that failed doesn't stop the others.
+    @PostMapping("/stock-movements")
+    public ResponseEntity<List<StockMovementResultDTO>> applyStockMovements(@Valid @RequestBody StockMovementsDTO stockMovementsDTO) {
+        return ResponseEntity.ok(articleService.applyStockMovements(stockMovementsDTO.getMovements()));
+    }
+
+    private static String eTag(String version) {
+        return "\"" + version + "\"";
+    }
+
+    //the article version in an If-Match header, null without one or for * (any version).
+    //A weak ETag or something that isn't one of our ETags can never match, so that is a conflict too.
+    private static Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        Long version = tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")
+                ? ArticleService.versionFromTag(tag.substring(1, tag.length() - 1))
+                : null;
+        if (version == null) {
+            throw new ArticleVersionConflictException("If-Match " + ifMatch + " is not an ETag of article " + id);
+        }
+        return version;
+    }
 }
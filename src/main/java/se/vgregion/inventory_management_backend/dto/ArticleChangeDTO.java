@@ -0,0 +1,21 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.time.LocalDateTime;
+
+//One event of GET /api/articles/changes, only what the table in the frontend needs to update a row.
+//A deleted article only has its id and deleted=true, the other fields are left out.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ArticleChangeDTO(Long id, Integer amount, Boolean lowStock, LocalDateTime updatedAt, Boolean deleted) {
+
+    public static ArticleChangeDTO of(ArticleChangedEvent event) {
+        ArticleSnapshot current = event.current();
+        if (current == null) {
+            return new ArticleChangeDTO(event.articleId(), null, null, null, true);
+        }
+        return new ArticleChangeDTO(current.id(), current.amount(), current.lowStock(), current.updatedAt(), null);
+    }
+}
@@ -0,0 +1,33 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import java.util.List;
+
+//Response of the keyset (cursor) pagination mode. There are no page numbers or totals here,
+//the client just passes nextCursor back to get the next page.
+public class ArticleCursorPageDTO {
+    private List<ArticleResponseDTO> content;
+    private int pageSize;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public ArticleCursorPageDTO(List<ArticleResponseDTO> content, int pageSize, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.pageSize = pageSize;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public ArticleCursorPageDTO() {}
+
+    public List<ArticleResponseDTO> getContent() { return content; }
+    public void setContent(List<ArticleResponseDTO> content) { this.content = content; }
+
+    public int getPageSize() { return pageSize; }
+    public void setPageSize(int pageSize) { this.pageSize = pageSize; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
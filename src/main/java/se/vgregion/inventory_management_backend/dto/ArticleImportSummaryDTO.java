@@ -0,0 +1,11 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import java.util.List;
+
+//The result of an import. Only the first errors are listed so that a file full of broken rows can't fill the memory,
+//rejected still counts all of them.
+public record ArticleImportSummaryDTO(long inserted, long updated, long rejected, List<RejectedRow> errors) {
+
+    //line is the line number in the file, starting at 1 (the csv header is line 1)
+    public record RejectedRow(long line, String error) {}
+}
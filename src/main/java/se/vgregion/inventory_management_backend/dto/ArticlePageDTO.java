@@ -0,0 +1,29 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+//Response of GET all articles with page numbers. totalItems and totalPages are left out of the json when the totals
+//weren't asked for (withTotals=false).
+public record ArticlePageDTO(
+        List<ArticleResponseDTO> content,
+        int currentPage,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Long totalItems,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Integer totalPages,
+        int pageSize,
+        boolean hasNext,
+        boolean hasPrevious
+) {
+
+    public static ArticlePageDTO of(Page<ArticleResponseDTO> page) {
+        return new ArticlePageDTO(page.getContent(), page.getNumber(), page.getTotalElements(), page.getTotalPages(),
+                page.getSize(), page.hasNext(), page.hasPrevious());
+    }
+
+    public static ArticlePageDTO withoutTotals(Slice<ArticleResponseDTO> slice) {
+        return new ArticlePageDTO(slice.getContent(), slice.getNumber(), null, null, slice.getSize(), slice.hasNext(), slice.hasPrevious());
+    }
+}
@@ -1,21 +1,30 @@
 package se.vgregion.inventory_management_backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import se.vgregion.inventory_management_backend.enums.ECategory;
 import se.vgregion.inventory_management_backend.enums.EUnit;
 import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
 
 import java.time.LocalDateTime;
 
+//written to json by the ArticleResponseDTOSerializer, a new field has to be added there too.
+//Immutable, the same instance can be handed to several requests at once (ArticlePageCache, SingleFlight) and stay cached afterwards.
+@JsonSerialize(using = ArticleResponseDTOSerializer.class)
 public class ArticleResponseDTO {
-    private Long id;
-    private String name;
-    private int amount;
-    private int minimumAmount;
-    private EUnit unit;
-    private ECategory category;
-    private LocalDateTime createdAt;
-    private LocalDateTime updatedAt;
-    private boolean lowStock;
+    private final Long id;
+    private final String name;
+    private final int amount;
+    private final int minimumAmount;
+    private final EUnit unit;
+    private final ECategory category;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final boolean lowStock;
+    //only for the ETag header, not in the json (the export writes this class too and its rows have to be importable)
+    @JsonIgnore
+    private final long version;
 
     public ArticleResponseDTO(Article article) {
         this.id = article.getId();
@@ -26,41 +35,59 @@ public class ArticleResponseDTO {
         this.category = article.getCategory();
         this.createdAt = article.getCreatedAt();
         this.updatedAt = article.getUpdatedAt();
-        //flag for if an article has low stock or not, only visible when fetching data, not stored.
-        this.lowStock = article.getAmount() <= article.getMinimumAmount();
+        //flag for if an article has low stock or not (amount <= minimumAmount). It is stored in the indexed low_stock column:
+        //the entity sets it whenever amount or minimumAmount is set and the bulk UPDATEs in ArticleRepository set it in the same statement.
+        this.lowStock = article.isLowStock();
+        this.version = article.getVersion();
     }
 
-    public ArticleResponseDTO() {}
+    public ArticleResponseDTO(ArticleSnapshot article) {
+        this.id = article.id();
+        this.name = article.name();
+        this.amount = article.amount();
+        this.minimumAmount = article.minimumAmount();
+        this.unit = article.unit();
+        this.category = article.category();
+        this.createdAt = article.createdAt();
+        this.updatedAt = article.updatedAt();
+        this.lowStock = article.lowStock();
+        this.version = article.version();
+    }
+
+    //for reading the json back, jackson fills in the fields itself
+    public ArticleResponseDTO() {
+        this.id = null;
+        this.name = null;
+        this.amount = 0;
+        this.minimumAmount = 0;
+        this.unit = null;
+        this.category = null;
+        this.createdAt = null;
+        this.updatedAt = null;
+        this.lowStock = false;
+        this.version = 0;
+    }
 
     public Long getId() { return id; }
-    public void setId(Long id) { this.id = id; }
 
     public String getName() { return name; }
-    public void setName(String name) { this.name = name; }
 
     public int getAmount() { return amount; }
-    public void setAmount(int amount) { this.amount = amount; }
 
     public int getMinimumAmount() { return minimumAmount; }
-    public void setMinimumAmount(int minimumAmount) { this.minimumAmount = minimumAmount; }
 
     public EUnit getUnit() { return unit; }
-    public void setUnit(EUnit unit) { this.unit = unit; }
 
     public LocalDateTime getCreatedAt() { return createdAt; }
-    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 
     public boolean isLowStock() { return lowStock; }
-    public void setLowStock(boolean lowStock) { this.lowStock = lowStock; }
+
+    @JsonIgnore
+    public long getVersion() { return version; }
 
     public ECategory getCategory() {
         return category;
     }
-
-    public void setCategory(ECategory category) {
-        this.category = category;
-    }
 }
@@ -0,0 +1,124 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+//Writes an ArticleResponseDTO field by field to the generator, instead of jackson finding the getters by reflection and
+//going through a serializer per property. The json is exactly what jackson wrote before with spring boot's settings: the same fields
+//in the same order, enums by name and the dates as text like DateTimeFormatter.ISO_LOCAL_DATE_TIME, without the version.
+//The field names are escaped once here, and the dates are written from a char buffer instead of being formatted into new Strings.
+public class ArticleResponseDTOSerializer extends StdSerializer<ArticleResponseDTO> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString MINIMUM_AMOUNT = new SerializedString("minimumAmount");
+    private static final SerializableString UNIT = new SerializedString("unit");
+    private static final SerializableString CATEGORY = new SerializedString("category");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializableString LOW_STOCK = new SerializedString("lowStock");
+
+    //longest date this writes itself: 2024-01-01T00:00:00.123456789
+    private static final int DATE_LENGTH = 29;
+    private static final Object DATE_BUFFER = new Object();
+
+    public ArticleResponseDTOSerializer() {
+        super(ArticleResponseDTO.class);
+    }
+
+    @Override
+    public void serialize(ArticleResponseDTO article, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(article);
+        generator.writeFieldName(ID);
+        if (article.getId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(article.getId());
+        }
+        generator.writeFieldName(NAME);
+        generator.writeString(article.getName());
+        generator.writeFieldName(AMOUNT);
+        generator.writeNumber(article.getAmount());
+        generator.writeFieldName(MINIMUM_AMOUNT);
+        generator.writeNumber(article.getMinimumAmount());
+        generator.writeFieldName(UNIT);
+        generator.writeString(article.getUnit() == null ? null : article.getUnit().name());
+        generator.writeFieldName(CATEGORY);
+        generator.writeString(article.getCategory() == null ? null : article.getCategory().name());
+        char[] dateBuffer = dateBuffer(provider);
+        generator.writeFieldName(CREATED_AT);
+        writeDate(generator, article.getCreatedAt(), dateBuffer);
+        generator.writeFieldName(UPDATED_AT);
+        writeDate(generator, article.getUpdatedAt(), dateBuffer);
+        generator.writeFieldName(LOW_STOCK);
+        generator.writeBoolean(article.isLowStock());
+        generator.writeEndObject();
+    }
+
+    //One buffer for all the dates of a response, kept as a per-call attribute of the provider (a new provider is made for every
+    //writeValue), instead of a formatter context, a StringBuilder and a String for each date.
+    private static char[] dateBuffer(SerializerProvider provider) {
+        char[] buffer = (char[]) provider.getAttribute(DATE_BUFFER);
+        if (buffer == null) {
+            buffer = new char[DATE_LENGTH];
+            provider.setAttribute(DATE_BUFFER, buffer);
+        }
+        return buffer;
+    }
+
+    private static void writeDate(JsonGenerator generator, LocalDateTime date, char[] buffer) throws IOException {
+        if (date == null) {
+            generator.writeNull();
+            return;
+        }
+        //years with more or less than four digits get a sign, that is left to the formatter
+        if (date.getYear() < 0 || date.getYear() > 9999) {
+            generator.writeString(date.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return;
+        }
+        generator.writeString(buffer, 0, formatDate(date, buffer));
+    }
+
+    //yyyy-MM-ddTHH:mm:ss and the fraction of the second without trailing zeros (none if it is 0), returns the length
+    static int formatDate(LocalDateTime date, char[] buffer) {
+        writeDigits(buffer, 0, date.getYear(), 4);
+        buffer[4] = '-';
+        writeDigits(buffer, 5, date.getMonthValue(), 2);
+        buffer[7] = '-';
+        writeDigits(buffer, 8, date.getDayOfMonth(), 2);
+        buffer[10] = 'T';
+        writeDigits(buffer, 11, date.getHour(), 2);
+        buffer[13] = ':';
+        writeDigits(buffer, 14, date.getMinute(), 2);
+        buffer[16] = ':';
+        writeDigits(buffer, 17, date.getSecond(), 2);
+        int nano = date.getNano();
+        if (nano == 0) {
+            return 19;
+        }
+        buffer[19] = '.';
+        writeDigits(buffer, 20, nano, 9);
+        int length = DATE_LENGTH;
+        while (buffer[length - 1] == '0') {
+            length--;
+        }
+        return length;
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.util.Map;
+
+//number of articles, number of low-stock articles and the summed amount, for the whole inventory and per category and unit
+public record ArticleStatsDTO(Totals total, Map<ECategory, Totals> byCategory, Map<EUnit, Totals> byUnit) {
+
+    public record Totals(long articles, long lowStock, long amount) {}
+}
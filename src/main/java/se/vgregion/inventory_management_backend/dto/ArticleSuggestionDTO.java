@@ -0,0 +1,7 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import se.vgregion.inventory_management_backend.enums.ECategory;
+
+//One row of the autocomplete list. Immutable so the same instances can be kept in the ArticleSuggestIndex
+//and handed to every request without copying.
+public record ArticleSuggestionDTO(Long id, String name, ECategory category, boolean lowStock) {}
@@ -0,0 +1,4 @@
+package se.vgregion.inventory_management_backend.dto;
+
+//statistics of one of the caches. hit rate is between 0 and 1, evictions counts the entries that were dropped because the cache was full or they had expired
+public record CacheStatsDTO(long hits, long misses, double hitRate, long evictions, long size) {}
@@ -0,0 +1,14 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import se.vgregion.inventory_management_backend.enums.EMovementType;
+import se.vgregion.inventory_management_backend.models.StockMovement;
+
+import java.time.LocalDateTime;
+
+//one movement in the history of an article (GET /api/articles/{id}/movements)
+public record StockLedgerEntryDTO(Long id, EMovementType type, int delta, int amountAfter, LocalDateTime createdAt) {
+
+    public static StockLedgerEntryDTO of(StockMovement movement) {
+        return new StockLedgerEntryDTO(movement.getId(), movement.getType(), movement.getDelta(), movement.getAmountAfter(), movement.getCreatedAt());
+    }
+}
@@ -0,0 +1,7 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import java.util.List;
+
+//A page of the history of an article, newest first. There are no page numbers or totals,
+//the client passes nextBefore back as before to get the next (older) page, it is null on the last page.
+public record StockLedgerPageDTO(List<StockLedgerEntryDTO> content, int pageSize, boolean hasNext, Long nextBefore) {}
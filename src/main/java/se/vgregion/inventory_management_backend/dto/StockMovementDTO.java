@@ -0,0 +1,29 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+//one amount change in a batch of stock movements, a positive delta adds and a negative delta subtracts
+public class StockMovementDTO {
+    @NotNull(message = "Article id is required!")
+    private Long id;
+
+    @NotNull(message = "Delta is required!")
+    @Min(value = -100000000, message = "Delta cannot be below -100,000,000!")
+    @Max(value = 100000000, message = "Delta cannot exceed 100,000,000!")
+    private Integer delta;
+
+    public StockMovementDTO() {}
+
+    public StockMovementDTO(Long id, Integer delta) {
+        this.id = id;
+        this.delta = delta;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Integer getDelta() { return delta; }
+    public void setDelta(Integer delta) { this.delta = delta; }
+}
@@ -0,0 +1,13 @@
+package se.vgregion.inventory_management_backend.dto;
+
+//the result of one stock movement, amount is the amount after the movement and error is only set when it failed
+public record StockMovementResultDTO(Long id, int delta, boolean success, Integer amount, String error) {
+
+    public static StockMovementResultDTO applied(Long id, int delta, int amount) {
+        return new StockMovementResultDTO(id, delta, true, amount, null);
+    }
+
+    public static StockMovementResultDTO failed(Long id, int delta, String error) {
+        return new StockMovementResultDTO(id, delta, false, null, error);
+    }
+}
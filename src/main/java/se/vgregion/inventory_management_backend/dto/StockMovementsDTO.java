@@ -0,0 +1,24 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class StockMovementsDTO {
+    //@Valid so that every movement in the list is validated too
+    @NotEmpty(message = "At least one movement is required!")
+    @Size(max = 1000, message = "Cannot send more than 1000 movements at once!")
+    @Valid
+    private List<StockMovementDTO> movements;
+
+    public StockMovementsDTO() {}
+
+    public StockMovementsDTO(List<StockMovementDTO> movements) {
+        this.movements = movements;
+    }
+
+    public List<StockMovementDTO> getMovements() { return movements; }
+    public void setMovements(List<StockMovementDTO> movements) { this.movements = movements; }
+}
@@ -0,0 +1,6 @@
+package se.vgregion.inventory_management_backend.enums;
+
+//what kind of change a StockMovement was: a patch or stock movement that added or subtracted, or a new amount from create, PUT or import
+public enum EMovementType {
+    ADD,SUBTRACT,SET
+}
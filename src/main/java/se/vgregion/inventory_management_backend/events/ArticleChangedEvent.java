@@ -0,0 +1,17 @@
+package se.vgregion.inventory_management_backend.events;
+
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+//Published by ArticleService for every change to an article.
+//previous is null when the article was created and current is null when it was deleted.
+//buffered is true for amount changes that are only in the HotStockCounters so far and reach the database with the next flush.
+public record ArticleChangedEvent(ArticleSnapshot previous, ArticleSnapshot current, boolean buffered) {
+
+    public ArticleChangedEvent(ArticleSnapshot previous, ArticleSnapshot current) {
+        this(previous, current, false);
+    }
+
+    public Long articleId() {
+        return current != null ? current.id() : previous.id();
+    }
+}
@@ -0,0 +1,12 @@
+package se.vgregion.inventory_management_backend.exception;
+
+//Thrown when a PUT with If-Match was for another version of the article than the one that is stored,
+//someone else changed it after the client read it. Answered with 412 by the GlobalExceptionHandler.
+public class ArticleVersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ArticleVersionConflictException(String message) {
+        super(message);
+    }
+}
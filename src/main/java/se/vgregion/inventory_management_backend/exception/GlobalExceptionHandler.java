@@ -1,10 +1,13 @@
 package se.vgregion.inventory_management_backend.exception;
 
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -38,6 +41,40 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleNotFound(EntityNotFoundException exception) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                "NOT_FOUND",
+                exception.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    }
+
+    //the client has to get the article again (and its new ETag) and decide if its change still makes sense
+    @ExceptionHandler(ArticleVersionConflictException.class)
+    public ResponseEntity<ErrorResponse> handleVersionConflict(ArticleVersionConflictException exception) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                "VERSION_CONFLICT",
+                exception.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse);
+    }
+
+    //hibernate's own version check failed (a delete or an import of an article that was changed at the same time), trying again works
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException exception) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                "CONCURRENT_UPDATE",
+                "The article was changed by someone else at the same time, please try again"
+        );
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
+    //the client of a stream (GET /api/articles/changes) has gone, there is nobody left to send an answer to
+    @ExceptionHandler(AsyncRequestNotUsableException.class)
+    public void handleClientGone() {
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(Exception exception) {
         ErrorResponse errorResponse = new ErrorResponse(
@@ -0,0 +1,17 @@
+package se.vgregion.inventory_management_backend.index;
+
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+//An in-memory structure over the articles that is kept in sync with the database by ArticleIndexer.
+//It is loaded once at startup and then updated with every committed change.
+public interface ArticleIndex {
+
+    //removes everything, called before the index is loaded again
+    void clear();
+
+    //previous is null for a new article (and while loading), current is null for a deleted article
+    void apply(ArticleSnapshot previous, ArticleSnapshot current);
+
+    //called when all articles have been loaded
+    default void markReady() {}
+}
@@ -0,0 +1,68 @@
+package se.vgregion.inventory_management_backend.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+//Loads every ArticleIndex with one scan of the article table at startup and then keeps them up to date.
+//The loading is done before the web server starts, so no request can see a half loaded index.
+//Changes are only applied after the transaction has committed, a rolled back change never reaches the indexes.
+@Component
+public class ArticleIndexer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleIndexer.class);
+
+    private final ArticleRepository articleRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final List<ArticleIndex> indexes;
+
+    public ArticleIndexer(ArticleRepository articleRepository, PlatformTransactionManager transactionManager, List<ArticleIndex> indexes) {
+        this.articleRepository = articleRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.indexes = indexes;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    //loads all indexes again from the database, also used by tests and benchmarks that insert articles with plain sql
+    public void rebuild() {
+        long start = System.nanoTime();
+        indexes.forEach(ArticleIndex::clear);
+
+        long count = readOnlyTransaction.execute(status -> {
+            try (Stream<ArticleSnapshot> snapshots = articleRepository.streamAllSnapshots()) {
+                return snapshots.mapToLong(snapshot -> {
+                    for (ArticleIndex index : indexes) {
+                        index.apply(null, snapshot);
+                    }
+                    return 1;
+                }).sum();
+            }
+        });
+
+        indexes.forEach(ArticleIndex::markReady);
+        log.info("Loaded {} articles into {} indexes in {} ms", count, indexes.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    //fallbackExecution for the hot counter changes, they are published without a transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onArticleChanged(ArticleChangedEvent event) {
+        for (ArticleIndex index : indexes) {
+            index.apply(event.previous(), event.current());
+        }
+    }
+}
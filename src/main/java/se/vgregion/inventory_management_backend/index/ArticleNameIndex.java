@@ -0,0 +1,253 @@
+package se.vgregion.inventory_management_backend.index;
+
+import org.springframework.stereotype.Component;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//Trigram (3 character) inverted index over the article names, used instead of LOWER(name) LIKE '%search%'.
+//A LIKE with a leading wildcard can't use any database index, so it reads the whole table on every search.
+//Here every name is split into all its overlapping trigrams ("glove" -> "glo", "lov", "ove") and each trigram points to the
+//sorted ids of the articles that contain it. A search intersects the id lists of the trigrams in the search term,
+//which is only as expensive as the rarest trigram, and then checks the few candidates against the actual names.
+@Component
+public class ArticleNameIndex implements ArticleIndex {
+
+    static final int GRAM = 3;
+    private static final long DELETED = Long.MAX_VALUE;
+
+    //trigram -> ids, a trigram is packed into a long (3 chars of 16 bits) so no strings are created per trigram
+    private Map<Long, IdList> postings = new HashMap<>();
+    //id -> lowercase name, used to remove the old trigrams when a name changes and to check the candidates
+    private Map<Long, String> names = new HashMap<>();
+    //id -> version of the last change that was applied, DELETED for a deleted article so a late change can't bring it back
+    private Map<Long, Long> versions = new HashMap<>();
+    //the deleted articles in versions, their entries are removed again once no late change can come anymore
+    private final Tombstones tombstones;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    public ArticleNameIndex() {
+        this(Tombstones.DEFAULT_KEEP_NANOS);
+    }
+
+    ArticleNameIndex(long tombstoneNanos) {
+        this.tombstones = new Tombstones(tombstoneNanos);
+    }
+
+    //Returns the ids of all articles whose name contains the search term (case insensitive), in ascending order.
+    //Returns null when the index can't answer: the term is shorter than a trigram, the index isn't loaded yet or more than
+    //maxResults articles match. The caller then has to fall back to the LIKE query.
+    public List<Long> search(String term, int maxResults) {
+        if (!ready || term == null || term.length() < GRAM) {
+            return null;
+        }
+        String lowerTerm = term.toLowerCase(Locale.ROOT);
+        long[] grams = trigrams(lowerTerm);
+
+        lock.readLock().lock();
+        try {
+            IdList[] lists = new IdList[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return List.of();
+                }
+            }
+            //start from the shortest list and narrow it down with the others, shortest first so the candidates shrink quickly
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            long[] candidates = new long[lists[0].size];
+            int count = intersect(lists[0].ids, lists[0].size, lists.length > 1 ? lists[1] : lists[0], candidates);
+            for (int i = 2; i < lists.length && count > 0; i++) {
+                count = intersect(candidates, count, lists[i], candidates);
+            }
+
+            //having all the trigrams doesn't mean they are in the right order, so the candidates are checked against the names
+            List<Long> result = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                long id = candidates[i];
+                if (names.get(id).contains(lowerTerm)) {
+                    if (result.size() == maxResults) {
+                        return null;
+                    }
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //the articles a version is kept for, deleted ones included until their tombstone is dropped
+    int trackedVersions() {
+        lock.readLock().lock();
+        try {
+            return versions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            //new maps instead of clear(), a HashMap keeps its table at the largest size it ever had
+            postings = new HashMap<>();
+            names = new HashMap<>();
+            versions = new HashMap<>();
+            tombstones.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void apply(ArticleSnapshot previous, ArticleSnapshot current) {
+        //only the name matters here, amount changes don't touch the index
+        if (previous != null && current != null && previous.name().equals(current.name())) {
+            return;
+        }
+        long id = current != null ? current.id() : previous.id();
+        lock.writeLock().lock();
+        try {
+            //the after-commit events of two transactions can be handled in the other order, a change older than the one
+            //already applied is skipped. The same version is applied again, hot counter changes don't change the version.
+            Long applied = versions.get(id);
+            if (applied != null && (current != null ? current.version() : previous.version()) < applied) {
+                return;
+            }
+            remove(id);
+            if (current != null) {
+                add(id, current.name());
+                versions.put(id, current.version());
+            } else {
+                tombstones.expire(expired -> versions.remove(expired, DELETED));
+                versions.put(id, DELETED);
+                tombstones.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void markReady() {
+        ready = true;
+    }
+
+    private void add(long id, String name) {
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        names.put(id, lowerName);
+        for (long gram : trigrams(lowerName)) {
+            postings.computeIfAbsent(gram, g -> new IdList()).add(id);
+        }
+    }
+
+    private void remove(long id) {
+        String lowerName = names.remove(id);
+        if (lowerName == null) {
+            return;
+        }
+        for (long gram : trigrams(lowerName)) {
+            IdList list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    //writes the ids that are in both the sorted source and the other list to target (which may be the source) and returns how many.
+    //the other list is searched by galloping from the last position, so a short source against a long list stays cheap.
+    private static int intersect(long[] source, int count, IdList other, long[] target) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < other.size; i++) {
+            long id = source[i];
+            from = gallop(other.ids, from, other.size, id);
+            if (from < other.size && other.ids[from] == id) {
+                target[kept++] = id;
+                from++;
+            }
+        }
+        return kept;
+    }
+
+    //first position at or after from where ids[position] >= id
+    private static int gallop(long[] ids, int from, int to, long id) {
+        if (from >= to || ids[from] >= id) {
+            return from;
+        }
+        int bound = 1;
+        while (from + bound < to && ids[from + bound] < id) {
+            bound <<= 1;
+        }
+        int position = Arrays.binarySearch(ids, from + (bound >> 1) + 1, Math.min(from + bound, to), id);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    //the distinct trigrams of a (lowercase) string
+    static long[] trigrams(String s) {
+        if (s.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[s.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    //Growable sorted array of ids. Ids mostly come in increasing order (loading is ordered by id and new articles get
+    //higher ids), so adding is usually a plain append.
+    private static final class IdList {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            int position = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) {
+                return;
+            }
+            int insertAt = position < 0 ? -position - 1 : position;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
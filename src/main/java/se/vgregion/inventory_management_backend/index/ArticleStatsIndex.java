@@ -0,0 +1,199 @@
+package se.vgregion.inventory_management_backend.index;
+
+import org.springframework.stereotype.Component;
+import se.vgregion.inventory_management_backend.dto.ArticleStatsDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Running totals for GET /api/articles/stats: number of articles, low-stock articles and summed amount per category and unit.
+//Loaded with the other indexes at startup and then only changed by the difference between the old and the new article,
+//so the endpoint never has to look at the articles. There is one cell per category and unit combination, the totals per
+//category or per unit are sums over a handful of cells, so reading them costs the same however many articles there are.
+//Hot counter changes are applied too, so the amounts are the live ones.
+@Component
+public class ArticleStatsIndex implements ArticleIndex {
+
+    private static final ECategory[] CATEGORIES = ECategory.values();
+    private static final EUnit[] UNITS = EUnit.values();
+    private static final int CELLS = CATEGORIES.length * UNITS.length;
+
+    //articles, lowStock and amount of cell i are at 3i, 3i + 1 and 3i + 2
+    private final AtomicLongArray totals = new AtomicLongArray(CELLS * 3);
+    //goes up on every change, the reconciliation uses it to see if anything changed while it was counting
+    private final AtomicLong changes = new AtomicLong();
+
+    public ArticleStatsDTO stats() {
+        long[] values = new long[totals.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = totals.get(i);
+        }
+
+        Map<ECategory, ArticleStatsDTO.Totals> byCategory = new EnumMap<>(ECategory.class);
+        for (ECategory category : CATEGORIES) {
+            long[] sum = new long[3];
+            for (EUnit unit : UNITS) {
+                addCell(sum, values, cell(category, unit));
+            }
+            byCategory.put(category, toTotals(sum));
+        }
+
+        Map<EUnit, ArticleStatsDTO.Totals> byUnit = new EnumMap<>(EUnit.class);
+        long[] total = new long[3];
+        for (EUnit unit : UNITS) {
+            long[] sum = new long[3];
+            for (ECategory category : CATEGORIES) {
+                addCell(sum, values, cell(category, unit));
+            }
+            byUnit.put(unit, toTotals(sum));
+            for (int i = 0; i < 3; i++) {
+                total[i] += sum[i];
+            }
+        }
+        return new ArticleStatsDTO(toTotals(total), byCategory, byUnit);
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < totals.length(); i++) {
+            totals.set(i, 0);
+        }
+        changes.incrementAndGet();
+    }
+
+    @Override
+    public void apply(ArticleSnapshot previous, ArticleSnapshot current) {
+        changes.incrementAndGet();
+        if (previous != null) {
+            add(previous, -1);
+        }
+        if (current != null) {
+            add(current, 1);
+        }
+    }
+
+    public long changes() {
+        return changes.get();
+    }
+
+    //a copy of all cells, for the reconciliation
+    public Counts counts() {
+        Counts counts = new Counts();
+        for (int i = 0; i < totals.length(); i++) {
+            counts.values[i] = totals.get(i);
+        }
+        return counts;
+    }
+
+    //adds the drift the reconciliation found. Adding instead of overwriting can't undo changes that happen at the same time
+    public void correct(Counts drift) {
+        for (int i = 0; i < totals.length(); i++) {
+            if (drift.values[i] != 0) {
+                totals.addAndGet(i, drift.values[i]);
+            }
+        }
+    }
+
+    private void add(ArticleSnapshot article, int sign) {
+        if (article.category() == null || article.unit() == null) {
+            return;
+        }
+        int offset = cell(article.category(), article.unit()) * 3;
+        totals.addAndGet(offset, sign);
+        if (article.lowStock()) {
+            totals.addAndGet(offset + 1, sign);
+        }
+        totals.addAndGet(offset + 2, (long) sign * article.amount());
+    }
+
+    private static int cell(ECategory category, EUnit unit) {
+        return category.ordinal() * UNITS.length + unit.ordinal();
+    }
+
+    private static void addCell(long[] sum, long[] values, int cell) {
+        for (int i = 0; i < 3; i++) {
+            sum[i] += values[cell * 3 + i];
+        }
+    }
+
+    private static ArticleStatsDTO.Totals toTotals(long[] sum) {
+        return new ArticleStatsDTO.Totals(sum[0], sum[1], sum[2]);
+    }
+
+    //The same cells as the index but in a plain array, for totals that are counted from the database.
+    //Not thread safe, only used by one thread at a time.
+    public static final class Counts {
+
+        private final long[] values = new long[CELLS * 3];
+
+        public void add(ECategory category, EUnit unit, long articles, long lowStock, long amount) {
+            if (category == null || unit == null) {
+                return;
+            }
+            int offset = cell(category, unit) * 3;
+            values[offset] += articles;
+            values[offset + 1] += lowStock;
+            values[offset + 2] += amount;
+        }
+
+        public void addAll(Counts other) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] += other.values[i];
+            }
+        }
+
+        //this minus other, cell by cell
+        public Counts minus(Counts other) {
+            Counts difference = new Counts();
+            for (int i = 0; i < values.length; i++) {
+                difference.values[i] = values[i] - other.values[i];
+            }
+            return difference;
+        }
+
+        public boolean isZero() {
+            return Arrays.stream(values).allMatch(value -> value == 0);
+        }
+
+        public long articles() {
+            long articles = 0;
+            for (int i = 0; i < values.length; i += 3) {
+                articles += values[i];
+            }
+            return articles;
+        }
+
+        //the cells that aren't 0, like "CONSUMABLE/PIECES articles=1 lowStock=0 amount=-20"
+        public List<String> describe() {
+            List<String> cells = new ArrayList<>();
+            for (ECategory category : CATEGORIES) {
+                for (EUnit unit : UNITS) {
+                    int offset = cell(category, unit) * 3;
+                    if (values[offset] != 0 || values[offset + 1] != 0 || values[offset + 2] != 0) {
+                        cells.add(category + "/" + unit + " articles=" + values[offset] + " lowStock=" + values[offset + 1]
+                                + " amount=" + values[offset + 2]);
+                    }
+                }
+            }
+            return cells;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Counts other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
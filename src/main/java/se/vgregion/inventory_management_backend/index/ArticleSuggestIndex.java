@@ -0,0 +1,104 @@
+package se.vgregion.inventory_management_backend.index;
+
+import org.springframework.stereotype.Component;
+import se.vgregion.inventory_management_backend.dto.ArticleSuggestionDTO;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+//Sorted in-memory index of the article names for the autocomplete endpoint.
+//The names are kept in lowercase order, so all names starting with a prefix are next to each other and the first K
+//are found in O(log n + K) without touching the database. Reads don't lock, writes only touch the changed article.
+@Component
+public class ArticleSuggestIndex implements ArticleIndex {
+
+    //names are only unique with case, so the id is part of the key ("gloves" and "Gloves" can both exist)
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final ConcurrentSkipListMap<String, ArticleSuggestionDTO> suggestions = new ConcurrentSkipListMap<>();
+    //id -> the version and key of the last change that was applied, a deleted article keeps a null key so a late change can't bring it back
+    private volatile ConcurrentHashMap<Long, Applied> applied = new ConcurrentHashMap<>();
+    //the deleted articles in applied, their entries are removed again once no late change can come anymore
+    private final Tombstones tombstones;
+
+    public ArticleSuggestIndex() {
+        this(Tombstones.DEFAULT_KEEP_NANOS);
+    }
+
+    ArticleSuggestIndex(long tombstoneNanos) {
+        this.tombstones = new Tombstones(tombstoneNanos);
+    }
+
+    //the first limit articles, in name order, whose name starts with the prefix (case insensitive)
+    public List<ArticleSuggestionDTO> suggest(String prefix, int limit) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        ConcurrentNavigableMap<String, ArticleSuggestionDTO> matches = suggestions.subMap(from, true, from + Character.MAX_VALUE, false);
+
+        List<ArticleSuggestionDTO> result = new ArrayList<>(limit);
+        for (ArticleSuggestionDTO suggestion : matches.values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(suggestion);
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        suggestions.clear();
+        //a new map instead of clear(), that would keep the table at the largest size it ever had
+        applied = new ConcurrentHashMap<>();
+        tombstones.clear();
+    }
+
+    //the articles a version is kept for, deleted ones included until their tombstone is dropped
+    int trackedVersions() {
+        return applied.size();
+    }
+
+    @Override
+    public void apply(ArticleSnapshot previous, ArticleSnapshot current) {
+        //the suggestion shows name, category and lowStock, changes to anything else don't matter here
+        if (previous != null && current != null
+                && previous.name().equals(current.name())
+                && previous.category() == current.category()
+                && previous.lowStock() == current.lowStock()) {
+            return;
+        }
+        //compute keeps two changes of the same article from interleaving. The after-commit events of two transactions can be
+        //handled in the other order, a change older than the one already applied is skipped. The same version is applied again,
+        //hot counter changes don't change the version but can change lowStock.
+        long id = current != null ? current.id() : previous.id();
+        if (current == null) {
+            tombstones.expire(expired -> applied.computeIfPresent(expired, (key, last) -> last.key() == null ? null : last));
+        }
+        applied.compute(id, (key, last) -> {
+            if (last != null && (last.key() == null || (current != null ? current.version() : previous.version()) < last.version())) {
+                return last;
+            }
+            if (last != null) {
+                suggestions.remove(last.key());
+            }
+            if (current == null) {
+                tombstones.add(id);
+                return new Applied(previous.version(), null);
+            }
+            String currentKey = key(current);
+            suggestions.put(currentKey, new ArticleSuggestionDTO(current.id(), current.name(), current.category(), current.lowStock()));
+            return new Applied(current.version(), currentKey);
+        });
+    }
+
+    private static String key(ArticleSnapshot article) {
+        return article.name().toLowerCase(Locale.ROOT) + KEY_SEPARATOR + article.id();
+    }
+
+    private record Applied(long version, String key) {}
+}
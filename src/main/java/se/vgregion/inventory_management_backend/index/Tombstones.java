@@ -0,0 +1,42 @@
+package se.vgregion.inventory_management_backend.index;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+//The ids of the deleted articles an index still keeps a tombstone for, oldest first.
+//A tombstone stops a late change from bringing a deleted article back. A change can only come late when its transaction
+//committed before the delete, so after a while no change of the article can come anymore and the tombstone is dropped.
+//Without that the index would keep an entry for every article that was ever deleted.
+final class Tombstones {
+
+    static final long DEFAULT_KEEP_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long keepNanos;
+    private final ConcurrentLinkedQueue<Tombstone> tombstones = new ConcurrentLinkedQueue<>();
+
+    Tombstones(long keepNanos) {
+        this.keepNanos = keepNanos;
+    }
+
+    void add(long id) {
+        tombstones.add(new Tombstone(id, System.nanoTime()));
+    }
+
+    //passes the ids of the tombstones that are older than keepNanos to drop and forgets them
+    void expire(LongConsumer drop) {
+        long now = System.nanoTime();
+        Tombstone oldest;
+        while ((oldest = tombstones.peek()) != null && now - oldest.deletedAt() >= keepNanos) {
+            if (tombstones.remove(oldest)) {
+                drop.accept(oldest.id());
+            }
+        }
+    }
+
+    void clear() {
+        tombstones.clear();
+    }
+
+    private record Tombstone(long id, long deletedAt) {}
+}
@@ -11,9 +11,20 @@ import java.time.LocalDateTime;
 
 @Entity
 @EntityListeners(AuditingEntityListener.class)
+//indexes on the sortable fields (name already has one from the unique constraint), with id last for the keyset pagination
+@Table(indexes = {
+        @Index(name = "idx_article_created_at_id", columnList = "createdAt, id"),
+        @Index(name = "idx_article_unit_id", columnList = "unit, id"),
+        @Index(name = "idx_article_amount_id", columnList = "amount, id"),
+        //the low-stock list and the onlyLowStock filter read the low-stock rows straight from this index, in name order
+        @Index(name = "idx_article_low_stock_name", columnList = "lowStock, name")
+})
 public class Article {
+    //a pooled sequence instead of IDENTITY. With IDENTITY hibernate has to run every insert on its own to get the id back,
+    //with the sequence it gets 50 ids per call and can send the inserts in jdbc batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "article_seq")
+    @SequenceGenerator(name = "article_seq", sequenceName = "article_seq", allocationSize = 50)
     private Long id;
 
     @CreatedDate
@@ -22,9 +33,20 @@ public class Article {
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
+    //Goes up by one with every change that is saved, the ETag of the article is made from it and a PUT with If-Match
+    //only goes through if it is still the version the client had. Hibernate counts it up when it saves the entity,
+    //the bulk updates in ArticleRepository do it in the statement.
+    @Version
+    private long version;
+
     private int amount;
     private int minimumAmount;
 
+    //Stored copy of amount <= minimumAmount. The comparison between two columns can't use an index, so every low-stock query
+    //was a full scan, a stored column can be indexed. It is set together with amount and minimumAmount in the setters,
+    //and the bulk updates in ArticleRepository set it in the same statement as the amount.
+    private boolean lowStock;
+
     @Column(unique=true)
     private String name;
     private EUnit unit;
@@ -40,6 +62,12 @@ public class Article {
         this.minimumAmount = minimumAmount;
         this.unit = unit;
         this.category = category;
+        this.lowStock = isLowStock(amount, minimumAmount);
+    }
+
+    //the one place that decides what low stock means
+    public static boolean isLowStock(int amount, int minimumAmount) {
+        return amount <= minimumAmount;
     }
 
     public Long getId() {
@@ -66,12 +94,17 @@ public class Article {
         this.updatedAt = updatedAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public int getAmount() {
         return amount;
     }
 
     public void setAmount(int amount) {
         this.amount = amount;
+        this.lowStock = isLowStock(amount, minimumAmount);
     }
 
     public int getMinimumAmount() {
@@ -80,6 +113,11 @@ public class Article {
 
     public void setMinimumAmount(int minimumAmount) {
         this.minimumAmount = minimumAmount;
+        this.lowStock = isLowStock(amount, minimumAmount);
+    }
+
+    public boolean isLowStock() {
+        return lowStock;
     }
 
     public String getName() {
@@ -0,0 +1,43 @@
+package se.vgregion.inventory_management_backend.models;
+
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.time.LocalDateTime;
+
+//Immutable copy of an article at one point in time. Used for the change events and for loading the in-memory indexes,
+//so that they never hold on to managed Article entities.
+public record ArticleSnapshot(
+        Long id,
+        String name,
+        int amount,
+        int minimumAmount,
+        EUnit unit,
+        ECategory category,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        long version
+) {
+
+    public static ArticleSnapshot of(Article article) {
+        return new ArticleSnapshot(
+                article.getId(),
+                article.getName(),
+                article.getAmount(),
+                article.getMinimumAmount(),
+                article.getUnit(),
+                article.getCategory(),
+                article.getCreatedAt(),
+                article.getUpdatedAt(),
+                article.getVersion()
+        );
+    }
+
+    public ArticleSnapshot withAmount(int amount) {
+        return new ArticleSnapshot(id, name, amount, minimumAmount, unit, category, createdAt, updatedAt, version);
+    }
+
+    public boolean lowStock() {
+        return Article.isLowStock(amount, minimumAmount);
+    }
+}
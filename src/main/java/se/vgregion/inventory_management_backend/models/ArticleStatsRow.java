@@ -0,0 +1,7 @@
+package se.vgregion.inventory_management_backend.models;
+
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+//the totals of the articles with one category and unit, a row of ArticleRepository.sumStatsBetween
+public record ArticleStatsRow(ECategory category, EUnit unit, Long articles, Long lowStock, Long amount) {}
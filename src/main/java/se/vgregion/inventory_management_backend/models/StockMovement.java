@@ -0,0 +1,63 @@
+package se.vgregion.inventory_management_backend.models;
+
+import jakarta.persistence.*;
+import se.vgregion.inventory_management_backend.enums.EMovementType;
+
+import java.time.LocalDateTime;
+
+//One row of the stock ledger, written for every change to the amount of an article and never changed or deleted afterwards.
+//delta is the change (negative for a subtraction, new amount minus old amount for a SET) and amountAfter the amount it left.
+//The amount of an article is always its StockSnapshot plus the deltas of the movements after it, see StockLedger.
+@Entity
+@Table(indexes = {
+        //the history of one article newest first, and the movements after its snapshot
+        @Index(name = "idx_stock_movement_article_id", columnList = "articleId, id")
+})
+public class StockMovement {
+    //pooled like the article ids, so hibernate can send the inserts in jdbc batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movement_seq")
+    @SequenceGenerator(name = "stock_movement_seq", sequenceName = "stock_movement_seq", allocationSize = 50)
+    private Long id;
+
+    private Long articleId;
+    private EMovementType type;
+    private int delta;
+    private int amountAfter;
+    private LocalDateTime createdAt;
+
+    public StockMovement() {
+    }
+
+    public StockMovement(Long articleId, EMovementType type, int delta, int amountAfter, LocalDateTime createdAt) {
+        this.articleId = articleId;
+        this.type = type;
+        this.delta = delta;
+        this.amountAfter = amountAfter;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    public EMovementType getType() {
+        return type;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public int getAmountAfter() {
+        return amountAfter;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
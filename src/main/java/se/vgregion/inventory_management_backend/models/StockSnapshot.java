@@ -0,0 +1,53 @@
+package se.vgregion.inventory_management_backend.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+
+import java.time.LocalDateTime;
+
+//The amount of an article after all of its movements up to and including lastMovementId, written by StockLedger.compact.
+//The movements with a higher id are the tail that still has to be added to get the current amount.
+@Entity
+public class StockSnapshot {
+    @Id
+    private Long articleId;
+
+    private int amount;
+    private long lastMovementId;
+    private LocalDateTime takenAt;
+
+    //null until the snapshot is saved for the first time, which tells spring data to insert it instead of looking it up first
+    @Version
+    private Long version;
+
+    public StockSnapshot() {
+    }
+
+    public StockSnapshot(Long articleId) {
+        this.articleId = articleId;
+    }
+
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public long getLastMovementId() {
+        return lastMovementId;
+    }
+
+    public LocalDateTime getTakenAt() {
+        return takenAt;
+    }
+
+    //adds the tail that was folded into this snapshot
+    public void advance(long delta, long lastMovementId, LocalDateTime takenAt) {
+        this.amount = Math.toIntExact(this.amount + delta);
+        this.lastMovementId = lastMovementId;
+        this.takenAt = takenAt;
+    }
+}
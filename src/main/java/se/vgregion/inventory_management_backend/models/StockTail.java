@@ -0,0 +1,4 @@
+package se.vgregion.inventory_management_backend.models;
+
+//the movements of one article after its snapshot, summed up: a row of StockMovementRepository.sumTails
+public record StockTail(Long articleId, Long delta, Long lastMovementId) {}
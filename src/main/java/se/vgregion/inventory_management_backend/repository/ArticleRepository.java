@@ -1,23 +1,200 @@
 package se.vgregion.inventory_management_backend.repository;
 
-import org.springframework.data.domain.Page;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
 import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.models.ArticleStatsRow;
 
-public interface ArticleRepository extends JpaRepository<Article, Long> {
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-    @Query("SELECT a FROM Article a WHERE " +
-            "(:search IS NULL OR :search = '' OR LOWER(a.name) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
-            "(:onlyLowStock = false OR a.amount <= a.minimumAmount) AND " +
-            "(:categoryFilter IS NULL OR a.category = :categoryFilter)")
-    Page<Article> findArticlesWithFilters(
+public interface ArticleRepository extends JpaRepository<Article, Long>, JpaSpecificationExecutor<Article> {
+
+    String STOCK_AND_CATEGORY_FILTERS = "(:onlyLowStock = false OR a.lowStock = true) AND " +
+            "(:categoryFilter IS NULL OR a.category = :categoryFilter)";
+    //% and _ in the search are matched as themselves, like the ArticleNameIndex does, instead of as wildcards
+    String ESCAPED_SEARCH = "REPLACE(REPLACE(REPLACE(:search, '\\', '\\\\'), '%', '\\%'), '_', '\\_')";
+    String SEARCH_FILTER = "(:search IS NULL OR :search = '' OR LOWER(a.name) LIKE LOWER(CONCAT('%', " + ESCAPED_SEARCH + ", '%')) ESCAPE '\\')";
+    String FILTERS = SEARCH_FILTER + " AND " + STOCK_AND_CATEGORY_FILTERS;
+    //the database can't use the low_stock index for "(:onlyLowStock = false OR a.lowStock = true)" since it depends on a parameter,
+    //so the low-stock list has its own queries that always start with a.lowStock = true
+    String LOW_STOCK_FILTERS = "a.lowStock = true AND " + SEARCH_FILTER + " AND (:categoryFilter IS NULL OR a.category = :categoryFilter)";
+    //Selects the columns straight into an ArticleSnapshot instead of an Article, so hibernate makes no managed entity
+    //(no entity instance, no copy of its state for the dirty check, nothing in the persistence context) for a row that is only read.
+    String SNAPSHOT = "SELECT new se.vgregion.inventory_management_backend.models.ArticleSnapshot(" +
+            "a.id, a.name, a.amount, a.minimumAmount, a.unit, a.category, a.createdAt, a.updatedAt, a.version) ";
+
+    //Returns a Slice instead of a Page, a Page would make spring data run a second COUNT query with the same filters on every call.
+    //The Slice fetches one extra row to know if there is a next page, the totals come from countArticlesWithFilters when they are needed.
+    //Snapshots instead of entities, see SNAPSHOT.
+    @Query(SNAPSHOT + "FROM Article a WHERE " + FILTERS)
+    Slice<ArticleSnapshot> findArticlesWithFilters(
+            @Param("search") String search,
+            @Param("categoryFilter") ECategory categoryFilter,
+            @Param("onlyLowStock") boolean onlyLowStock,
+            Pageable pageable
+    );
+
+    @Query("SELECT COUNT(a) FROM Article a WHERE " + FILTERS)
+    long countArticlesWithFilters(
+            @Param("search") String search,
+            @Param("categoryFilter") ECategory categoryFilter,
+            @Param("onlyLowStock") boolean onlyLowStock
+    );
+
+    //findArticlesWithFilters with onlyLowStock = true, reads the low-stock rows from the (lowStock, name) index instead of the whole table.
+    //Sort by lowStock first to get the rows in index order, see findLowStockSnapshots.
+    @Query(SNAPSHOT + "FROM Article a WHERE " + LOW_STOCK_FILTERS)
+    Slice<ArticleSnapshot> findLowStockArticlesWithFilters(
+            @Param("search") String search,
+            @Param("categoryFilter") ECategory categoryFilter,
+            Pageable pageable
+    );
+
+    @Query("SELECT COUNT(a) FROM Article a WHERE " + LOW_STOCK_FILTERS)
+    long countLowStockArticlesWithFilters(
             @Param("search") String search,
+            @Param("categoryFilter") ECategory categoryFilter
+    );
+
+    //Same as findArticlesWithFilters, but the search has already been resolved to article ids by the ArticleNameIndex,
+    //so the database looks the rows up by primary key instead of running the LIKE over the whole table.
+    @Query(SNAPSHOT + "FROM Article a WHERE a.id IN :ids AND " + STOCK_AND_CATEGORY_FILTERS)
+    Slice<ArticleSnapshot> findArticlesByIdsWithFilters(
+            @Param("ids") Collection<Long> ids,
             @Param("categoryFilter") ECategory categoryFilter,
             @Param("onlyLowStock") boolean onlyLowStock,
             Pageable pageable
     );
-}
\ No newline at end of file
+
+    @Query("SELECT COUNT(a) FROM Article a WHERE a.id IN :ids AND " + STOCK_AND_CATEGORY_FILTERS)
+    long countArticlesByIdsWithFilters(
+            @Param("ids") Collection<Long> ids,
+            @Param("categoryFilter") ECategory categoryFilter,
+            @Param("onlyLowStock") boolean onlyLowStock
+    );
+
+    //Atomic amount changes, done in one statement so concurrent changes to the same article can't overwrite each other.
+    //The auditing listener doesn't run for bulk updates and the entity setters aren't used, so updatedAt, lowStock and version are set here.
+    //a.amount on the right hand side is the value before the update, so the new amount is a.amount +/- :delta there too.
+    //Both return the number of updated rows.
+    //only updates when the new amount still fits in an int, the check is done as a long so it can't overflow itself.
+    //0 updated rows means the article is missing or the amount would be too large
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Article a SET a.amount = a.amount + :delta, a.updatedAt = :now, a.version = a.version + 1, " +
+            "a.lowStock = CASE WHEN a.amount + :delta <= a.minimumAmount THEN true ELSE false END " +
+            "WHERE a.id = :id AND CAST(a.amount AS Long) + :delta <= " + Integer.MAX_VALUE)
+    int addToAmount(@Param("id") Long id, @Param("delta") int delta, @Param("now") LocalDateTime now);
+
+    //only updates when there is enough left, 0 updated rows means the article is missing or the amount is too small
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Article a SET a.amount = a.amount - :delta, a.updatedAt = :now, a.version = a.version + 1, " +
+            "a.lowStock = CASE WHEN a.amount - :delta <= a.minimumAmount THEN true ELSE false END WHERE a.id = :id AND a.amount >= :delta")
+    int subtractFromAmount(@Param("id") Long id, @Param("delta") int delta, @Param("now") LocalDateTime now);
+
+    //PUT as one UPDATE that only changes the article if it still has the version that was read (optimistic locking),
+    //nothing is locked while the user edits. Fields that are null are left as they are.
+    //Returns 0 when someone else changed the article after it was read, the caller decides what happens then.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Article a SET a.name = COALESCE(:name, a.name), a.amount = COALESCE(:amount, a.amount), " +
+            "a.minimumAmount = COALESCE(:minimumAmount, a.minimumAmount), a.unit = COALESCE(:unit, a.unit), " +
+            "a.category = COALESCE(:category, a.category), " +
+            "a.lowStock = CASE WHEN COALESCE(:amount, a.amount) <= COALESCE(:minimumAmount, a.minimumAmount) THEN true ELSE false END, " +
+            "a.updatedAt = :now, a.version = a.version + 1 WHERE a.id = :id AND a.version = :version")
+    int updateIfVersion(
+            @Param("id") Long id,
+            @Param("version") long version,
+            @Param("name") String name,
+            @Param("amount") Integer amount,
+            @Param("minimumAmount") Integer minimumAmount,
+            @Param("unit") EUnit unit,
+            @Param("category") ECategory category,
+            @Param("now") LocalDateTime now
+    );
+
+    //Locks the articles (SELECT ... FOR UPDATE) until the transaction ends, for changes that are checked in java before they are saved.
+    //Ordered by id so that two batches with the same articles always lock them in the same order and can't deadlock.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Article a WHERE a.id IN :ids ORDER BY a.id")
+    List<Article> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    //The low-stock articles in name order, read from idx_article_low_stock_name, so only the k low-stock rows are read.
+    //Ordered by lowStock first even though it is always true, h2 only reads the rows in index order (instead of reading
+    //all of them and sorting) when the ORDER BY starts with the first column of the index.
+    @Query(SNAPSHOT + "FROM Article a WHERE a.lowStock = true ORDER BY a.lowStock, a.name")
+    List<ArticleSnapshot> findLowStockSnapshots(Pageable pageable);
+
+    //findById for reads, as a snapshot instead of a managed entity
+    @Query(SNAPSHOT + "FROM Article a WHERE a.id = :id")
+    Optional<ArticleSnapshot> findSnapshotById(@Param("id") Long id);
+
+    //the articles with these names, used by the import to find the rows that already exist
+    List<Article> findAllByNameIn(Collection<String> names);
+
+    //Totals per category and unit of the articles with an id from fromId to toId, for the reconciliation of the ArticleStatsIndex.
+    //The id range lets the reconciliation count the table in parts, each in its own thread.
+    @Query("SELECT new se.vgregion.inventory_management_backend.models.ArticleStatsRow(" +
+            "a.category, a.unit, COUNT(a), SUM(CASE WHEN a.lowStock = true THEN 1L ELSE 0L END), SUM(CAST(a.amount AS long))) " +
+            "FROM Article a WHERE a.id BETWEEN :fromId AND :toId GROUP BY a.category, a.unit")
+    List<ArticleStatsRow> sumStatsBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT COALESCE(MIN(a.id), 0) FROM Article a")
+    long findMinId();
+
+    @Query("SELECT COALESCE(MAX(a.id), 0) FROM Article a")
+    long findMaxId();
+
+    //every article as a snapshot, used to load the in-memory indexes. Needs a transaction and has to be closed.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SNAPSHOT + "FROM Article a ORDER BY a.id")
+    Stream<ArticleSnapshot> streamAllSnapshots();
+
+    //The articles matching the same filters as findArticlesWithFilters as snapshots, for the export.
+    //Snapshots instead of entities so nothing ends up in the persistence context, it stays empty however many rows are read.
+    //The fetch size makes the jdbc driver get the rows in batches instead of all at once. Needs a transaction and has to be closed.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SNAPSHOT + "FROM Article a WHERE " + FILTERS + " ORDER BY a.id")
+    Stream<ArticleSnapshot> streamSnapshotsWithFilters(
+            @Param("search") String search,
+            @Param("categoryFilter") ECategory categoryFilter,
+            @Param("onlyLowStock") boolean onlyLowStock
+    );
+
+    //Seek (keyset) version of findArticlesWithFilters. Instead of skipping rows with an offset, the query starts right after
+    //the sort key + id of the last row the client saw, so every page costs the same as the first one.
+    //The sort must end with id so that rows with the same sort value still have a stable order.
+    //ids is the search already resolved by the ArticleNameIndex, pass either search or ids.
+    default Window<ArticleSnapshot> scrollArticlesWithFilters(
+            String search,
+            Collection<Long> ids,
+            ECategory categoryFilter,
+            boolean onlyLowStock,
+            Sort sort,
+            int limit,
+            ScrollPosition position
+    ) {
+        return findBy(
+                ArticleSpecifications.withFilters(search, categoryFilter, onlyLowStock).and(ArticleSpecifications.idIn(ids)),
+                query -> query.as(ArticleSnapshot.class).sortBy(sort).limit(limit).scroll(position)
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package se.vgregion.inventory_management_backend.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.models.Article;
+
+import java.util.Collection;
+
+//Specification version of the filters in ArticleRepository.findArticlesWithFilters.
+//The query methods that take a Specification can do things a string @Query can't, like keyset scrolling.
+public final class ArticleSpecifications {
+
+    private ArticleSpecifications() {}
+
+    public static Specification<Article> withFilters(String search, ECategory categoryFilter, boolean onlyLowStock) {
+        return Specification.allOf(nameContains(search), inCategory(categoryFilter), lowStock(onlyLowStock));
+    }
+
+    public static Specification<Article> nameContains(String search) {
+        if (search == null || search.isEmpty()) {
+            return null;
+        }
+        String pattern = "%" + escapeLike(search.toLowerCase()) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")), pattern, '\\');
+    }
+
+    //% and _ are matched as themselves, the same as ArticleRepository.ESCAPED_SEARCH
+    static String escapeLike(String search) {
+        return search.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public static Specification<Article> idIn(Collection<Long> ids) {
+        if (ids == null) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    public static Specification<Article> inCategory(ECategory categoryFilter) {
+        if (categoryFilter == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("category"), categoryFilter);
+    }
+
+    public static Specification<Article> lowStock(boolean onlyLowStock) {
+        if (!onlyLowStock) {
+            return null;
+        }
+        return (root, query, cb) -> cb.isTrue(root.get("lowStock"));
+    }
+}
@@ -0,0 +1,29 @@
+package se.vgregion.inventory_management_backend.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import se.vgregion.inventory_management_backend.models.StockMovement;
+import se.vgregion.inventory_management_backend.models.StockTail;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    //Keyset page of the history of an article, newest first: the movements before the id the last page ended with.
+    //Reads straight from idx_stock_movement_article_id, so a page deep in a long history is as fast as the first one.
+    @Query("SELECT m FROM StockMovement m WHERE m.articleId = :articleId AND m.id < :beforeId ORDER BY m.id DESC")
+    List<StockMovement> findHistory(@Param("articleId") Long articleId, @Param("beforeId") long beforeId, Limit limit);
+
+    //the tails of the articles, the movements that came after their snapshot (all of them for an article without one)
+    @Query("SELECT new se.vgregion.inventory_management_backend.models.StockTail(m.articleId, SUM(m.delta), MAX(m.id)) " +
+            "FROM StockMovement m WHERE m.articleId IN :articleIds " +
+            "AND m.id > COALESCE((SELECT s.lastMovementId FROM StockSnapshot s WHERE s.articleId = m.articleId), 0) " +
+            "GROUP BY m.articleId")
+    List<StockTail> sumTails(@Param("articleIds") Collection<Long> articleIds);
+
+    @Query("SELECT COALESCE(SUM(m.delta), 0) FROM StockMovement m WHERE m.articleId = :articleId AND m.id > :afterId")
+    long sumDeltasAfter(@Param("articleId") Long articleId, @Param("afterId") long afterId);
+}
@@ -0,0 +1,7 @@
+package se.vgregion.inventory_management_backend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import se.vgregion.inventory_management_backend.models.StockSnapshot;
+
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+}
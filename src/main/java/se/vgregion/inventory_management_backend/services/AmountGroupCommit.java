@@ -0,0 +1,258 @@
+package se.vgregion.inventory_management_backend.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.enums.EMovementType;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.models.StockMovement;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Opt-in group commit (inventory.group-commit.enabled=true) for the add/subtract patches, for the bursts of a stock count where
+//every patch would otherwise be its own transaction. The patches are put in a queue and one thread commits them in batches:
+//it takes what is waiting, waits at most inventory.group-commit.max-wait-ms (1) for more, up to inventory.group-commit.max-batch (100),
+//and then applies the whole batch in one transaction like POST /stock-movements does. The articles are locked with one query,
+//the patches are checked and applied in the order they were queued (so the "never below 0" check is the same as one by one) and
+//the changes to the same article end up in one UPDATE, sent in a jdbc batch.
+//Every caller waits for the commit of its batch and gets its own result, the amount right after its patch or its own exception.
+//A patch that fails doesn't stop the others in the batch, only a failing commit fails all of them.
+@Component
+public class AmountGroupCommit {
+
+    private static final Logger log = LoggerFactory.getLogger(AmountGroupCommit.class);
+
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final ArticleRepository articleRepository;
+    private final StockLedger stockLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate batchTransaction;
+    private final LinkedBlockingQueue<Patch> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong patches = new AtomicLong();
+    private volatile boolean stopped;
+    private Thread committer;
+
+    public AmountGroupCommit(
+            @Value("${inventory.group-commit.enabled:false}") boolean enabled,
+            @Value("${inventory.group-commit.max-batch:100}") int maxBatch,
+            @Value("${inventory.group-commit.max-wait-ms:1}") long maxWaitMillis,
+            ArticleRepository articleRepository,
+            StockLedger stockLedger,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.articleRepository = articleRepository;
+        this.stockLedger = stockLedger;
+        this.eventPublisher = eventPublisher;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            committer = Thread.ofPlatform().daemon().name("amount-group-commit").start(this::commitBatches);
+        }
+    }
+
+    //the patches that are waiting are still committed, the ones that come after this are rejected
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        if (committer != null) {
+            committer.join();
+        }
+        failAll(new IllegalStateException("The application is shutting down"));
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public ArticleSnapshot add(Long id, int delta) {
+        return submit(id, delta);
+    }
+
+    public ArticleSnapshot subtract(Long id, int delta) {
+        return submit(id, -delta);
+    }
+
+    //batches committed so far, and the patches that were in them
+    public long batches() {
+        return batches.get();
+    }
+
+    public long patches() {
+        return patches.get();
+    }
+
+    private ArticleSnapshot submit(Long id, int delta) {
+        if (stopped) {
+            throw new IllegalStateException("The application is shutting down");
+        }
+        Patch patch = new Patch(id, delta, new CompletableFuture<>());
+        queue.add(patch);
+        if (stopped && !committer.isAlive()) {
+            //stop() might have failed the waiting patches before this one was queued
+            failAll(new IllegalStateException("The application is shutting down"));
+        }
+        try {
+            return patch.result().get();
+        } catch (ExecutionException e) {
+            //thrown again on the caller's thread, the exception handler turns them into the same answers as without group commit
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the commit", e);
+        }
+    }
+
+    private void commitBatches() {
+        List<Patch> batch = new ArrayList<>(maxBatch);
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                Patch first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                //what piled up while the last batch was committed, then a short wait for more
+                queue.drainTo(batch, maxBatch - batch.size());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    long left = deadline - System.nanoTime();
+                    Patch next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Patch> batch) {
+        Object[] results;
+        try {
+            results = batchTransaction.execute(status -> apply(batch));
+        } catch (RuntimeException e) {
+            log.warn("Could not commit a batch of {} amount patches", batch.size(), e);
+            batch.forEach(patch -> patch.result().completeExceptionally(e));
+            return;
+        }
+        batches.incrementAndGet();
+        patches.addAndGet(batch.size());
+        //only after the commit, so nobody gets an amount that could still be rolled back
+        for (int i = 0; i < batch.size(); i++) {
+            if (results[i] instanceof RuntimeException failure) {
+                batch.get(i).result().completeExceptionally(failure);
+            } else {
+                batch.get(i).result().complete((ArticleSnapshot) results[i]);
+            }
+        }
+    }
+
+    //the result of every patch, its ArticleSnapshot or the exception it failed with
+    private Object[] apply(List<Patch> batch) {
+        Set<Long> ids = new TreeSet<>();
+        for (Patch patch : batch) {
+            ids.add(patch.id());
+        }
+        Map<Long, Article> articles = new HashMap<>();
+        for (Article article : articleRepository.findAllByIdForUpdate(ids)) {
+            articles.put(article.getId(), article);
+        }
+
+        //the article before the first of its patches, for the events
+        Map<Long, ArticleSnapshot> previous = new LinkedHashMap<>();
+        List<StockMovement> movements = new ArrayList<>(batch.size());
+        Object[] results = new Object[batch.size()];
+        int[] amounts = new int[batch.size()];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batch.size(); i++) {
+            Patch patch = batch.get(i);
+            Article article = articles.get(patch.id());
+            if (article == null) {
+                results[i] = new EntityNotFoundException("Article not found with id: " + patch.id());
+                continue;
+            }
+            long newAmount = (long) article.getAmount() + patch.delta();
+            if (newAmount < 0) {
+                results[i] = new IllegalArgumentException("You cant subtract more than total amount!");
+                continue;
+            }
+            if (newAmount > Integer.MAX_VALUE) {
+                results[i] = new IllegalArgumentException("Amount is too large!");
+                continue;
+            }
+            previous.putIfAbsent(patch.id(), ArticleSnapshot.of(article));
+            article.setAmount((int) newAmount);
+            amounts[i] = (int) newAmount;
+            movements.add(new StockMovement(patch.id(), patch.delta() >= 0 ? EMovementType.ADD : EMovementType.SUBTRACT,
+                    patch.delta(), (int) newAmount, now));
+        }
+
+        //flushed here so that updatedAt and the version are set before the snapshots are taken
+        articleRepository.flush();
+        stockLedger.append(movements);
+        Map<Long, ArticleSnapshot> current = new HashMap<>();
+        previous.forEach((id, before) -> {
+            ArticleSnapshot after = ArticleSnapshot.of(articles.get(id));
+            current.put(id, after);
+            eventPublisher.publishEvent(new ArticleChangedEvent(before, after));
+        });
+        for (int i = 0; i < batch.size(); i++) {
+            if (results[i] == null) {
+                results[i] = current.get(batch.get(i).id()).withAmount(amounts[i]);
+            }
+        }
+        return results;
+    }
+
+    private void failAll(RuntimeException failure) {
+        Patch patch;
+        while ((patch = queue.poll()) != null) {
+            patch.result().completeExceptionally(failure);
+        }
+    }
+
+    private record Patch(Long id, int delta, CompletableFuture<ArticleSnapshot> result) {}
+}
@@ -0,0 +1,231 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import se.vgregion.inventory_management_backend.dto.ArticleChangeDTO;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//The server-sent events of GET /api/articles/changes: every committed change to an article (create, PUT, patches, stock movements,
+//import, delete) is sent to every subscriber as a "change" event with an ArticleChangeDTO, so the frontend can update its table
+//instead of polling the list.
+//
+//The change is handed over right after the commit, on the thread that committed, so that thread must never wait for a client.
+//It only puts the change in the pending changes of each subscriber and every subscriber has its own (virtual) thread that sends them.
+//The thread sends everything that is pending in one write, and then waits inventory.changes.batch-interval-ms (100) before the next,
+//only the newest change of an article is kept until then. A subscriber that is slower than the changes gets them coalesced the
+//same way, whatever changed while its last write was on the way is in the next one.
+//When more than inventory.changes.max-pending different articles are waiting the subscriber is dropped: it gets a "resync" event
+//and the stream ends, the frontend then reloads the list and subscribes again.
+//At most inventory.changes.max-subscribers streams are open at once, a stream ends after inventory.changes.timeout-ms.
+//At shutdown every stream is ended before the web server's graceful shutdown starts, that waits for all open requests and
+//a stream would otherwise keep it waiting for the whole server.shutdown timeout.
+@Component
+public class ArticleChangeFeed implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleChangeFeed.class);
+
+    private final int maxSubscribers;
+    private final int maxPending;
+    private final long timeoutMillis;
+    private final long batchIntervalMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running;
+
+    public ArticleChangeFeed(
+            @Value("${inventory.changes.max-subscribers:1000}") int maxSubscribers,
+            @Value("${inventory.changes.max-pending:1000}") int maxPending,
+            @Value("${inventory.changes.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${inventory.changes.batch-interval-ms:100}") long batchIntervalMillis
+    ) {
+        this.maxSubscribers = maxSubscribers;
+        this.maxPending = maxPending;
+        this.timeoutMillis = timeoutMillis;
+        this.batchIntervalMillis = batchIntervalMillis;
+    }
+
+    //a new stream, empty if there are already inventory.changes.max-subscribers or the application is shutting down
+    public Optional<SseEmitter> subscribe() {
+        if (!running || subscribers.size() >= maxSubscribers) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        //ends the stream normally instead of as an error, EventSource reconnects by itself
+        emitter.onTimeout(emitter::complete);
+        Thread.ofVirtual().name("article-changes-sender").start(() -> send(subscriber));
+        return Optional.of(emitter);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onArticleChanged(ArticleChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        ArticleChangeDTO change = ArticleChangeDTO.of(event);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(change);
+        }
+    }
+
+    public int subscribers() {
+        return subscribers.size();
+    }
+
+    //subscribers that were dropped because they couldn't keep up
+    public long dropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    //ends every stream, the sender threads see the closed subscriber and stop
+    @Override
+    public void stop() {
+        running = false;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+            subscriber.emitter.complete();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    //a higher phase is stopped earlier, so this runs before the graceful shutdown waits for the open requests
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE + 1;
+    }
+
+    private void send(Subscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter;
+        try {
+            //sends the headers right away, EventSource ignores comments
+            emitter.send(SseEmitter.event().comment("connected"));
+            while (true) {
+                Pending pending = subscriber.take();
+                if (pending == null) {
+                    return;
+                }
+                //all events in one send, so they are flushed to the client once
+                Set<ResponseBodyEmitter.DataWithMediaType> events = new LinkedHashSet<>();
+                for (ArticleChangeDTO change : pending.changes()) {
+                    events.addAll(SseEmitter.event().name("change").data(change, MediaType.APPLICATION_JSON).build());
+                }
+                if (pending.overflowed()) {
+                    events.addAll(SseEmitter.event().name("resync").data("").build());
+                }
+                emitter.send(events);
+                if (pending.overflowed()) {
+                    emitter.complete();
+                    return;
+                }
+                if (batchIntervalMillis > 0) {
+                    Thread.sleep(batchIntervalMillis);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            //the client has gone, the emitter finds out by itself and calls onError or onCompletion
+            log.debug("Change feed subscriber is gone: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscriber.close();
+        }
+    }
+
+    private record Pending(List<ArticleChangeDTO> changes, boolean overflowed) {}
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        //the newest change of every article that hasn't been sent yet, in the order the articles first changed
+        private final LinkedHashMap<Long, ArticleChangeDTO> pending = new LinkedHashMap<>();
+        private boolean overflowed;
+        private boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(ArticleChangeDTO change) {
+            lock.lock();
+            try {
+                if (closed || overflowed) {
+                    return;
+                }
+                pending.put(change.id(), change);
+                if (pending.size() > maxPending) {
+                    //what is pending is old news once the client reloads the list
+                    overflowed = true;
+                    pending.clear();
+                    dropped.incrementAndGet();
+                }
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //waits for changes, null once the subscriber is closed
+        private Pending take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !overflowed && !closed) {
+                    changed.await();
+                }
+                if (closed) {
+                    return null;
+                }
+                Pending taken = new Pending(new ArrayList<>(pending.values()), overflowed);
+                pending.clear();
+                return taken;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void close() {
+            subscribers.remove(this);
+            lock.lock();
+            try {
+                closed = true;
+                pending.clear();
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package se.vgregion.inventory_management_backend.services;
+
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+//Opaque cursor used by the keyset pagination mode of GET /api/articles.
+//It holds the sort field, sort direction and the sort value + id of the last article on the previous page.
+//The client just sends it back as it is, so the format can change without breaking the frontend.
+public final class ArticleCursor {
+
+    //the fields the keyset mode can sort by, every one of them is combined with id as a tie breaker
+    public static final List<String> SORTABLE_FIELDS = List.of("name", "createdAt", "unit", "amount");
+
+    private final String sortBy;
+    private final boolean descending;
+    private final Long lastId;
+    private final Object lastValue;
+
+    public ArticleCursor(String sortBy, boolean descending, Long lastId, Object lastValue) {
+        this.sortBy = sortBy;
+        this.descending = descending;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    //builds the cursor from the keys that spring data extracted from the last article of a window
+    public static ArticleCursor after(String sortBy, boolean descending, Map<String, Object> keys) {
+        return new ArticleCursor(sortBy, descending, (Long) keys.get("id"), keys.get(sortBy));
+    }
+
+    public static ArticleCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+
+        //the value is last since a name can contain any character, including the separator
+        String[] parts = decoded.split(",", 4);
+        if (parts.length != 4 || !SORTABLE_FIELDS.contains(parts[0])) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+
+        try {
+            return new ArticleCursor(parts[0], "desc".equals(parts[1]), Long.parseLong(parts[2]), parseValue(parts[0], parts[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+    }
+
+    public String encode() {
+        String raw = sortBy + "," + (descending ? "desc" : "asc") + "," + lastId + "," + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //the keys have to be named after the sorted properties, in the same order as the sort
+    public Map<String, Object> toKeys() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(sortBy, lastValue);
+        keys.put("id", lastId);
+        return keys;
+    }
+
+    public boolean matches(String sortBy, boolean descending) {
+        return this.sortBy.equals(sortBy) && this.descending == descending;
+    }
+
+    public String getSortBy() { return sortBy; }
+
+    public boolean isDescending() { return descending; }
+
+    public Long getLastId() { return lastId; }
+
+    public Object getLastValue() { return lastValue; }
+
+    private static Object parseValue(String sortBy, String value) {
+        return switch (sortBy) {
+            case "name" -> value;
+            case "createdAt" -> LocalDateTime.parse(value);
+            case "unit" -> EUnit.valueOf(value);
+            case "amount" -> Integer.parseInt(value);
+            default -> throw new IllegalArgumentException("Cannot sort by " + sortBy);
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ArticleCursor other)) return false;
+        return descending == other.descending
+                && sortBy.equals(other.sortBy)
+                && Objects.equals(lastId, other.lastId)
+                && Objects.equals(lastValue, other.lastValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sortBy, descending, lastId, lastValue);
+    }
+}
@@ -0,0 +1,146 @@
+package se.vgregion.inventory_management_backend.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.OptionalInt;
+import java.util.stream.Stream;
+
+//Export of the whole inventory (or what matches the filters) for the nightly reports.
+//The rows are read with one streaming query and every row is written as soon as it is read, so no page or list is ever built.
+//The csv has the same columns as the import, an export can be imported again.
+@Service
+@Timed("inventory.service")
+public class ArticleExportService {
+
+    static final String CSV_HEADER = "id,name,amount,minimumAmount,unit,category,lowStock,createdAt,updatedAt";
+
+    private final ArticleRepository articleRepository;
+    private final HotStockCounters hotStockCounters;
+    private final ObjectWriter jsonWriter;
+
+    public ArticleExportService(ArticleRepository articleRepository, HotStockCounters hotStockCounters, ObjectMapper objectMapper) {
+        this.articleRepository = articleRepository;
+        this.hotStockCounters = hotStockCounters;
+        //without FLUSH_AFTER_WRITE_VALUE every row would be flushed to the response on its own
+        this.jsonWriter = objectMapper.writerFor(ArticleResponseDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public enum Format {
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() { return mediaType; }
+        public String extension() { return extension; }
+
+        public static Format parse(String format) {
+            for (Format value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + format + ", use csv or ndjson!");
+        }
+    }
+
+    //writes the articles to out and returns how many were written
+    @Transactional(readOnly = true)
+    public long export(OutputStream out, Format format, String search, boolean onlyLowStockArticles, String categoryFilter) throws IOException {
+        try (Stream<ArticleSnapshot> articles = articleRepository.streamSnapshotsWithFilters(
+                ArticleService.normalizeSearch(search),
+                ArticleService.parseCategory(categoryFilter),
+                onlyLowStockArticles
+        )) {
+            return format == Format.CSV ? writeCsv(out, articles.iterator()) : writeNdjson(out, articles.iterator());
+        }
+    }
+
+    private long writeCsv(OutputStream out, Iterator<ArticleSnapshot> articles) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long count = 0;
+        while (articles.hasNext()) {
+            ArticleSnapshot article = live(articles.next());
+            writer.write(String.valueOf(article.id()));
+            writer.write(',');
+            writeCsvValue(writer, article.name());
+            writer.write(',');
+            writer.write(String.valueOf(article.amount()));
+            writer.write(',');
+            writer.write(String.valueOf(article.minimumAmount()));
+            writer.write(',');
+            writer.write(article.unit() == null ? "" : article.unit().name());
+            writer.write(',');
+            writer.write(article.category() == null ? "" : article.category().name());
+            writer.write(',');
+            writer.write(String.valueOf(article.lowStock()));
+            writer.write(',');
+            writer.write(article.createdAt() == null ? "" : article.createdAt().toString());
+            writer.write(',');
+            writer.write(article.updatedAt() == null ? "" : article.updatedAt().toString());
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private long writeNdjson(OutputStream out, Iterator<ArticleSnapshot> articles) throws IOException {
+        try (JsonGenerator generator = jsonWriter.createGenerator(out)) {
+            //the generator must not close the response, the servlet container does that
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            long count = 0;
+            while (articles.hasNext()) {
+                jsonWriter.writeValue(generator, new ArticleResponseDTO(live(articles.next())));
+                generator.writeRaw('\n');
+                count++;
+            }
+            return count;
+        }
+    }
+
+    //articles in hot counter mode are exported with their live amount, like getArticleById shows them
+    private ArticleSnapshot live(ArticleSnapshot article) {
+        OptionalInt liveAmount = hotStockCounters.liveAmount(article.id());
+        return liveAmount.isPresent() ? article.withAmount(liveAmount.getAsInt()) : article;
+    }
+
+    //names with commas, quotes or line breaks are quoted, quotes inside are doubled
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
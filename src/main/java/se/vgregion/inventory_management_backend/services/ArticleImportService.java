@@ -0,0 +1,301 @@
+package se.vgregion.inventory_management_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleImportSummaryDTO;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EMovementType;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.models.StockMovement;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+//Bulk import of articles from csv or ndjson (one json object per line), for when a new healthcare center is onboarded.
+//The body is read line by line and saved in chunks of CHUNK_SIZE rows, one transaction per chunk,
+//so the import itself only keeps one chunk in memory. What does grow with the file is what is kept per article anyway: the
+//in-memory indexes and the ids the stock ledger compacts on its next run. A failure halfway keeps the chunks that were already saved.
+//Rows are validated with the same rules as POST /api/articles and an article with a name that already exists is updated instead.
+@Service
+@Timed("inventory.service")
+public class ArticleImportService {
+
+    static final int CHUNK_SIZE = 1_000;
+    static final int MAX_LISTED_ERRORS = 100;
+    //a quoted value can span several lines, a quote that is never closed stops here instead of reading the rest of the file into one row
+    static final int MAX_CSV_ROW_LENGTH = 64 * 1024;
+    static final List<String> CSV_COLUMNS = List.of("name", "amount", "minimumAmount", "unit", "category");
+
+    private final ArticleRepository articleRepository;
+    private final HotStockCounters hotStockCounters;
+    private final StockLedger stockLedger;
+    private final Validator validator;
+    private final ObjectReader ndjsonReader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+
+    public ArticleImportService(
+            ArticleRepository articleRepository,
+            HotStockCounters hotStockCounters,
+            StockLedger stockLedger,
+            Validator validator,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.articleRepository = articleRepository;
+        this.hotStockCounters = hotStockCounters;
+        this.stockLedger = stockLedger;
+        this.validator = validator;
+        this.ndjsonReader = objectMapper.readerFor(CreateArticleDTO.class);
+        this.eventPublisher = eventPublisher;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    //the first line is the header with the columns name, amount, minimumAmount, unit and category in any order.
+    //values can be quoted ("Gloves, nitrile") and a quoted value can span several lines, like the export writes names with line breaks.
+    public ArticleImportSummaryDTO importCsv(Reader body) throws IOException {
+        BufferedReader reader = new BufferedReader(body);
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("The csv file is empty!");
+        }
+        List<String> headerColumns = splitCsvLine(header.strip());
+        int[] positions = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            positions[i] = headerColumns.indexOf(CSV_COLUMNS.get(i));
+            if (positions[i] < 0) {
+                throw new IllegalArgumentException("The csv header is missing the column " + CSV_COLUMNS.get(i) + "!");
+            }
+        }
+
+        return importRows(reader, 2, true, line -> {
+            List<String> values = splitCsvLine(line);
+            if (values.size() != headerColumns.size()) {
+                throw new IllegalArgumentException("Expected " + headerColumns.size() + " values but got " + values.size() + "!");
+            }
+            return new CreateArticleDTO(
+                    values.get(positions[0]),
+                    parseInt(values.get(positions[1]), "amount"),
+                    parseInt(values.get(positions[2]), "minimumAmount"),
+                    parseEnum(EUnit.class, values.get(positions[3]), "unit"),
+                    parseEnum(ECategory.class, values.get(positions[4]), "category")
+            );
+        });
+    }
+
+    //one CreateArticleDTO as json per line
+    public ArticleImportSummaryDTO importNdjson(Reader body) throws IOException {
+        return importRows(new BufferedReader(body), 1, false, ndjsonReader::readValue);
+    }
+
+    private ArticleImportSummaryDTO importRows(BufferedReader reader, long firstLine, boolean csv, RowParser parser) throws IOException {
+        //changes that were only counted in memory are written first, otherwise they would be added on top of the imported amounts
+        hotStockCounters.flush();
+
+        Summary summary = new Summary();
+        //by name, every name is only once in a chunk
+        Map<String, CreateArticleDTO> chunk = new LinkedHashMap<>();
+        long lineNumber = firstLine - 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            long rowLine = lineNumber;
+            if (line.isBlank()) {
+                continue;
+            }
+            //an odd number of quotes means the line ends inside a quoted value, which goes on on the next line
+            while (csv && openQuote(line) && line.length() < MAX_CSV_ROW_LENGTH) {
+                String next = reader.readLine();
+                if (next == null) {
+                    break;
+                }
+                lineNumber++;
+                line = line + '\n' + next;
+            }
+            CreateArticleDTO row;
+            try {
+                row = parser.parse(line.strip());
+            } catch (Exception e) {
+                summary.reject(rowLine, "Could not read the row: " + e.getMessage());
+                continue;
+            }
+            Set<ConstraintViolation<CreateArticleDTO>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                summary.reject(rowLine, violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(" ")));
+                continue;
+            }
+
+            //the same name again is saved after the chunk with the earlier row, so the earlier row is inserted (or updated) and this one
+            //updates it, like when the two rows end up in different chunks. Every row is then counted once, as what it did in the database.
+            if (chunk.containsKey(row.getName())) {
+                saveChunk(chunk, summary);
+                chunk.clear();
+            }
+            chunk.put(row.getName(), row);
+            if (chunk.size() == CHUNK_SIZE) {
+                saveChunk(chunk, summary);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saveChunk(chunk, summary);
+        }
+
+        return new ArticleImportSummaryDTO(summary.inserted, summary.updated, summary.rejected, summary.errors);
+    }
+
+    //One query finds the articles that already exist, they are updated and the rest is inserted.
+    //Hibernate sends both the inserts and the updates in jdbc batches (see JpaBatchingConfig).
+    //A new article and a changed amount are SET movements in the StockLedger, appended after the flush has written (and locked) the rows.
+    private void saveChunk(Map<String, CreateArticleDTO> chunk, Summary summary) {
+        chunkTransaction.executeWithoutResult(status -> {
+            Map<String, Article> existing = new HashMap<>();
+            for (Article article : articleRepository.findAllByNameIn(chunk.keySet())) {
+                existing.put(article.getName(), article);
+            }
+
+            List<ArticleSnapshot> previous = new ArrayList<>(chunk.size());
+            List<Article> articles = new ArrayList<>(chunk.size());
+            for (CreateArticleDTO row : chunk.values()) {
+                Article article = existing.get(row.getName());
+                if (article == null) {
+                    article = new Article(row.getName(), row.getAmount(), row.getMinimumAmount(), row.getUnit(), row.getCategory());
+                    articleRepository.save(article);
+                    previous.add(null);
+                } else {
+                    previous.add(ArticleSnapshot.of(article));
+                    article.setAmount(row.getAmount());
+                    article.setMinimumAmount(row.getMinimumAmount());
+                    article.setUnit(row.getUnit());
+                    article.setCategory(row.getCategory());
+                }
+                articles.add(article);
+            }
+            articleRepository.flush();
+
+            LocalDateTime now = LocalDateTime.now();
+            List<StockMovement> movements = new ArrayList<>(articles.size());
+            for (int i = 0; i < articles.size(); i++) {
+                Article article = articles.get(i);
+                int before = previous.get(i) == null ? 0 : previous.get(i).amount();
+                if (previous.get(i) == null || article.getAmount() != before) {
+                    movements.add(new StockMovement(article.getId(), EMovementType.SET, article.getAmount() - before, article.getAmount(), now));
+                }
+            }
+            stockLedger.append(movements);
+
+            for (int i = 0; i < articles.size(); i++) {
+                eventPublisher.publishEvent(new ArticleChangedEvent(previous.get(i), ArticleSnapshot.of(articles.get(i))));
+            }
+            summary.inserted += chunk.size() - existing.size();
+            summary.updated += existing.size();
+        });
+    }
+
+    //true when the line ends inside a quoted value, a "" inside a value counts twice and doesn't change it
+    static boolean openQuote(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 == 1;
+    }
+
+    //splits one csv row on commas, a value in double quotes can contain commas, line breaks and "" for a quote
+    static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().strip());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Missing closing quote!");
+        }
+        values.add(value.toString().strip());
+        return values;
+    }
+
+    //empty values become null, so that the validation reports them as missing
+    private static Integer parseInt(String value, String column) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String column) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + column + ": " + value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        CreateArticleDTO parse(String line) throws Exception;
+    }
+
+    private static final class Summary {
+        private long inserted;
+        private long updated;
+        private long rejected;
+        private final List<ArticleImportSummaryDTO.RejectedRow> errors = new ArrayList<>();
+
+        private void reject(long line, String error) {
+            rejected++;
+            if (errors.size() < MAX_LISTED_ERRORS) {
+                errors.add(new ArticleImportSummaryDTO.RejectedRow(line, error));
+            }
+        }
+    }
+}
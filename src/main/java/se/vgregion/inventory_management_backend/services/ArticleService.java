@@ -1,29 +1,125 @@
 package se.vgregion.inventory_management_backend.services;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.cache.ArticleCache;
+import se.vgregion.inventory_management_backend.cache.ArticleCountCache;
+import se.vgregion.inventory_management_backend.cache.ArticlePageCache;
+import se.vgregion.inventory_management_backend.cache.InventoryVersion;
+import se.vgregion.inventory_management_backend.dto.CacheStatsDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleCursorPageDTO;
 import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleStatsDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleSuggestionDTO;
 import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
 import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.StockLedgerPageDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementResultDTO;
 import se.vgregion.inventory_management_backend.dto.UpdateArticleDTO;
 import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EMovementType;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+import se.vgregion.inventory_management_backend.exception.ArticleVersionConflictException;
+import se.vgregion.inventory_management_backend.index.ArticleNameIndex;
+import se.vgregion.inventory_management_backend.index.ArticleStatsIndex;
+import se.vgregion.inventory_management_backend.index.ArticleSuggestIndex;
 import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.models.StockMovement;
 import se.vgregion.inventory_management_backend.repository.ArticleRepository;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeSet;
+
 //Transactional annotation makes it so that all operations either fully succeed or fully fail, preventing partial updates
+//Every change publishes an ArticleChangedEvent, the in-memory indexes are updated from those events once the transaction has committed.
+//Every public method is timed in inventory_service (see MetricsConfig).
+//Every change of an amount (add, subtract, set) is also appended to the StockLedger in the same transaction.
 @Service
 @Transactional
+@Timed("inventory.service")
 public class ArticleService {
 
+    //above this many matches the search goes to the database with LIKE instead of an IN list of ids
+    static final int MAX_SEARCH_IDS = 2_000;
+    //a PUT without If-Match that keeps losing to other changes gives up after this many tries with a 409
+    static final int MAX_UPDATE_ATTEMPTS = 5;
+
     private final ArticleRepository articleRepository;
+    private final ArticleCountCache articleCountCache;
+    private final ArticleCache articleCache;
+    private final ArticlePageCache articlePageCache;
+    private final InventoryVersion inventoryVersion;
+    private final ArticleNameIndex articleNameIndex;
+    private final ArticleSuggestIndex articleSuggestIndex;
+    private final ArticleStatsIndex articleStatsIndex;
+    private final HotStockCounters hotStockCounters;
+    private final StockLedger stockLedger;
+    private final AmountGroupCommit amountGroupCommit;
+    private final SlowQueryLog slowQueryLog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    //the list pages that are being loaded right now, see getAllArticlesPaginated
+    private final SingleFlight<ListQuery, Page<ArticleResponseDTO>> pageLoads = new SingleFlight<>();
 
-    public ArticleService (ArticleRepository articleRepository) {
+    public ArticleService (
+            ArticleRepository articleRepository,
+            ArticleCountCache articleCountCache,
+            ArticleCache articleCache,
+            ArticlePageCache articlePageCache,
+            InventoryVersion inventoryVersion,
+            ArticleNameIndex articleNameIndex,
+            ArticleSuggestIndex articleSuggestIndex,
+            ArticleStatsIndex articleStatsIndex,
+            HotStockCounters hotStockCounters,
+            StockLedger stockLedger,
+            AmountGroupCommit amountGroupCommit,
+            SlowQueryLog slowQueryLog,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager
+    ) {
         this.articleRepository = articleRepository;
+        this.articleCountCache = articleCountCache;
+        this.articleCache = articleCache;
+        this.articlePageCache = articlePageCache;
+        this.inventoryVersion = inventoryVersion;
+        this.articleNameIndex = articleNameIndex;
+        this.articleSuggestIndex = articleSuggestIndex;
+        this.articleStatsIndex = articleStatsIndex;
+        this.hotStockCounters = hotStockCounters;
+        this.stockLedger = stockLedger;
+        this.amountGroupCommit = amountGroupCommit;
+        this.slowQueryLog = slowQueryLog;
+        this.eventPublisher = eventPublisher;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
     }
 
     // POST Article
@@ -38,14 +134,23 @@ public class ArticleService {
         );
 
         Article savedArticle = articleRepository.save(article);
+        //the first movement of an article sets its amount from 0
+        stockLedger.append(new StockMovement(savedArticle.getId(), EMovementType.SET, savedArticle.getAmount(), savedArticle.getAmount(),
+                LocalDateTime.now()));
+        eventPublisher.publishEvent(new ArticleChangedEvent(null, ArticleSnapshot.of(savedArticle)));
         return new ArticleResponseDTO(savedArticle);
     }
 
     // GET ALL Articles, with pagination always enabled and optional search function,
-    // marked with transactional (readonly true) which improves efficiency since spring boot starts the transaction in read-only mode
+    // the database part runs in a read-only transaction which improves efficiency since spring boot starts the transaction in read-only mode
     // you can also sort by fields and decide whether they should be sorted in ascending or descending order.
     // in the frontend im currently only making use of ordering by name, createAt and unit
-    @Transactional(readOnly = true)
+    // The total number of articles comes from a short lived cache (see ArticleCountCache), so most requests only run one query.
+    // Whole pages are cached in the ArticlePageCache until the next change to the inventory, a cached page needs no transaction at all.
+    // When a page isn't cached (right after a change, when the dashboards open at shift change) the identical requests that come
+    // while it is being read share that one read instead of all running the same queries (see SingleFlight). The inventory version
+    // is part of the key, so a request never gets a page that was started before a change it has already seen.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<ArticleResponseDTO> getAllArticlesPaginated(
             int page,
             int size,
@@ -55,94 +160,502 @@ public class ArticleService {
             String sortBy,
             String sortDir
     ) {
-        Sort sort = sortDir.equalsIgnoreCase("desc")
-                ? Sort.by(sortBy).descending()
-                : Sort.by(sortBy).ascending();
+        String normalizedSearch = normalizeSearch(search);
+        ECategory categoryEnum = parseCategory(categoryFilter);
+
+        return articlePageCache.getPage(normalizedSearch, categoryEnum, onlyLowStockArticles, sortBy, sortDir, page, size,
+                version -> pageLoads.load(
+                        new ListQuery(version, normalizedSearch == null ? null : normalizedSearch.toLowerCase(), categoryEnum,
+                                onlyLowStockArticles, sortBy, sortDir.toLowerCase(), page, size),
+                        () -> readTransaction.execute(status -> loadPage(page, size, normalizedSearch, onlyLowStockArticles, categoryEnum, sortBy, sortDir))));
+    }
+
+    // list pages that were read from the database, and requests that got a page another request was already reading
+    public long getPageLoads() {
+        return pageLoads.loads();
+    }
+
+    public long getSharedPageLoads() {
+        return pageLoads.shared();
+    }
+
+    //the search and sort direction are case insensitive like in the ArticlePageCache
+    private record ListQuery(long version, String search, ECategory categoryFilter, boolean onlyLowStock, String sortBy, String sortDir,
+                             int page, int size) {}
+
+    private Page<ArticleResponseDTO> loadPage(
+            int page,
+            int size,
+            String normalizedSearch,
+            boolean onlyLowStockArticles,
+            ECategory categoryEnum,
+            String sortBy,
+            String sortDir
+    ) {
+        Pageable pageable = PageRequest.of(page, size, toSort(sortBy, sortDir));
+
+        List<Long> searchIds = resolveSearch(normalizedSearch);
+        Slice<ArticleSnapshot> articles = findArticles(normalizedSearch, searchIds, categoryEnum, onlyLowStockArticles, pageable);
+
+        //the slice already tells how many articles there are at least, a cached count that is older than that is raised to it.
+        //on the last page the total is known without counting at all, getPage only calls the supplier when it has to.
+        long knownMinimum = pageable.getOffset() + articles.getNumberOfElements() + (articles.hasNext() ? 1 : 0);
+        return PageableExecutionUtils.getPage(
+                toResponseDTOs(articles.getContent()),
+                pageable,
+                () -> Math.max(knownMinimum, countArticles(normalizedSearch, searchIds, categoryEnum, onlyLowStockArticles))
+        );
+    }
+
+    // GET ALL Articles without totals (withTotals=false). Only one query is run and the response only says if there is a next page,
+    // useful for lists with infinite scrolling that never show the total number of pages.
+    @Transactional(readOnly = true)
+    public Slice<ArticleResponseDTO> getArticlesWithoutTotals(
+            int page,
+            int size,
+            String search,
+            boolean onlyLowStockArticles,
+            String categoryFilter,
+            String sortBy,
+            String sortDir
+    ) {
+        Pageable pageable = PageRequest.of(page, size, toSort(sortBy, sortDir));
+
+        String normalizedSearch = normalizeSearch(search);
+        Slice<ArticleSnapshot> articles = findArticles(
+                normalizedSearch,
+                resolveSearch(normalizedSearch),
+                parseCategory(categoryFilter),
+                onlyLowStockArticles,
+                pageable
+        );
 
-        Pageable pageable = PageRequest.of(page, size, sort);
+        return new SliceImpl<>(toResponseDTOs(articles.getContent()), articles.getPageable(), articles.hasNext());
+    }
+
+    // GET ALL Articles with keyset (cursor) pagination instead of page numbers.
+    // With offset paging the database still has to read and throw away every row before the page, so deep pages get slower and slower.
+    // Here the query continues right after the last article of the previous page, which makes page 10 000 as cheap as page 1.
+    // An empty cursor means the first page. The cursor remembers the sorting, so it cant be reused with another sortBy or sortDir.
+    @Transactional(readOnly = true)
+    public ArticleCursorPageDTO getArticlesByCursor(
+            String cursor,
+            int size,
+            String search,
+            boolean onlyLowStockArticles,
+            String categoryFilter,
+            String sortBy,
+            String sortDir
+    ) {
+        if (!ArticleCursor.SORTABLE_FIELDS.contains(sortBy)) {
+            throw new IllegalArgumentException("Cursor pagination can only sort by " + String.join(", ", ArticleCursor.SORTABLE_FIELDS));
+        }
+        boolean descending = sortDir.equalsIgnoreCase("desc");
 
-        ECategory categoryEnum = null;
-        if (categoryFilter != null && !categoryFilter.isBlank() && !"ALL".equalsIgnoreCase(categoryFilter)) {
-            try {
-                categoryEnum = ECategory.valueOf(categoryFilter.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                categoryEnum = null;
+        KeysetScrollPosition position = ScrollPosition.keyset();
+        if (cursor != null && !cursor.isBlank()) {
+            ArticleCursor previous = ArticleCursor.decode(cursor);
+            if (!previous.matches(sortBy, descending)) {
+                throw new IllegalArgumentException("The cursor was created with another sorting, start over without a cursor!");
             }
+            position = ScrollPosition.forward(previous.toKeys());
         }
 
-        Page<Article> articles = articleRepository.findArticlesWithFilters(
-                (search != null && !search.trim().isEmpty()) ? search.trim() : null,
-                categoryEnum,
+        //id is always the last sort key so that articles with the same value (same unit for example) keep a stable order
+        Sort sort = descending
+                ? Sort.by(sortBy).descending().and(Sort.by("id").descending())
+                : Sort.by(sortBy).ascending().and(Sort.by("id").ascending());
+
+        String normalizedSearch = normalizeSearch(search);
+        List<Long> searchIds = resolveSearch(normalizedSearch);
+        if (searchIds != null && searchIds.isEmpty()) {
+            return new ArticleCursorPageDTO(List.of(), size, false, null);
+        }
+
+        Window<ArticleSnapshot> window = articleRepository.scrollArticlesWithFilters(
+                searchIds == null ? normalizedSearch : null,
+                searchIds,
+                parseCategory(categoryFilter),
                 onlyLowStockArticles,
-                pageable
+                sort,
+                size,
+                position
+        );
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            nextCursor = ArticleCursor.after(sortBy, descending, last.getKeys()).encode();
+        }
+
+        return new ArticleCursorPageDTO(
+                toResponseDTOs(window.getContent()),
+                size,
+                window.hasNext(),
+                nextCursor
         );
+    }
 
-        return articles.map(ArticleResponseDTO::new);
+    // GET name suggestions for the search box, answered from the ArticleSuggestIndex without touching the database.
+    // NOT_SUPPORTED so that no transaction (and no database connection) is started for it.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ArticleSuggestionDTO> suggestArticles(String prefix, int limit) {
+        return articleSuggestIndex.suggest(prefix.trim(), limit);
     }
 
-    // GET Article by id
+    // GET totals per category and unit
+    // Read from the running totals in the ArticleStatsIndex, which every change (create, update, patch, delete, import) adjusts.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ArticleStatsDTO getStats() {
+        return articleStatsIndex.stats();
+    }
+
+    // GET low-stock articles
+    // Reads only the low-stock rows through the (lowStock, name) index, so it costs the same with 100 or 1M articles in the table.
+    // In hot counter mode the list is the one in the database, so it can be up to one flush interval behind.
     @Transactional(readOnly = true)
+    public List<ArticleResponseDTO> getLowStockArticles(int limit) {
+        return toResponseDTOs(articleRepository.findLowStockSnapshots(PageRequest.of(0, limit)));
+    }
+
+    // GET Article by id
+    // Read through the ArticleCache, on a hit no transaction is started and the database isn't touched at all.
+    // in hot counter mode the amount in the database can be behind, the live amount from the counters is shown instead
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ArticleResponseDTO getArticleById(Long id) {
-        return new ArticleResponseDTO(articleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id)));
+        return new ArticleResponseDTO(cachedArticle(id));
+    }
+
+    // Version of an article for the ETag of GET /api/articles/{id}, changes whenever the article does.
+    // Read through the ArticleCache like getArticleById, so checking an unchanged article usually doesn't touch the database
+    // and no DTO is made.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getArticleVersion(Long id) {
+        ArticleSnapshot article = cachedArticle(id);
+        return versionTag(article.version(), article.amount());
+    }
+
+    // The version column and the amount, the live amount in hot counter mode changes without the version changing.
+    public static String versionTag(long version, int amount) {
+        return version + "-" + amount;
+    }
+
+    // The version column from a versionTag, null if it isn't one
+    public static Long versionFromTag(String tag) {
+        int dash = tag.indexOf('-');
+        try {
+            return Long.parseLong(dash < 0 ? tag : tag.substring(0, dash));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Version of the whole inventory for the ETag of the list responses, it changes with every committed change.
+    // Has to be read before the page is, so a change during the read gives the page an ETag that is already old.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getInventoryVersion() {
+        return inventoryVersion.tag();
+    }
+
+    private ArticleSnapshot cachedArticle(Long id) {
+        ArticleSnapshot article = articleCache.get(id, articleRepository::findSnapshotById)
+                .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+        OptionalInt liveAmount = hotStockCounters.liveAmount(id);
+        return liveAmount.isPresent() ? article.withAmount(liveAmount.getAsInt()) : article;
+    }
+
+    public CacheStatsDTO getArticleCacheStats() {
+        return articleCache.stats();
+    }
+
+    public CacheStatsDTO getPageCacheStats() {
+        return articlePageCache.stats();
+    }
+
+    // GET the stock movements of an article, newest first, with keyset paging on the movement id like the cursor pagination above.
+    // Send the nextBefore of a page as before to get the next one. The movements of a deleted article stay in the ledger.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public StockLedgerPageDTO getStockMovements(Long id, Long before, int size) {
+        //a 404 for an unknown article instead of an empty history, read through the ArticleCache
+        cachedArticle(id);
+        return stockLedger.history(id, before, size);
     }
 
     // DELETE Article
     public void deleteArticle(Long id) {
-        if (!articleRepository.existsById(id)) {
-            throw new EntityNotFoundException("Article not found with id: " + id);
-        }
-        articleRepository.deleteById(id);
+        Article existingArticle = articleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+
+        articleRepository.delete(existingArticle);
+        eventPublisher.publishEvent(new ArticleChangedEvent(ArticleSnapshot.of(existingArticle), null));
     }
 
     // PUT update article
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ArticleResponseDTO updateArticle(Long id, UpdateArticleDTO updateArticleDTO) {
-        Article existingArticle = articleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+        return updateArticle(id, updateArticleDTO, null);
+    }
 
-        if (updateArticleDTO.getUnit() != null) {
-            existingArticle.setUnit(updateArticleDTO.getUnit());
-        }
-        if (updateArticleDTO.getCategory() != null) {
-            existingArticle.setCategory(updateArticleDTO.getCategory());
-        }
-        if (updateArticleDTO.getName() != null) {
-            existingArticle.setName(updateArticleDTO.getName());
-        }
-        //since amount and minimumAmount are Integer types in the UpdateArticleDTOs, they are nullable, unlike primitive int types which cant be nullable.
-        //This is useful since you can now ensure that a user has to type an amount and minimum amount and that it won't automatically be  the value 0.
-        //You can still assign the value 0.
-        //The Article model itself (the one that is actually saved) still uses int
-        //which means that memory is still optimized, since int type uses only 4 bytes compared to Integer which uses 16.
+    // PUT update article, only if it is still at expectedVersion (from the If-Match header) when that isn't null.
+    // Optimistic locking: the article is read, compared and then changed with one UPDATE ... WHERE version = the version that was read,
+    // so no row is locked while waiting and two edits of the same article can't both go through, the second one gets a 412.
+    // Without If-Match the update is tried again on the new version instead (last write wins, like before), the UPDATE
+    // only fails when another change committed in between so one of them always gets through. After MAX_UPDATE_ATTEMPTS lost races
+    // it gives up with a 409 instead of holding its connection while the article keeps changing.
+    // Either way the previous snapshot in the event is exactly the version that was overwritten, so the indexes stay right.
+    // In hot counter mode the changes that aren't flushed yet are written first, so the previous amount below is the real one.
+    // The flush commits on its own, it runs before the update's transaction is opened so a request never holds two connections.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ArticleResponseDTO updateArticle(Long id, UpdateArticleDTO updateArticleDTO, Long expectedVersion) {
         if (updateArticleDTO.getAmount() != null) {
-            existingArticle.setAmount(updateArticleDTO.getAmount());
+            hotStockCounters.flush(id);
         }
-        if (updateArticleDTO.getMinimumAmount() != null) {
-            existingArticle.setMinimumAmount(updateArticleDTO.getMinimumAmount());
+        return writeTransaction.execute(status -> updateArticleInTransaction(id, updateArticleDTO, expectedVersion));
+    }
+
+    private ArticleResponseDTO updateArticleInTransaction(Long id, UpdateArticleDTO updateArticleDTO, Long expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            Article existingArticle = articleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+            if (expectedVersion != null && existingArticle.getVersion() != expectedVersion) {
+                throw versionConflict(id, expectedVersion, existingArticle.getVersion());
+            }
+            ArticleSnapshot previous = ArticleSnapshot.of(existingArticle);
+
+            //since amount and minimumAmount are Integer types in the UpdateArticleDTOs, they are nullable, unlike primitive int types which cant be nullable.
+            //This is useful since you can now ensure that a user has to type an amount and minimum amount and that it won't automatically be  the value 0.
+            //You can still assign the value 0.
+            //The Article model itself (the one that is actually saved) still uses int
+            //which means that memory is still optimized, since int type uses only 4 bytes compared to Integer which uses 16.
+            //null fields are kept as they are by the UPDATE
+            int updated = articleRepository.updateIfVersion(
+                    id,
+                    previous.version(),
+                    updateArticleDTO.getName(),
+                    updateArticleDTO.getAmount(),
+                    updateArticleDTO.getMinimumAmount(),
+                    updateArticleDTO.getUnit(),
+                    updateArticleDTO.getCategory(),
+                    LocalDateTime.now()
+            );
+            if (updated == 1) {
+                //the UPDATE cleared the persistence context, so this reads the row as it was written
+                Article updatedArticle = articleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+                if (updatedArticle.getAmount() != previous.amount()) {
+                    stockLedger.append(new StockMovement(id, EMovementType.SET, updatedArticle.getAmount() - previous.amount(),
+                            updatedArticle.getAmount(), updatedArticle.getUpdatedAt()));
+                }
+                eventPublisher.publishEvent(new ArticleChangedEvent(previous, ArticleSnapshot.of(updatedArticle)));
+                return new ArticleResponseDTO(updatedArticle);
+            }
+            if (expectedVersion != null) {
+                throw versionConflict(id, expectedVersion, null);
+            }
+            if (attempt == MAX_UPDATE_ATTEMPTS) {
+                throw new ObjectOptimisticLockingFailureException(Article.class, id);
+            }
         }
+    }
 
-        articleRepository.save(existingArticle);
-        return new ArticleResponseDTO(existingArticle);
+    private static ArticleVersionConflictException versionConflict(Long id, long expectedVersion, Long currentVersion) {
+        return new ArticleVersionConflictException("Article " + id + " has been changed by someone else since version " + expectedVersion
+                + (currentVersion == null ? "" : " (it is at version " + currentVersion + " now)") + ", get it again and retry the update");
     }
 
     // PATCH Article amount, add. I have two separate endpoints for adding or subtrtacting, following the single responibility principle.
     // This improves readability and also makes the code less susceptible to logical errors.
+    // The amount is changed with one UPDATE in the database (amount = amount + delta) instead of reading it, changing it in java and saving it.
+    // With read-modify-write two stations scanning at the same time could both read 10, add 1 and save 11, so one of the changes was lost.
+    // In hot counter mode the change is only made in memory (see HotStockCounters), so these two don't start a transaction themselves.
+    // With group commit the patch is committed together with the other patches that arrive at the same time (see AmountGroupCommit).
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ArticleResponseDTO patchArticleAmountAdd(Long id, PatchAmountDTO patchAmountDTO) {
-        Article exisingArticle = articleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
-
-        exisingArticle.setAmount(patchAmountDTO.getAmount() + exisingArticle.getAmount());
+        int delta = patchAmountDTO.getAmount();
+        if (hotStockCounters.handles(id)) {
+            return new ArticleResponseDTO(hotStockCounters.add(id, delta));
+        }
+        if (amountGroupCommit.enabled()) {
+            return new ArticleResponseDTO(amountGroupCommit.add(id, delta));
+        }
 
-        articleRepository.save(exisingArticle);
-        return new ArticleResponseDTO(exisingArticle);
+        return writeTransaction.execute(status -> {
+            if (articleRepository.addToAmount(id, delta, LocalDateTime.now()) == 0) {
+                //no row was updated, either the article doesn't exist or the amount would be too large
+                if (!articleRepository.existsById(id)) {
+                    throw new EntityNotFoundException("Article not found with id: " + id);
+                }
+                throw new IllegalArgumentException("Amount is too large!");
+            }
+            return publishAmountChange(id, EMovementType.ADD, delta);
+        });
     }
 
     // PATCH Article amount, subtract
+    // The check that there is enough left is part of the UPDATE (AND amount >= delta), so two concurrent subtractions can't both pass it.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ArticleResponseDTO patchArticleAmountRemove(Long id, PatchAmountDTO patchAmountDTO) {
-        Article exisingArticle = articleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+        int delta = patchAmountDTO.getAmount();
+        if (hotStockCounters.handles(id)) {
+            return new ArticleResponseDTO(hotStockCounters.subtract(id, delta));
+        }
+        if (amountGroupCommit.enabled()) {
+            return new ArticleResponseDTO(amountGroupCommit.subtract(id, delta));
+        }
+
+        return writeTransaction.execute(status -> {
+            if (articleRepository.subtractFromAmount(id, delta, LocalDateTime.now()) == 0) {
+                //no row was updated, either the article doesn't exist or there wasn't enough left
+                if (!articleRepository.existsById(id)) {
+                    throw new EntityNotFoundException("Article not found with id: " + id);
+                }
+                throw new IllegalArgumentException("You cant subtract more than total amount!");
+            }
+            return publishAmountChange(id, EMovementType.SUBTRACT, -delta);
+        });
+    }
+
+    // POST many amount changes at once, from the receiving and dispensing stations. Everything is done in one transaction:
+    // the articles are loaded and locked with one query, the movements are checked and applied in java in the order they were sent
+    // and hibernate writes the changed articles with batched UPDATEs when the transaction flushes (see JpaBatchingConfig).
+    // A movement that fails (unknown article, not enough left) is reported in its result and the other movements still go through.
+    public List<StockMovementResultDTO> applyStockMovements(List<StockMovementDTO> movements) {
+        Set<Long> ids = new TreeSet<>();
+        for (StockMovementDTO movement : movements) {
+            if (!hotStockCounters.handles(movement.getId())) {
+                ids.add(movement.getId());
+            }
+        }
+        Map<Long, Article> articles = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Article article : articleRepository.findAllByIdForUpdate(ids)) {
+                articles.put(article.getId(), article);
+            }
+        }
+
+        //the article before the first of its movements, for the events
+        Map<Long, ArticleSnapshot> previous = new LinkedHashMap<>();
+        List<StockMovement> applied = new ArrayList<>();
+        List<StockMovementResultDTO> results = new ArrayList<>(movements.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (StockMovementDTO movement : movements) {
+            Long id = movement.getId();
+            int delta = movement.getDelta();
+
+            if (hotStockCounters.handles(id)) {
+                try {
+                    ArticleSnapshot changed = delta >= 0 ? hotStockCounters.add(id, delta) : hotStockCounters.subtract(id, -delta);
+                    results.add(StockMovementResultDTO.applied(id, delta, changed.amount()));
+                } catch (EntityNotFoundException | IllegalArgumentException e) {
+                    results.add(StockMovementResultDTO.failed(id, delta, e.getMessage()));
+                }
+                continue;
+            }
+
+            Article article = articles.get(id);
+            if (article == null) {
+                results.add(StockMovementResultDTO.failed(id, delta, "Article not found with id: " + id));
+                continue;
+            }
+            long newAmount = (long) article.getAmount() + delta;
+            if (newAmount < 0) {
+                results.add(StockMovementResultDTO.failed(id, delta, "You cant subtract more than total amount!"));
+                continue;
+            }
+            if (newAmount > Integer.MAX_VALUE) {
+                results.add(StockMovementResultDTO.failed(id, delta, "Amount is too large!"));
+                continue;
+            }
+            previous.putIfAbsent(id, ArticleSnapshot.of(article));
+            article.setAmount((int) newAmount);
+            applied.add(new StockMovement(id, delta >= 0 ? EMovementType.ADD : EMovementType.SUBTRACT, delta, (int) newAmount, now));
+            results.add(StockMovementResultDTO.applied(id, delta, article.getAmount()));
+        }
+
+        //flushed here instead of at commit so that updatedAt is set before the snapshots for the events are taken
+        articleRepository.flush();
+        stockLedger.append(applied);
+        previous.forEach((id, before) -> eventPublisher.publishEvent(new ArticleChangedEvent(before, ArticleSnapshot.of(articles.get(id)))));
+        return results;
+    }
+
+    //reads the article back after an atomic amount update. Our UPDATE holds the row lock until commit, so this is exactly the amount we wrote.
+    //the amount before the update is the new amount with the change undone.
+    private ArticleResponseDTO publishAmountChange(Long id, EMovementType type, int delta) {
+        Article updatedArticle = articleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+        ArticleSnapshot current = ArticleSnapshot.of(updatedArticle);
+
+        stockLedger.append(new StockMovement(id, type, delta, current.amount(), updatedArticle.getUpdatedAt()));
+        eventPublisher.publishEvent(new ArticleChangedEvent(current.withAmount(current.amount() - delta), current));
+        return new ArticleResponseDTO(updatedArticle);
+    }
+
+    //the DTOs in a list of exactly the right size, Page.map and Slice.map collect through a stream into a list that has to grow
+    private static List<ArticleResponseDTO> toResponseDTOs(List<ArticleSnapshot> articles) {
+        List<ArticleResponseDTO> dtos = new ArrayList<>(articles.size());
+        for (ArticleSnapshot article : articles) {
+            dtos.add(new ArticleResponseDTO(article));
+        }
+        return dtos;
+    }
+
+    //Resolves the search to article ids with the trigram index, so the database doesn't have to run the LIKE over every row.
+    //null means the index can't answer (no search, too short a search term or too many matches for an IN list) and the LIKE query is used.
+    private List<Long> resolveSearch(String search) {
+        return search == null ? null : articleNameIndex.search(search, MAX_SEARCH_IDS);
+    }
+
+    //the rows come back as ArticleSnapshots, a read never creates managed entities that would only be copied into DTOs
+    private Slice<ArticleSnapshot> findArticles(String search, List<Long> searchIds, ECategory categoryFilter, boolean onlyLowStock, Pageable pageable) {
+        if (searchIds == null) {
+            //lowStock is the same for every row here, sorting on it first only lets the database read the index in order
+            return onlyLowStock
+                    ? slowQueryLog.time("findLowStockArticlesWithFilters", () -> articleRepository.findLowStockArticlesWithFilters(search, categoryFilter,
+                            PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("lowStock").and(pageable.getSort()))),
+                            search, categoryFilter, pageable)
+                    : slowQueryLog.time("findArticlesWithFilters", () -> articleRepository.findArticlesWithFilters(search, categoryFilter, false, pageable),
+                            search, categoryFilter, pageable);
+        }
+        if (searchIds.isEmpty()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        return slowQueryLog.time("findArticlesByIdsWithFilters", () -> articleRepository.findArticlesByIdsWithFilters(searchIds, categoryFilter, onlyLowStock, pageable),
+                searchIds.size() + " ids", categoryFilter, onlyLowStock, pageable);
+    }
+
+    private long countArticles(String search, List<Long> searchIds, ECategory categoryFilter, boolean onlyLowStock) {
+        if (searchIds != null && categoryFilter == null && !onlyLowStock) {
+            return searchIds.size();
+        }
+        return articleCountCache.getCount(search, categoryFilter, onlyLowStock, () -> {
+            if (searchIds != null) {
+                return slowQueryLog.time("countArticlesByIdsWithFilters", () -> articleRepository.countArticlesByIdsWithFilters(searchIds, categoryFilter, onlyLowStock),
+                        searchIds.size() + " ids", categoryFilter, onlyLowStock);
+            }
+            return onlyLowStock
+                    ? slowQueryLog.time("countLowStockArticlesWithFilters", () -> articleRepository.countLowStockArticlesWithFilters(search, categoryFilter),
+                            search, categoryFilter)
+                    : slowQueryLog.time("countArticlesWithFilters", () -> articleRepository.countArticlesWithFilters(search, categoryFilter, false),
+                            search, categoryFilter);
+        });
+    }
 
-        if ((exisingArticle.getAmount() - patchAmountDTO.getAmount()) >= 0) {
-            exisingArticle.setAmount(exisingArticle.getAmount() - patchAmountDTO.getAmount());
-        } else throw new IllegalArgumentException("You cant subtract more than total amount!");
+    private Sort toSort(String sortBy, String sortDir) {
+        return sortDir.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+    }
 
-        articleRepository.save(exisingArticle);
-        return new ArticleResponseDTO(exisingArticle);
+    static String normalizeSearch(String search) {
+        return (search != null && !search.trim().isEmpty()) ? search.trim() : null;
+    }
+
+    //unknown categories and "ALL" means no category filter
+    static ECategory parseCategory(String categoryFilter) {
+        if (categoryFilter == null || categoryFilter.isBlank() || "ALL".equalsIgnoreCase(categoryFilter)) {
+            return null;
+        }
+        try {
+            return ECategory.valueOf(categoryFilter.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 }
@@ -0,0 +1,154 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.index.ArticleStatsIndex;
+import se.vgregion.inventory_management_backend.models.ArticleStatsRow;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Counts the stats again from the database every inventory.stats.reconcile-interval-ms (10 minutes by default) and compares
+//them with the running totals in the ArticleStatsIndex, to find changes that never reached the index.
+//The table is counted in id ranges of inventory.stats.reconcile-chunk-size, inventory.stats.reconcile-threads at a time.
+//
+//A change is applied to the index right after its commit, so a count can see a change the index hasn't got yet.
+//That's why a drift is only corrected when the next run finds exactly the same drift again, a real one doesn't go away by itself.
+@Component
+public class ArticleStatsReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleStatsReconciler.class);
+
+    public enum Outcome {
+        IN_SYNC,
+        //the index changed while the database was counted, the totals can't be compared
+        CHANGED_DURING_SCAN,
+        //found for the first time, corrected if the next run finds the same
+        DRIFT_FOUND,
+        CORRECTED
+    }
+
+    public record Result(Outcome outcome, long articles, List<String> drift, long millis) {}
+
+    private final ArticleRepository articleRepository;
+    private final ArticleStatsIndex articleStatsIndex;
+    private final HotStockCounters hotStockCounters;
+    private final TransactionTemplate readTransaction;
+    private final int threads;
+    private final long chunkSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private ArticleStatsIndex.Counts previousDrift;
+
+    public ArticleStatsReconciler(
+            ArticleRepository articleRepository,
+            ArticleStatsIndex articleStatsIndex,
+            HotStockCounters hotStockCounters,
+            PlatformTransactionManager transactionManager,
+            @Value("${inventory.stats.reconcile-threads:4}") int threads,
+            @Value("${inventory.stats.reconcile-chunk-size:100000}") long chunkSize
+    ) {
+        this.articleRepository = articleRepository;
+        this.articleStatsIndex = articleStatsIndex;
+        this.hotStockCounters = hotStockCounters;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(initialDelayString = "${inventory.stats.reconcile-interval-ms:600000}",
+            fixedDelayString = "${inventory.stats.reconcile-interval-ms:600000}")
+    public Result reconcile() {
+        //a lock instead of synchronized, a virtual thread that waits for the counting inside synchronized keeps its carrier thread
+        lock.lock();
+        try {
+            return reconcileLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Result reconcileLocked() {
+        long start = System.nanoTime();
+        //the index has the live amounts, so the changes that are only in the hot counters have to be in the database first
+        hotStockCounters.flush();
+        long changesBefore = articleStatsIndex.changes();
+        ArticleStatsIndex.Counts expected = articleStatsIndex.counts();
+        ArticleStatsIndex.Counts counted = count();
+
+        Result result;
+        if (articleStatsIndex.changes() != changesBefore) {
+            previousDrift = null;
+            result = new Result(Outcome.CHANGED_DURING_SCAN, counted.articles(), List.of(), millisSince(start));
+            log.info("Stats reconciliation skipped, the inventory changed during the scan");
+            return result;
+        }
+
+        ArticleStatsIndex.Counts drift = counted.minus(expected);
+        if (drift.isZero()) {
+            previousDrift = null;
+            result = new Result(Outcome.IN_SYNC, counted.articles(), List.of(), millisSince(start));
+            log.info("Stats reconciliation counted {} articles in {} ms, no drift", result.articles(), result.millis());
+        } else if (drift.equals(previousDrift)) {
+            articleStatsIndex.correct(drift);
+            previousDrift = null;
+            result = new Result(Outcome.CORRECTED, counted.articles(), drift.describe(), millisSince(start));
+            log.warn("Stats reconciliation corrected a drift (database minus counters): {}", result.drift());
+        } else {
+            previousDrift = drift;
+            result = new Result(Outcome.DRIFT_FOUND, counted.articles(), drift.describe(), millisSince(start));
+            log.warn("Stats reconciliation found a drift (database minus counters), corrected if it is still there on the next run: {}", result.drift());
+        }
+        return result;
+    }
+
+    private ArticleStatsIndex.Counts count() {
+        long minId = articleRepository.findMinId();
+        long maxId = articleRepository.findMaxId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ArticleStatsIndex.Counts>> parts = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += chunkSize) {
+                long fromId = from;
+                long toId = Math.min(from + chunkSize - 1, maxId);
+                parts.add(executor.submit(() -> countBetween(fromId, toId)));
+            }
+            ArticleStatsIndex.Counts counted = new ArticleStatsIndex.Counts();
+            for (Future<ArticleStatsIndex.Counts> part : parts) {
+                counted.addAll(part.get());
+            }
+            return counted;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Stats reconciliation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Stats reconciliation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ArticleStatsIndex.Counts countBetween(long fromId, long toId) {
+        ArticleStatsIndex.Counts counts = new ArticleStatsIndex.Counts();
+        for (ArticleStatsRow row : readTransaction.execute(status -> articleRepository.sumStatsBetween(fromId, toId))) {
+            counts.add(row.category(), row.unit(), row.articles(), row.lowStock(), row.amount());
+        }
+        return counts;
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,271 @@
+package se.vgregion.inventory_management_backend.services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.cache.InventoryVersion;
+import se.vgregion.inventory_management_backend.enums.EMovementType;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.models.StockMovement;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Opt-in hot counter mode (inventory.hot-counters.enabled=true) for the few articles that get most of the add/subtract traffic.
+//Instead of one transaction on the same row per patch, the changes are made to an in-memory counter per article and the
+//net change is written to the database every inventory.hot-counters.flush-interval-ms (and at shutdown).
+//inventory.hot-counters.article-ids limits the mode to some articles, without it every article is counted in memory.
+//
+//Every article has its own counters, so different articles never wait for each other. A LongAdder can't be used since
+//it can't check the "never below 0" rule, so the live amount is an AtomicInteger that subtractions compare-and-set.
+//The database amount plus the pending (not yet flushed) movements is always the live amount. The movements are written
+//to the StockLedger in the flush, in the same transaction as the amounts.
+@Component
+public class HotStockCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockCounters.class);
+
+    private final boolean enabled;
+    private final Set<Long> articleIds;
+    private final ArticleRepository articleRepository;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate flushTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryVersion inventoryVersion;
+    private final StockLedger stockLedger;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    public HotStockCounters(
+            @Value("${inventory.hot-counters.enabled:false}") boolean enabled,
+            @Value("${inventory.hot-counters.article-ids:}") Set<Long> articleIds,
+            ArticleRepository articleRepository,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            InventoryVersion inventoryVersion,
+            StockLedger stockLedger
+    ) {
+        this.enabled = enabled;
+        this.articleIds = articleIds;
+        this.articleRepository = articleRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        //the flush has its own transaction, its callers (like ArticleService.updateArticle) call it before they open theirs,
+        //a flush inside another transaction would hold a second connection from the pool while the first one waits
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.inventoryVersion = inventoryVersion;
+        this.stockLedger = stockLedger;
+    }
+
+    public boolean handles(Long id) {
+        return enabled && (articleIds.isEmpty() || articleIds.contains(id));
+    }
+
+    public ArticleSnapshot add(Long id, int delta) {
+        Counter counter = counter(id);
+        int before;
+        int amount;
+        do {
+            before = counter.live.get();
+            try {
+                amount = Math.addExact(before, delta);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Amount is too large!");
+            }
+        } while (!counter.live.compareAndSet(before, amount));
+        counter.pending.add(new StockMovement(id, EMovementType.ADD, delta, amount, LocalDateTime.now()));
+        return publish(counter, before, amount);
+    }
+
+    public ArticleSnapshot subtract(Long id, int delta) {
+        Counter counter = counter(id);
+        int before;
+        do {
+            before = counter.live.get();
+            if (before < delta) {
+                throw new IllegalArgumentException("You cant subtract more than total amount!");
+            }
+        } while (!counter.live.compareAndSet(before, before - delta));
+        counter.pending.add(new StockMovement(id, EMovementType.SUBTRACT, -delta, before - delta, LocalDateTime.now()));
+        return publish(counter, before, before - delta);
+    }
+
+    //the live amount of an article that is counted in memory, empty if it isn't
+    public OptionalInt liveAmount(Long id) {
+        Counter counter = counters.get(id);
+        return counter == null ? OptionalInt.empty() : OptionalInt.of(counter.live.get());
+    }
+
+    //writes the pending changes of all articles to the database in one transaction
+    @Scheduled(fixedDelayString = "${inventory.hot-counters.flush-interval-ms:1000}")
+    public void flush() {
+        Map<Long, List<StockMovement>> pending = new HashMap<>();
+        counters.forEach((id, counter) -> {
+            List<StockMovement> movements = counter.drain();
+            if (!movements.isEmpty()) {
+                pending.put(id, movements);
+            }
+        });
+        write(pending);
+    }
+
+    //writes the pending change of one article, used before something else sets the amount of the article
+    public void flush(Long id) {
+        Counter counter = counters.get(id);
+        if (counter == null) {
+            return;
+        }
+        List<StockMovement> movements = counter.drain();
+        if (!movements.isEmpty()) {
+            write(Map.of(id, movements));
+        }
+    }
+
+    //the movements are appended after the amount UPDATE of their article, which locks the row (see StockLedger)
+    private void write(Map<Long, List<StockMovement>> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Written result = flushTransaction.execute(status -> {
+                List<Long> deleted = new ArrayList<>();
+                Map<Long, List<StockMovement>> notWritten = new HashMap<>();
+                List<StockMovement> written = new ArrayList<>();
+                pending.forEach((id, movements) -> {
+                    int delta = 0;
+                    for (StockMovement movement : movements) {
+                        delta += movement.getDelta();
+                    }
+                    if (articleRepository.addToAmount(id, delta, now) == 1) {
+                        written.addAll(movements);
+                    } else if (articleRepository.existsById(id)) {
+                        //the amount would be too large for the column, the change is kept instead of lost
+                        notWritten.put(id, movements);
+                    } else {
+                        deleted.add(id);
+                    }
+                });
+                stockLedger.append(written);
+                return new Written(deleted, notWritten);
+            });
+            //the article has been deleted, nothing to write the change to
+            result.deleted().forEach(counters::remove);
+            if (!result.notWritten().isEmpty()) {
+                putBack(result.notWritten());
+                log.warn("The stock changes of articles {} would make the amount too large, retrying on the next flush",
+                        result.notWritten().keySet());
+            }
+            inventoryVersion.bump();
+        } catch (RuntimeException e) {
+            //put the changes back so the next flush tries again
+            putBack(pending);
+            log.warn("Could not flush the stock changes of {} articles, retrying on the next flush", pending.size(), e);
+        }
+    }
+
+    private void putBack(Map<Long, List<StockMovement>> movementsById) {
+        movementsById.forEach((id, movements) -> {
+            Counter counter = counters.get(id);
+            if (counter != null) {
+                counter.pending.addAll(movements);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    //Changes that didn't come from the counters (PUT with a new amount, deletes) have to be applied to the live amount too.
+    //The database amount changed by current - previous, so the live amount changes by the same.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onArticleChanged(ArticleChangedEvent event) {
+        if (event.buffered()) {
+            return;
+        }
+        Counter counter = counters.get(event.articleId());
+        if (counter == null) {
+            return;
+        }
+        if (event.current() == null) {
+            counters.remove(event.articleId());
+            return;
+        }
+        //a counter that was loaded after this change already has it in its amount
+        LocalDateTime loadedAt = counter.article.updatedAt();
+        if (loadedAt != null && event.current().updatedAt() != null && !event.current().updatedAt().isAfter(loadedAt)) {
+            return;
+        }
+        counter.live.addAndGet(event.current().amount() - event.previous().amount());
+        counter.article = event.current();
+    }
+
+    //The article is loaded outside of the map, a loader inside computeIfAbsent holds the lock of the map bin (synchronized) while it
+    //waits for the database, and on a virtual thread that also keeps the carrier thread. Two requests that load the same article
+    //at the same time both read it, the first one to put its counter wins and the other one uses that.
+    private Counter counter(Long id) {
+        Counter counter = counters.get(id);
+        if (counter != null) {
+            return counter;
+        }
+        ArticleSnapshot article = readTransaction.execute(status -> articleRepository.findById(id).map(ArticleSnapshot::of).orElse(null));
+        if (article == null) {
+            throw new EntityNotFoundException("Article not found with id: " + id);
+        }
+        Counter loaded = new Counter(article);
+        Counter existing = counters.putIfAbsent(id, loaded);
+        return existing == null ? loaded : existing;
+    }
+
+    private ArticleSnapshot publish(Counter counter, int amountBefore, int amountAfter) {
+        ArticleSnapshot current = counter.article.withAmount(amountAfter);
+        eventPublisher.publishEvent(new ArticleChangedEvent(counter.article.withAmount(amountBefore), current, true));
+        return current;
+    }
+
+    private record Written(List<Long> deleted, Map<Long, List<StockMovement>> notWritten) {}
+
+    private static final class Counter {
+        //everything except the amount is taken from here, the amount in it is the one in the database when it was loaded
+        private volatile ArticleSnapshot article;
+        private final AtomicInteger live;
+        //the movements since the last flush
+        private final ConcurrentLinkedQueue<StockMovement> pending = new ConcurrentLinkedQueue<>();
+
+        private Counter(ArticleSnapshot article) {
+            this.article = article;
+            this.live = new AtomicInteger(article.amount());
+        }
+
+        private List<StockMovement> drain() {
+            List<StockMovement> movements = new ArrayList<>();
+            StockMovement movement;
+            while ((movement = pending.poll()) != null) {
+                movements.add(movement);
+            }
+            return movements;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package se.vgregion.inventory_management_backend.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//Runs a load only once for concurrent callers with the same key: the first caller loads, the ones that come while it is
+//still running wait for it and get the same result (or the same exception). As soon as the load is done the key is removed,
+//so nothing is kept afterwards and the next caller loads again, this is not a cache.
+//The waiting is on a CompletableFuture, not in synchronized or computeIfAbsent, so waiting virtual threads don't keep their carrier.
+//Every caller gets the same instance of the result, so V has to be immutable (the list pages are, see ArticleResponseDTO).
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            shared.increment();
+            return join(running);
+        }
+        loads.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        //removed before the waiting callers get the result, a caller that comes after this starts a new load
+        inFlight.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    //loads that were run, and calls that got the result of a load another caller was already running
+    public long loads() {
+        return loads.sum();
+    }
+
+    public long shared() {
+        return shared.sum();
+    }
+
+    private static <V> V join(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package se.vgregion.inventory_management_backend.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//Times the list queries (inventory_query in prometheus, by query) and logs the ones that take longer than
+//inventory.slow-query.threshold-ms (200 ms by default) together with the filters they were run with, so a slow search can be run again.
+//The slow ones are also counted in inventory_query_slow.
+@Component
+public class SlowQueryLog {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final MeterRegistry meterRegistry;
+    private final long thresholdNanos;
+
+    public SlowQueryLog(MeterRegistry meterRegistry, @Value("${inventory.slow-query.threshold-ms:200}") long thresholdMillis) {
+        this.meterRegistry = meterRegistry;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    //runs the query and returns its result, the time is recorded even if the query fails
+    public <T> T time(String query, Supplier<T> call, Object... parameters) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            Timer.builder("inventory.query").tag("query", query).register(meterRegistry).record(nanos, TimeUnit.NANOSECONDS);
+            if (nanos >= thresholdNanos) {
+                meterRegistry.counter("inventory.query.slow", "query", query).increment();
+                log.warn("Slow query {} took {} ms with {}", query, TimeUnit.NANOSECONDS.toMillis(nanos), Arrays.toString(parameters));
+            }
+        }
+    }
+}
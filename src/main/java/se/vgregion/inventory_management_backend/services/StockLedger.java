@@ -0,0 +1,145 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.dto.StockLedgerEntryDTO;
+import se.vgregion.inventory_management_backend.dto.StockLedgerPageDTO;
+import se.vgregion.inventory_management_backend.models.StockMovement;
+import se.vgregion.inventory_management_backend.models.StockSnapshot;
+import se.vgregion.inventory_management_backend.models.StockTail;
+import se.vgregion.inventory_management_backend.repository.StockMovementRepository;
+import se.vgregion.inventory_management_backend.repository.StockSnapshotRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+//The history of every amount: ArticleService (and HotStockCounters, ArticleImportService) append a StockMovement for every add,
+//subtract and set in the same transaction as the change itself, with saveAll so hibernate sends them in jdbc batches.
+//The movements are never changed. Article.amount is still what the lists and filters read, the ledger is the history behind it.
+//
+//Every inventory.ledger.compact-interval-ms (60 s) the articles that got movements since the last run have their tail folded
+//into their StockSnapshot, so rebuilding an amount reads one snapshot and a few recent movements instead of the whole history.
+//That only works if a movement of an article can never commit after a movement of the same article with a higher id:
+//the movements are appended after the row of the article has been locked (by the UPDATE of the amount, or because the article
+//was just inserted) so they get their ids in the order they commit. With more than one instance the pooled ids would not be.
+@Component
+public class StockLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+    private static final int COMPACT_CHUNK_SIZE = 500;
+
+    private final StockMovementRepository stockMovementRepository;
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final TransactionTemplate compactTransaction;
+    private final TransactionTemplate readTransaction;
+    //articles with movements that aren't in their snapshot yet. After a restart it starts empty, the tails are then only
+    //compacted when the article changes again, until then they are just longer
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock compactLock = new ReentrantLock();
+
+    public StockLedger(
+            StockMovementRepository stockMovementRepository,
+            StockSnapshotRepository stockSnapshotRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.compactTransaction = new TransactionTemplate(transactionManager);
+        this.compactTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    //has to be called in the transaction of the change, after the row of the article has been locked (see above)
+    public void append(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        stockMovementRepository.saveAll(movements);
+        for (StockMovement movement : movements) {
+            changed.add(movement.getArticleId());
+        }
+    }
+
+    public void append(StockMovement movement) {
+        append(List.of(movement));
+    }
+
+    //folds the tails of the changed articles into their snapshots, returns how many snapshots were written
+    @Scheduled(initialDelayString = "${inventory.ledger.compact-interval-ms:60000}",
+            fixedDelayString = "${inventory.ledger.compact-interval-ms:60000}")
+    public int compact() {
+        compactLock.lock();
+        try {
+            List<Long> articleIds = new ArrayList<>(changed);
+            changed.removeAll(articleIds);
+            int compacted = 0;
+            for (int from = 0; from < articleIds.size(); from += COMPACT_CHUNK_SIZE) {
+                List<Long> chunk = articleIds.subList(from, Math.min(from + COMPACT_CHUNK_SIZE, articleIds.size()));
+                try {
+                    compacted += compactTransaction.execute(status -> compactChunk(chunk));
+                } catch (RuntimeException e) {
+                    //they are compacted on the next run instead, until then their tails are longer
+                    changed.addAll(chunk);
+                    log.warn("Could not compact the stock ledger of {} articles, retrying on the next run", chunk.size(), e);
+                }
+            }
+            return compacted;
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    private int compactChunk(List<Long> articleIds) {
+        List<StockTail> tails = stockMovementRepository.sumTails(articleIds);
+        if (tails.isEmpty()) {
+            return 0;
+        }
+        Map<Long, StockSnapshot> snapshots = new HashMap<>();
+        for (StockSnapshot snapshot : stockSnapshotRepository.findAllById(tails.stream().map(StockTail::articleId).toList())) {
+            snapshots.put(snapshot.getArticleId(), snapshot);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (StockTail tail : tails) {
+            snapshots.computeIfAbsent(tail.articleId(), StockSnapshot::new).advance(tail.delta(), tail.lastMovementId(), now);
+        }
+        stockSnapshotRepository.saveAll(snapshots.values());
+        return tails.size();
+    }
+
+    //The amount of an article from the ledger alone, its snapshot plus the movements after it.
+    //A compaction that commits between the two reads doesn't matter, the movements after the old snapshot are still the same.
+    public int rebuildAmount(Long articleId) {
+        return readTransaction.execute(status -> {
+            StockSnapshot snapshot = stockSnapshotRepository.findById(articleId).orElse(null);
+            long amount = snapshot == null ? 0 : snapshot.getAmount();
+            long lastMovementId = snapshot == null ? 0 : snapshot.getLastMovementId();
+            return Math.toIntExact(amount + stockMovementRepository.sumDeltasAfter(articleId, lastMovementId));
+        });
+    }
+
+    //the movements of an article before the movement id before (the newest ones without it), newest first
+    public StockLedgerPageDTO history(Long articleId, Long before, int size) {
+        List<StockMovement> movements = readTransaction.execute(status ->
+                stockMovementRepository.findHistory(articleId, before == null ? Long.MAX_VALUE : before, Limit.of(size + 1)));
+        boolean hasNext = movements.size() > size;
+        List<StockLedgerEntryDTO> content = new ArrayList<>(Math.min(movements.size(), size));
+        for (int i = 0; i < movements.size() && i < size; i++) {
+            content.add(StockLedgerEntryDTO.of(movements.get(i)));
+        }
+        Long nextBefore = hasNext ? content.get(content.size() - 1).id() : null;
+        return new StockLedgerPageDTO(content, size, hasNext, nextBefore);
+    }
+}
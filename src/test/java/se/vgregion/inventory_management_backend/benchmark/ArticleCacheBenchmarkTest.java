@@ -0,0 +1,109 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.cache.ArticleCache;
+import se.vgregion.inventory_management_backend.dto.CacheStatsDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+//95% get by id and 5% amount changes on random articles out of 10 000, with the ArticleCache against
+//the old getArticleById (a read-only transaction with findById on every call).
+//Run with: mvn test -Pbenchmark -Dtest=ArticleCacheBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class ArticleCacheBenchmarkTest {
+
+    private static final int ARTICLES = 10_000;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 25_000;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private ArticleCache articleCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cachedVersusUncachedLookups() throws Exception {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, ARTICLES);
+        long[] ids = jdbcTemplate.queryForList("SELECT id FROM article", Long.class).stream().mapToLong(Long::longValue).toArray();
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        LongConsumer uncached = id -> readOnly.execute(status -> new ArticleResponseDTO(articleRepository.findById(id).orElseThrow()));
+        LongConsumer cached = articleService::getArticleById;
+
+        //warm up both
+        run(ids, uncached);
+        run(ids, cached);
+
+        articleCache.clear();
+        double uncachedPerSecond = run(ids, uncached);
+        CacheStatsDTO before = articleService.getArticleCacheStats();
+        double cachedPerSecond = run(ids, cached);
+        CacheStatsDTO after = articleService.getArticleCacheStats();
+
+        long hits = after.hits() - before.hits();
+        long misses = after.misses() - before.misses();
+        System.out.printf("%n%d threads x %d operations, 95%% reads / 5%% writes on %d articles%n", THREADS, OPERATIONS_PER_THREAD, ARTICLES);
+        System.out.printf("%-10s %14s%n", "", "operations/s");
+        System.out.printf("%-10s %14.0f%n", "uncached", uncachedPerSecond);
+        System.out.printf("%-10s %14.0f   (hit rate %.1f%%, %d hits, %d misses, %d evictions)%n", "cached", cachedPerSecond,
+                100.0 * hits / (hits + misses), hits, misses, after.evictions() - before.evictions());
+    }
+
+    private double run(long[] ids, LongConsumer read) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                tasks.add(() -> {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        long id = ids[random.nextInt(ids.length)];
+                        if (random.nextInt(100) < 5) {
+                            articleService.patchArticleAmountAdd(id, new PatchAmountDTO(1));
+                        } else {
+                            read.accept(id);
+                        }
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            return THREADS * OPERATIONS_PER_THREAD / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.models.Article;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+//Fills the article table straight through jdbc, going through the service would take far too long for a million rows.
+//Every row is deterministic so that two runs of a benchmark look at exactly the same data.
+public final class ArticleSeeder {
+
+    private static final int BATCH_SIZE = 5_000;
+    private static final String[] WORDS = {
+            "gloves", "syringe", "bandage", "mask", "swab", "catheter", "gauze", "needle", "tape", "soap",
+            "saline", "ibuprofen", "paracetamol", "scalpel", "thermometer", "disinfectant", "plaster", "tube"
+    };
+
+    private ArticleSeeder() {}
+
+    public static void seed(JdbcTemplate jdbcTemplate, int count) {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        EUnit[] units = EUnit.values();
+        ECategory[] categories = ECategory.values();
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            Timestamp created = Timestamp.valueOf(start.plusSeconds(i));
+            int amount = (i * 37) % 1000;
+            int minimumAmount = (i * 11) % 100;
+            batch.add(new Object[]{
+                    name(i),
+                    amount,
+                    minimumAmount,
+                    Article.isLowStock(amount, minimumAmount),
+                    units[i % units.length].ordinal(),
+                    categories[i % categories.length].ordinal(),
+                    created,
+                    created
+            });
+            if (batch.size() == BATCH_SIZE) {
+                insert(jdbcTemplate, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(jdbcTemplate, batch);
+        }
+    }
+
+    //unique name for row i, like "gloves swab 000042"
+    public static String name(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + String.format("%07d", i);
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO article (id, name, amount, minimum_amount, low_stock, unit, category, created_at, updated_at, version) " +
+                        "VALUES (NEXT VALUE FOR article_seq, ?, ?, ?, ?, ?, ?, ?, ?, 0)",
+                batch
+        );
+    }
+}
@@ -0,0 +1,127 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.UpdateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.exception.ArticleVersionConflictException;
+import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Contention on PUT: 32 threads that each read the same article and write it back with the amount one higher.
+//Blind updates (no If-Match) lose changes, the If-Match updates are retried on a 412 and lose nothing,
+//the pessimistic version (SELECT ... FOR UPDATE around the read) loses nothing either but every edit waits for the one before.
+//Run with: mvn test -Pbenchmark -Dtest=ArticleUpdateBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class ArticleUpdateBenchmarkTest {
+
+    private static final int THREADS = 32;
+    private static final int EDITS_PER_THREAD = 100;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void blindVersusIfMatchVersusPessimisticLock() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Long blindId = newArticle("Gloves (blind)");
+        Long ifMatchId = newArticle("Gloves (If-Match)");
+        Long lockedId = newArticle("Gloves (locked)");
+
+        Result blind = run(conflicts -> {
+            ArticleResponseDTO article = articleService.getArticleById(blindId);
+            articleService.updateArticle(blindId, amount(article.getAmount() + 1));
+        });
+        Result ifMatch = run(conflicts -> {
+            while (true) {
+                ArticleResponseDTO article = articleService.getArticleById(ifMatchId);
+                try {
+                    articleService.updateArticle(ifMatchId, amount(article.getAmount() + 1), article.getVersion());
+                    return;
+                } catch (ArticleVersionConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+            }
+        });
+        //what updateArticle would need without a version column to not lose edits
+        Result locked = run(conflicts -> transaction.executeWithoutResult(status -> {
+            Article article = articleRepository.findAllByIdForUpdate(List.of(lockedId)).get(0);
+            article.setAmount(article.getAmount() + 1);
+        }));
+
+        int expected = THREADS * EDITS_PER_THREAD;
+        System.out.printf("%n%d threads x %d read-then-PUT edits of one article%n", THREADS, EDITS_PER_THREAD);
+        System.out.printf("%-18s %12s %12s %12s%n", "", "edits/s", "412s", "lost");
+        print("blind", blind, expected - articleService.getArticleById(blindId).getAmount());
+        print("If-Match + retry", ifMatch, expected - articleService.getArticleById(ifMatchId).getAmount());
+        print("FOR UPDATE", locked, expected - articleService.getArticleById(lockedId).getAmount());
+    }
+
+    private Long newArticle(String name) {
+        return articleService.addArticle(new CreateArticleDTO(name, 0, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+    }
+
+    private static UpdateArticleDTO amount(int amount) {
+        UpdateArticleDTO update = new UpdateArticleDTO();
+        update.setAmount(amount);
+        return update;
+    }
+
+    private static void print(String name, Result result, int lost) {
+        System.out.printf("%-18s %12.0f %12d %12d%n", name, result.perSecond(), result.conflicts(), lost);
+    }
+
+    private Result run(Edit edit) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger conflicts = new AtomicInteger();
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < EDITS_PER_THREAD; i++) {
+                        edit.run(conflicts);
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(THREADS * EDITS_PER_THREAD / seconds, conflicts.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface Edit {
+        void run(AtomicInteger conflicts);
+    }
+
+    private record Result(double perSecond, int conflicts) {}
+}
@@ -0,0 +1,193 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.services.ArticleChangeFeed;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+//What GET /api/articles/changes costs the writers: 8 threads patching 2000 busy articles, with nobody listening, with 5 clients
+//reading the stream and with 20 more clients that open the stream and then never read from it (the network stopped, a frozen tab).
+//The readers get the changes coalesced, so events/reader is less than the patches. The stalled clients fill their socket buffers
+//and then their pending changes (more than max-pending, 1000, different articles) and are dropped.
+//Run with: mvn test -Pbenchmark -Dtest=ChangeFeedBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChangeFeedBenchmarkTest {
+
+    private static final int ARTICLES = 2_000;
+    private static final int WRITERS = 8;
+    private static final int PATCHES_PER_WRITER = 5_000;
+    private static final int READERS = 5;
+    private static final int STALLED = 20;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleChangeFeed articleChangeFeed;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void writersWithAndWithoutSubscribers() throws Exception {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, ARTICLES);
+        long[] ids = jdbcTemplate.queryForList("SELECT id FROM article", Long.class).stream().mapToLong(Long::longValue).toArray();
+
+        //warm up
+        patch(ids);
+
+        Result none = patch(ids);
+
+        List<Reader> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            readers.add(new Reader(port));
+        }
+        waitForSubscribers(READERS);
+        long droppedBefore = articleChangeFeed.dropped();
+        Result reading = patch(ids);
+        long droppedReading = articleChangeFeed.dropped() - droppedBefore;
+        long receivedReading = readers.stream().mapToLong(Reader::received).sum() / READERS;
+
+        //readers that couldn't keep up have been dropped already
+        int stillReading = articleChangeFeed.subscribers();
+        List<Socket> stalled = new ArrayList<>();
+        for (int i = 0; i < STALLED; i++) {
+            stalled.add(stalledClient(port));
+        }
+        waitForSubscribers(stillReading + STALLED);
+        droppedBefore = articleChangeFeed.dropped();
+        Result withStalled = patch(ids);
+        long dropped = articleChangeFeed.dropped() - droppedBefore;
+        long receivedWithStalled = readers.stream().mapToLong(Reader::received).sum() / READERS - receivedReading;
+
+        System.out.printf("%n%d writers x %d patches of random articles out of %d%n", WRITERS, PATCHES_PER_WRITER, ARTICLES);
+        System.out.printf("%-32s %12s %10s %10s %16s %10s%n", "", "patches/s", "p50 ms", "p99 ms", "events/reader", "dropped");
+        print("no subscribers", none, 0, 0);
+        print(READERS + " reading", reading, receivedReading, droppedReading);
+        print(READERS + " reading + " + STALLED + " stalled", withStalled, receivedWithStalled, dropped);
+
+        readers.forEach(Reader::close);
+        for (Socket socket : stalled) {
+            socket.close();
+        }
+    }
+
+    private static void print(String label, Result result, long events, long dropped) {
+        System.out.printf("%-32s %12.0f %10.2f %10.2f %16d %10d%n", label, result.perSecond(), result.p50(), result.p99(), events, dropped);
+    }
+
+    private void waitForSubscribers(int subscribers) throws InterruptedException {
+        while (articleChangeFeed.subscribers() < subscribers) {
+            Thread.sleep(10);
+        }
+    }
+
+    private Result patch(long[] ids) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Callable<double[]>> tasks = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                SplittableRandom random = new SplittableRandom(w);
+                tasks.add(() -> {
+                    double[] millis = new double[PATCHES_PER_WRITER];
+                    for (int i = 0; i < PATCHES_PER_WRITER; i++) {
+                        long start = System.nanoTime();
+                        articleService.patchArticleAmountAdd(ids[random.nextInt(ids.length)], new PatchAmountDTO(1));
+                        millis[i] = (System.nanoTime() - start) / 1e6;
+                    }
+                    return millis;
+                });
+            }
+            long start = System.nanoTime();
+            double[] all = new double[WRITERS * PATCHES_PER_WRITER];
+            int offset = 0;
+            for (Future<double[]> future : executor.invokeAll(tasks)) {
+                double[] millis = future.get();
+                System.arraycopy(millis, 0, all, offset, millis.length);
+                offset += millis.length;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(all);
+            return new Result(all.length / seconds, all[all.length / 2], all[(int) (all.length * 0.99)]);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    //sends the request and never reads the answer
+    private static Socket stalledClient(int port) throws IOException {
+        Socket socket = new Socket("localhost", port);
+        socket.setReceiveBufferSize(4096);
+        OutputStream out = socket.getOutputStream();
+        out.write("GET /api/articles/changes HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return socket;
+    }
+
+    //reads the stream on its own thread and counts the change events
+    private static final class Reader {
+
+        private final AtomicLong received = new AtomicLong();
+        private final Thread thread;
+        private volatile Stream<String> lines;
+
+        private Reader(int port) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/articles/changes")).build();
+            HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+            lines = response.body();
+            thread = Thread.ofPlatform().daemon().start(() -> {
+                try {
+                    lines.forEach(line -> {
+                        if (line.equals("event:change")) {
+                            received.incrementAndGet();
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    //closed
+                }
+            });
+        }
+
+        private long received() {
+            return received.get();
+        }
+
+        private void close() {
+            lines.close();
+            thread.interrupt();
+        }
+    }
+
+    private record Result(double perSecond, double p50, double p99) {}
+}
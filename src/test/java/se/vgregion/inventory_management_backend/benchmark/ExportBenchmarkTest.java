@@ -0,0 +1,67 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.services.ArticleExportService;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.io.OutputStream;
+
+//The nightly report job pages through getAllArticles with size=200, against one streaming export.
+//Run with: mvn test -Pbenchmark -Dtest=ExportBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class ExportBenchmarkTest {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleExportService articleExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagingVersusExport() throws Exception {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 100_000);
+        //warm up
+        export(ArticleExportService.Format.CSV);
+        articleService.getAllArticlesPaginated(0, 200, null, false, "ALL", "name", "asc");
+
+        System.out.printf("%n%-28s %10s %10s%n", "100 000 articles", "ms", "rows");
+        long start = System.nanoTime();
+        long rows = 0;
+        Page<ArticleResponseDTO> page;
+        int pageNumber = 0;
+        do {
+            page = articleService.getAllArticlesPaginated(pageNumber++, 200, null, false, "ALL", "name", "asc");
+            rows += page.getNumberOfElements();
+        } while (page.hasNext());
+        System.out.printf("%-28s %10d %10d%n", "pages of 200 (" + pageNumber + ")", (System.nanoTime() - start) / 1_000_000, rows);
+        printExport("export csv", ArticleExportService.Format.CSV);
+        printExport("export ndjson", ArticleExportService.Format.NDJSON);
+
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 1_000_000);
+        System.out.printf("%n%-28s %10s %10s%n", "1 000 000 articles", "ms", "rows");
+        printExport("export csv", ArticleExportService.Format.CSV);
+        printExport("export ndjson", ArticleExportService.Format.NDJSON);
+    }
+
+    private void printExport(String label, ArticleExportService.Format format) throws Exception {
+        long start = System.nanoTime();
+        long rows = export(format);
+        System.out.printf("%-28s %10d %10d%n", label, (System.nanoTime() - start) / 1_000_000, rows);
+    }
+
+    private long export(ArticleExportService.Format format) throws Exception {
+        return articleExportService.export(OutputStream.nullOutputStream(), format, null, false, "ALL");
+    }
+}
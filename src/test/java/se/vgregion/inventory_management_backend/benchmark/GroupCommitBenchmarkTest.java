@@ -0,0 +1,117 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.InventoryManagementBackendApplication;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//A stock count: 32 threads patching (add and subtract, 1 each) random articles out of 300 at the same time, with every patch
+//in its own transaction and with the group commit (inventory.group-commit.enabled) at a max wait of 0 and 1 ms.
+//The application is started once per mode. commits/s are the transactions hibernate committed, with group commit one per batch.
+//Run with: mvn test -Pbenchmark -Dtest=GroupCommitBenchmarkTest
+@Tag("benchmark")
+class GroupCommitBenchmarkTest {
+
+    private static final int ARTICLES = 300;
+    private static final int WRITERS = 32;
+    private static final int PATCHES_PER_WRITER = 1_000;
+
+    @Test
+    void patchesWithAndWithoutGroupCommit() throws Exception {
+        Result single = run("inventory.group-commit.enabled=false");
+        Result noWait = run("inventory.group-commit.enabled=true", "inventory.group-commit.max-wait-ms=0");
+        Result oneMilli = run("inventory.group-commit.enabled=true", "inventory.group-commit.max-wait-ms=1");
+
+        System.out.printf("%n%d threads x %d patches of random articles out of %d%n", WRITERS, PATCHES_PER_WRITER, ARTICLES);
+        System.out.printf("%-30s %12s %12s %12s %10s %10s%n", "", "patches/s", "commits/s", "per commit", "p50 ms", "p99 ms");
+        print("one transaction per patch", single);
+        print("group commit, max wait 0 ms", noWait);
+        print("group commit, max wait 1 ms", oneMilli);
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-30s %12.0f %12.0f %12.1f %10.2f %10.2f%n", label, result.patchesPerSecond(), result.commitsPerSecond(),
+                result.patchesPerSecond() / result.commitsPerSecond(), result.p50(), result.p99());
+    }
+
+    private Result run(String... properties) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(InventoryManagementBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jmx.enabled=false")
+                .properties(properties);
+        try (ConfigurableApplicationContext context = builder.run()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            jdbcTemplate.update("DELETE FROM article");
+            ArticleSeeder.seed(jdbcTemplate, ARTICLES);
+            //enough that no subtraction fails
+            jdbcTemplate.update("UPDATE article SET amount = 1000000");
+            long[] ids = jdbcTemplate.queryForList("SELECT id FROM article", Long.class).stream().mapToLong(Long::longValue).toArray();
+            ArticleService articleService = context.getBean(ArticleService.class);
+            Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+            //warm up
+            patch(articleService, ids);
+
+            long commitsBefore = statistics.getSuccessfulTransactionCount();
+            long start = System.nanoTime();
+            double[] millis = patch(articleService, ids);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long commits = statistics.getSuccessfulTransactionCount() - commitsBefore;
+            Arrays.sort(millis);
+            return new Result(millis.length / seconds, commits / seconds, millis[millis.length / 2], millis[(int) (millis.length * 0.99)]);
+        }
+    }
+
+    private static double[] patch(ArticleService articleService, long[] ids) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Callable<double[]>> tasks = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                SplittableRandom random = new SplittableRandom(w);
+                tasks.add(() -> {
+                    double[] millis = new double[PATCHES_PER_WRITER];
+                    for (int i = 0; i < PATCHES_PER_WRITER; i++) {
+                        long id = ids[random.nextInt(ids.length)];
+                        long start = System.nanoTime();
+                        if (random.nextBoolean()) {
+                            articleService.patchArticleAmountAdd(id, new PatchAmountDTO(1));
+                        } else {
+                            articleService.patchArticleAmountRemove(id, new PatchAmountDTO(1));
+                        }
+                        millis[i] = (System.nanoTime() - start) / 1e6;
+                    }
+                    return millis;
+                });
+            }
+            double[] all = new double[WRITERS * PATCHES_PER_WRITER];
+            int offset = 0;
+            for (Future<double[]> future : executor.invokeAll(tasks)) {
+                double[] millis = future.get();
+                System.arraycopy(millis, 0, all, offset, millis.length);
+                offset += millis.length;
+            }
+            return all;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private record Result(double patchesPerSecond, double commitsPerSecond, double p50, double p99) {}
+}
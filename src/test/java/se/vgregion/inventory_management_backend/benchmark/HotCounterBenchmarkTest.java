@@ -0,0 +1,91 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+import se.vgregion.inventory_management_backend.services.HotStockCounters;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//64 threads adding to the same article, one atomic UPDATE transaction per change against the hot counters with a flush at the end.
+//Run with: mvn test -Pbenchmark -Dtest=HotCounterBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "inventory.hot-counters.enabled=true",
+        "inventory.hot-counters.flush-interval-ms=3600000"
+})
+class HotCounterBenchmarkTest {
+
+    private static final int THREADS = 64;
+    private static final int CHANGES_PER_THREAD = 2_000;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private HotStockCounters hotStockCounters;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void atomicUpdateVersusHotCounters() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Long atomicId = articleService.addArticle(new CreateArticleDTO("Gloves (atomic)", 0, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        Long hotId = articleService.addArticle(new CreateArticleDTO("Gloves (hot)", 0, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+
+        //what patchArticleAmountAdd does without hot counters
+        double atomic = run(() -> transaction.executeWithoutResult(status -> articleRepository.addToAmount(atomicId, 1, LocalDateTime.now())));
+        double hot = run(() -> articleService.patchArticleAmountAdd(hotId, new PatchAmountDTO(1)));
+
+        long start = System.nanoTime();
+        hotStockCounters.flush();
+        double flushMs = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("%n%d threads x %d adds of 1 to one article%n", THREADS, CHANGES_PER_THREAD);
+        System.out.printf("%-16s %12s %12s%n", "", "changes/s", "amount");
+        System.out.printf("%-16s %12.0f %12d%n", "atomic update", atomic, articleRepository.findById(atomicId).orElseThrow().getAmount());
+        System.out.printf("%-16s %12.0f %12d   (flush took %.1f ms)%n", "hot counters", hot, articleRepository.findById(hotId).orElseThrow().getAmount(), flushMs);
+    }
+
+    private double run(Runnable change) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                        change.run();
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            return THREADS * CHANGES_PER_THREAD / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleImportSummaryDTO;
+import se.vgregion.inventory_management_backend.index.ArticleIndex;
+import se.vgregion.inventory_management_backend.services.ArticleImportService;
+import se.vgregion.inventory_management_backend.services.StockLedger;
+
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+//Imports a generated csv of 1 000 000 rows that is never in memory as a whole, and prints the rows per second
+//and the heap that is still used after a gc every 250 000 rows.
+//The heap grows with what is kept per article: the in-memory indexes and the ids the stock ledger still has to compact.
+//Those are cleared and compacted at the end to show what is left of the import itself.
+//The database is a file here, an in-memory h2 keeps all the rows in the same heap and would hide what the import itself uses.
+//Run with: mvn test -Pbenchmark -Dtest=ImportBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/import-benchmark;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class ImportBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+
+    @Autowired
+    private ArticleImportService articleImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private List<ArticleIndex> indexes;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Test
+    void importOneMillionRows() throws Exception {
+        jdbcTemplate.update("DELETE FROM article");
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        System.out.printf("%nheap before import: %d MB%n", memory.getHeapMemoryUsage().getUsed() >> 20);
+
+        long start = System.nanoTime();
+        ArticleImportSummaryDTO summary = articleImportService.importCsv(new GeneratedCsv(ROWS, row -> {
+            if (row % 250_000 == 0) {
+                System.gc();
+                System.out.printf("after %,9d rows: %4d MB heap used after gc, %6.0f rows/s%n",
+                        row, memory.getHeapMemoryUsage().getUsed() >> 20, row / ((System.nanoTime() - start) / 1e9));
+            }
+        }));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("inserted %d, updated %d, rejected %d in %.1f s (%.0f rows/s)%n",
+                summary.inserted(), summary.updated(), summary.rejected(), seconds, ROWS / seconds);
+
+        //the growth above is the in-memory indexes (name search, suggestions) filling up and the ledger's set of articles to compact,
+        //without them the heap is back where it started
+        indexes.forEach(ArticleIndex::clear);
+        stockLedger.compact();
+        System.gc();
+        System.out.printf("heap after clearing the in-memory indexes and compacting the ledger: %d MB%n", memory.getHeapMemoryUsage().getUsed() >> 20);
+    }
+
+    //a csv body that is made up while it is read, like an upload that is still coming in
+    private static final class GeneratedCsv extends Reader {
+        private final int rows;
+        private final IntConsumer progress;
+        private int row = -1;
+        private String current = "name,amount,minimumAmount,unit,category\n";
+        private int position;
+
+        private GeneratedCsv(int rows, IntConsumer progress) {
+            this.rows = rows;
+            this.progress = progress;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == current.length()) {
+                row++;
+                if (row > 0) {
+                    progress.accept(row);
+                }
+                if (row == rows) {
+                    return -1;
+                }
+                current = ArticleSeeder.name(row) + "," + (row * 37) % 1000 + "," + (row * 11) % 100 + ",PIECES,CONSUMABLE\n";
+                position = 0;
+            }
+            int count = Math.min(length, current.length() - position);
+            current.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
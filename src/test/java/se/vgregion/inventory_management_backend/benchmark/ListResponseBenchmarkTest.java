@@ -0,0 +1,95 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticlePageDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+//Writing the json of a list response with size=200, which is all that is left of a list request when the page is in the page cache.
+//Before: a HashMap per response and ArticleResponseDTO written by jackson through reflection.
+//After: the ArticlePageDTO record and the ArticleResponseDTOSerializer. Both write to an OutputStream like the response does.
+//Run with: mvn test -Pbenchmark -Dtest=ListResponseBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class ListResponseBenchmarkTest {
+
+    private static final int ROUNDS = 20_000;
+
+    //switches the ArticleResponseDTOSerializer off, for the way it was before
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private abstract static class ReflectiveSerialization {}
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void mapAndReflectionVersusRecordAndSerializer() throws Exception {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 1_000);
+        Page<ArticleResponseDTO> page = articleService.getAllArticlesPaginated(0, 200, null, false, "ALL", "name", "asc");
+        ObjectMapper reflectiveMapper = objectMapper.copy().addMixIn(ArticleResponseDTO.class, ReflectiveSerialization.class);
+
+        Response before = () -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("content", page.getContent());
+            response.put("currentPage", page.getNumber());
+            response.put("totalItems", page.getTotalElements());
+            response.put("totalPages", page.getTotalPages());
+            response.put("pageSize", page.getSize());
+            response.put("hasNext", page.hasNext());
+            response.put("hasPrevious", page.hasPrevious());
+            reflectiveMapper.writeValue(OutputStream.nullOutputStream(), response);
+        };
+        Response after = () -> objectMapper.writeValue(OutputStream.nullOutputStream(), ArticlePageDTO.of(page));
+
+        //warm up
+        measure(before);
+        measure(after);
+
+        System.out.printf("%n%d responses of %d articles%n", ROUNDS, page.getNumberOfElements());
+        System.out.printf("%-28s %14s %14s%n", "", "responses/s", "bytes/response");
+        print("HashMap + reflection", measure(before));
+        print("record + serializer", measure(after));
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-28s %14.0f %14d%n", label, result.perSecond(), result.bytesPerResponse());
+    }
+
+    private Result measure(Response response) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            response.write();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new Result(ROUNDS / seconds, (threads.getThreadAllocatedBytes(thread) - bytesBefore) / ROUNDS);
+    }
+
+    private interface Response {
+        void write() throws Exception;
+    }
+
+    private record Result(double perSecond, long bytesPerResponse) {}
+}
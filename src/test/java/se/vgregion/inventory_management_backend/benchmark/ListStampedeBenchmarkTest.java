@@ -0,0 +1,105 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntUnaryOperator;
+
+//Shift change: 64 workstations open the dashboard at the same moment, right after a change so the page isn't cached.
+//All of them ask for the same first page, and their identical requests share one read of it. To compare, the same 64 requests
+//with 64 different page sizes (20 to 83), which can't share anything and stand in for the list without the sharing.
+//The table shows how many times the page was read from the database per burst, how many requests waited for a read that was
+//already running (the rest of them came after it and got the page from the page cache) and how long the workstations waited.
+//Run with: mvn test -Pbenchmark -Dtest=ListStampedeBenchmarkTest
+@Tag("benchmark")
+//h2 keeps the result of a query and gives it back when the same query runs again on unchanged tables, that would hide the reads
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:stampede;OPTIMIZE_REUSE_RESULTS=FALSE")
+class ListStampedeBenchmarkTest {
+
+    private static final int ARTICLES = 100_000;
+    private static final int WORKSTATIONS = 64;
+    private static final int BURSTS = 50;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void identicalRequestsAtTheSameMoment() throws Exception {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, ARTICLES);
+        long changedId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM article", Long.class);
+
+        //warm up
+        bursts(changedId, workstation -> 20, 10);
+        bursts(changedId, workstation -> 20 + workstation, 10);
+
+        Result shared = bursts(changedId, workstation -> 20, BURSTS);
+        Result separate = bursts(changedId, workstation -> 20 + workstation, BURSTS);
+
+        System.out.printf("%n%d bursts of %d list requests for the first page, %d articles, sorted by name%n", BURSTS, WORKSTATIONS, ARTICLES);
+        System.out.printf("%-26s %12s %12s %12s %10s %10s%n", "", "reads/burst", "shared/burst", "burst ms", "p50 ms", "p99 ms");
+        print("same page (shared)", shared);
+        print("64 different page sizes", separate);
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-26s %12.1f %12.1f %12.2f %10.2f %10.2f%n", label, result.readsPerBurst(), result.sharedPerBurst(), result.burstMillis(),
+                result.p50(), result.p99());
+    }
+
+    private Result bursts(long changedId, IntUnaryOperator pageSize, int bursts) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WORKSTATIONS);
+        try {
+            double[] millis = new double[bursts * WORKSTATIONS];
+            double burstMillis = 0;
+            long readsBefore = articleService.getPageLoads();
+            long sharedBefore = articleService.getSharedPageLoads();
+            for (int burst = 0; burst < bursts; burst++) {
+                //a change, so the page cache has nothing for the new version
+                articleService.patchArticleAmountAdd(changedId, new PatchAmountDTO(1));
+
+                CyclicBarrier start = new CyclicBarrier(WORKSTATIONS);
+                List<Callable<Double>> requests = new ArrayList<>();
+                for (int w = 0; w < WORKSTATIONS; w++) {
+                    int size = pageSize.applyAsInt(w);
+                    requests.add(() -> {
+                        start.await();
+                        long begin = System.nanoTime();
+                        articleService.getAllArticlesPaginated(0, size, null, false, "ALL", "name", "asc");
+                        return (System.nanoTime() - begin) / 1e6;
+                    });
+                }
+                long begin = System.nanoTime();
+                int i = burst * WORKSTATIONS;
+                for (Future<Double> request : executor.invokeAll(requests)) {
+                    millis[i++] = request.get();
+                }
+                burstMillis += (System.nanoTime() - begin) / 1e6;
+            }
+            double reads = articleService.getPageLoads() - readsBefore;
+            double shared = articleService.getSharedPageLoads() - sharedBefore;
+            Arrays.sort(millis);
+            return new Result(reads / bursts, shared / bursts, burstMillis / bursts, millis[millis.length / 2], millis[(int) (millis.length * 0.99)]);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private record Result(double readsPerBurst, double sharedPerBurst, double burstMillis, double p50, double p99) {}
+}
@@ -0,0 +1,147 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+//Sends requests at a fixed rate (open loop) and records the latency per endpoint.
+//The next request is sent on time even if the earlier ones haven't been answered yet, and the latency is measured from
+//the time the request should have been sent. A closed loop (send, wait, send) slows down with the server and hides the
+//requests that would have waited in line behind a slow one, so its percentiles look much better than what users see.
+final class LoadGenerator {
+
+    //one request of the mix, endpoint is the name the latency is recorded under. onResponse gets the response, the body
+    //is only read when it is set
+    record Call(String endpoint, HttpRequest request, Consumer<HttpResponse<String>> onResponse) {
+
+        Call(String endpoint, HttpRequest request) {
+            this(endpoint, request, null);
+        }
+    }
+
+    record EndpointResult(String endpoint, long requests, long errors, double p50, double p95, double p99, double p999, double max) {}
+
+    record Result(double seconds, long sent, double throughput, long late, List<EndpointResult> endpoints) {}
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+
+    LoadGenerator() {
+        executor = Executors.newFixedThreadPool(4);
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    //sends ratePerSecond requests a second for the given time, next picks the request to send
+    Result run(int ratePerSecond, Duration duration, Function<SplittableRandom, Call> next) throws InterruptedException {
+        Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(42);
+        long interval = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long total = duration.toSeconds() * ratePerSecond;
+        //requests that were sent more than 10 ms late, if there are many the generator itself can't keep up
+        long late = 0;
+
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -TimeUnit.MILLISECONDS.toNanos(10)) {
+                late++;
+            }
+            Call call = next.apply(random);
+            Recorder recorder = recorders.computeIfAbsent(call.endpoint(), key -> new Recorder());
+            //4xx answers (subtracting more than there is for example) are normal answers, only 5xx and failed requests are errors
+            if (call.onResponse() == null) {
+                inFlight.add(client.sendAsync(call.request(), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> recorder.record(System.nanoTime() - intended,
+                                error != null || response.statusCode() >= 500)));
+            } else {
+                inFlight.add(client.sendAsync(call.request(), HttpResponse.BodyHandlers.ofString())
+                        .whenComplete((response, error) -> {
+                            recorder.record(System.nanoTime() - intended, error != null || response.statusCode() >= 500);
+                            if (error == null) {
+                                call.onResponse().accept(response);
+                            }
+                        }));
+            }
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            //timed out or failed requests are already counted as errors, the report is still useful
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<EndpointResult> endpoints = new ArrayList<>();
+        new TreeMap<>(recorders).forEach((endpoint, recorder) -> endpoints.add(recorder.result(endpoint)));
+        return new Result(seconds, total, total / seconds, late, endpoints);
+    }
+
+    void close() {
+        executor.shutdownNow();
+    }
+
+    static void print(Result result) {
+        System.out.printf("%n%d requests in %.1f s, %.0f requests/s, %d sent more than 10 ms late%n",
+                result.sent(), result.seconds(), result.throughput(), result.late());
+        System.out.printf("%-16s %9s %7s %9s %9s %9s %9s %9s%n", "endpoint (ms)", "requests", "errors", "p50", "p95", "p99", "p99.9", "max");
+        for (EndpointResult endpoint : result.endpoints()) {
+            System.out.printf("%-16s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", endpoint.endpoint(), endpoint.requests(),
+                    endpoint.errors(), endpoint.p50(), endpoint.p95(), endpoint.p99(), endpoint.p999(), endpoint.max());
+        }
+    }
+
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void record(long nanos, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (error) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized EndpointResult result(String endpoint) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new EndpointResult(endpoint, count, errors.get(), percentile(sorted, 50), percentile(sorted, 95),
+                    percentile(sorted, 99), percentile(sorted, 99.9), count == 0 ? 0 : sorted[count - 1] / 1e6);
+        }
+
+        //nearest rank, in milliseconds
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(rank - 1, 0)] / 1e6;
+        }
+    }
+}
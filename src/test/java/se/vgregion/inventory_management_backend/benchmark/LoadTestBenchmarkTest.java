@@ -0,0 +1,208 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Starts the whole application on a random port, seeds the articles and sends a mix of requests to every endpoint of the
+//ArticleController at a fixed rate, then prints p50/p95/p99/p99.9 per endpoint. Everything runs on this machine, no network needed.
+//Import and export are left out, they are bulk jobs and have their own benchmarks.
+//
+//Run with: mvn test -Pbenchmark -Dtest=LoadTestBenchmarkTest
+//and change the load with for example -Dloadtest.articles=1000000 -Dloadtest.rate=300 -Dloadtest.seconds=60
+//-Dloadtest.mix=list=40,getById=60 sends only those two, the weights don't have to add up to 100.
+//pollList and pollById aren't in the default mix, they poll like the frontend does and send the ETag of the last answer in If-None-Match.
+//The result is also written as json to target/loadtest-result.json.
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTestBenchmarkTest {
+
+    private static final String DEFAULT_MIX = "list=25,search=15,suggest=5,getById=25,lowStock=3,stats=2,cacheStats=1,"
+            + "patchAdd=8,patchSubtract=6,put=4,stockMovements=2,create=2,delete=2";
+    private static final ECategory[] CATEGORIES = ECategory.values();
+    private static final Pattern CREATED_ID = Pattern.compile("\"id\":(\\d+)");
+    private static final String[] SEARCHES = {"gloves", "syringe", "mask 0001", "tape", "saline swab", "scalpel"};
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${loadtest.articles:100000}")
+    private int articles;
+
+    @Value("${loadtest.rate:100}")
+    private int rate;
+
+    @Value("${loadtest.seconds:30}")
+    private int seconds;
+
+    @Value("${loadtest.warmup-seconds:10}")
+    private int warmupSeconds;
+
+    @Value("${loadtest.mix:" + DEFAULT_MIX + "}")
+    private String mix;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private long[] ids;
+    //articles made by create, delete removes them again so the seeded ones stay
+    private final ConcurrentLinkedQueue<Long> created = new ConcurrentLinkedQueue<>();
+    private final AtomicLong createdCount = new AtomicLong();
+    //the last ETag seen for each url polled by pollList and pollById
+    private final Map<String, String> eTags = new ConcurrentHashMap<>();
+
+    @Test
+    void mixedTraffic() throws Exception {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, articles);
+        articleIndexer.rebuild();
+        ids = jdbcTemplate.queryForList("SELECT id FROM article ORDER BY id", Long.class).stream().mapToLong(Long::longValue).toArray();
+
+        Map<String, Integer> weights = parseMix(mix);
+        LoadGenerator generator = new LoadGenerator();
+        try {
+            generator.run(rate, Duration.ofSeconds(warmupSeconds), random -> next(weights, random));
+            LoadGenerator.Result result = generator.run(rate, Duration.ofSeconds(seconds), random -> next(weights, random));
+
+            System.out.printf("%n%d articles, target %d requests/s, mix %s", articles, rate, mix);
+            LoadGenerator.print(result);
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("articles", articles);
+            report.put("rate", rate);
+            report.put("mix", weights);
+            report.put("result", result);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File("target/loadtest-result.json"), report);
+        } finally {
+            generator.close();
+        }
+    }
+
+    private LoadGenerator.Call next(Map<String, Integer> weights, SplittableRandom random) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(total);
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return call(weight.getKey(), random);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private LoadGenerator.Call call(String endpoint, SplittableRandom random) {
+        int row = random.nextInt(ids.length);
+        long id = ids[row];
+        return switch (endpoint) {
+            //mostly the first pages, the way people use the list
+            case "list" -> get(endpoint, "?page=" + Math.min(random.nextInt(10), random.nextInt(10)) + "&size=20&categoryFilter="
+                    + (random.nextBoolean() ? "ALL" : CATEGORIES[random.nextInt(CATEGORIES.length)].name())
+                    + (random.nextInt(10) == 0 ? "&onlyLowStockArticles=true" : ""));
+            case "search" -> get(endpoint, "?size=20&search=" + SEARCHES[random.nextInt(SEARCHES.length)].replace(" ", "%20"));
+            case "suggest" -> get(endpoint, "/suggest?prefix=" + SEARCHES[random.nextInt(SEARCHES.length)].substring(0, 3));
+            case "getById" -> get(endpoint, "/" + id);
+            //the polls go to a small set of articles and the first pages, the ones the open screens show
+            case "pollById" -> poll(endpoint, "/" + ids[random.nextInt(Math.min(ids.length, 1000))]);
+            case "pollList" -> poll(endpoint, "?page=" + random.nextInt(3) + "&size=20");
+            case "lowStock" -> get(endpoint, "/low-stock?limit=100");
+            case "stats" -> get(endpoint, "/stats");
+            case "cacheStats" -> get(endpoint, "/cache-stats");
+            case "patchAdd" -> send(endpoint, "PATCH", "/" + id + "/changeAmount/add", "{\"amount\":" + (1 + random.nextInt(5)) + "}");
+            case "patchSubtract" -> send(endpoint, "PATCH", "/" + id + "/changeAmount/subtract", "{\"amount\":1}");
+            //the same category as the seeder gave the row, a PUT has to send one
+            case "put" -> send(endpoint, "PUT", "/" + id, "{\"minimumAmount\":" + random.nextInt(100)
+                    + ",\"category\":\"" + CATEGORIES[row % CATEGORIES.length] + "\"}");
+            case "stockMovements" -> send(endpoint, "POST", "/stock-movements", movements(random));
+            case "create" -> create();
+            case "delete" -> {
+                Long createdId = created.poll();
+                yield createdId == null ? create() : send(endpoint, "DELETE", "/" + createdId, null);
+            }
+            default -> throw new IllegalArgumentException("Unknown endpoint in loadtest.mix: " + endpoint);
+        };
+    }
+
+    //the id of the new article is read from the response, so delete can remove it later
+    private LoadGenerator.Call create() {
+        LoadGenerator.Call call = send("create", "POST", "", "{\"name\":\"loadtest " + createdCount.incrementAndGet()
+                + "\",\"amount\":10,\"minimumAmount\":5,\"unit\":\"PIECES\",\"category\":\"OTHER\"}");
+        return new LoadGenerator.Call(call.endpoint(), call.request(), response -> {
+            Matcher id = CREATED_ID.matcher(response.body());
+            if (id.find()) {
+                created.add(Long.parseLong(id.group(1)));
+            }
+        });
+    }
+
+    private String movements(SplittableRandom random) {
+        List<String> movements = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            movements.add("{\"id\":" + ids[random.nextInt(ids.length)] + ",\"delta\":" + (random.nextInt(11) - 5) + "}");
+        }
+        return "{\"movements\":[" + String.join(",", movements) + "]}";
+    }
+
+    private LoadGenerator.Call get(String endpoint, String path) {
+        return new LoadGenerator.Call(endpoint, HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(30)).GET().build());
+    }
+
+    private LoadGenerator.Call poll(String endpoint, String path) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(30)).GET();
+        String eTag = eTags.get(path);
+        if (eTag != null) {
+            request.header("If-None-Match", eTag);
+        }
+        return new LoadGenerator.Call(endpoint, request.build(),
+                response -> response.headers().firstValue("ETag").ifPresent(value -> eTags.put(path, value)));
+    }
+
+    private LoadGenerator.Call send(String endpoint, String method, String path, String json) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(30));
+        if (json == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(json));
+        }
+        return new LoadGenerator.Call(endpoint, request.build());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/api/articles" + path);
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] weight = part.trim().split("=");
+            weights.put(weight[0], Integer.parseInt(weight[1]));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,77 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.cache.ArticlePageCache;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.function.IntSupplier;
+
+//The low-stock list over 1 000 000 articles (first about 5% of them low on stock, then 0.05%),
+//the old two column comparison against the stored low_stock column. The old query is run straight through jdbc since the column comparison isn't in the code anymore.
+//Run with: mvn test -Pbenchmark -Dtest=LowStockBenchmarkTest
+@Tag("benchmark")
+//h2 keeps the result of a query and gives it back when the same query runs again on unchanged tables, that would hide the scans
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:lowstock;OPTIMIZE_REUSE_RESULTS=FALSE")
+class LowStockBenchmarkTest {
+
+    private static final int ARTICLES = 1_000_000;
+    private static final int RUNS = 20;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticlePageCache articlePageCache;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lowStockList() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, ARTICLES);
+        articleIndexer.rebuild();
+        compare();
+
+        //with few low-stock articles the old query has to go through almost the whole table before it has found them all
+        jdbcTemplate.update("DELETE FROM article WHERE low_stock = true AND MOD(id, 97) <> 0");
+        compare();
+    }
+
+    private void compare() {
+        long lowStock = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM article WHERE low_stock = true", Long.class);
+
+        long articles = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM article", Long.class);
+
+        System.out.printf("%n%d articles, %d low on stock, average of %d runs%n", articles, lowStock, RUNS);
+        System.out.printf("%-44s %10s %8s%n", "", "ms", "rows");
+        for (int limit : new int[]{10, 1000, 10_000}) {
+            print("amount <= minimum_amount, limit " + limit, () -> jdbcTemplate.queryForList(
+                    "SELECT id, name, amount, minimum_amount, unit, category, created_at, updated_at FROM article " +
+                            "WHERE amount <= minimum_amount ORDER BY name LIMIT ?", limit).size());
+            print("GET /low-stock, limit " + limit, () -> articleService.getLowStockArticles(limit).size());
+        }
+        //the first page of the list view with onlyLowStockArticles, without the page cache
+        print("list page onlyLowStock, size 10", () -> {
+            articlePageCache.clear();
+            return articleService.getAllArticlesPaginated(0, 10, null, true, "ALL", "name", "asc").getContent().size();
+        });
+    }
+
+    private void print(String label, IntSupplier query) {
+        int rows = query.getAsInt();
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            rows = query.getAsInt();
+        }
+        System.out.printf("%-44s %10.1f %8d%n", label, (System.nanoTime() - start) / 1e6 / RUNS, rows);
+    }
+}
@@ -0,0 +1,72 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.index.ArticleNameIndex;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Substring search latency of the trigram index compared to scanning every name like LIKE '%term%' has to.
+//Run with: mvn test -Pbenchmark -Dtest=NameSearchBenchmarkTest
+@Tag("benchmark")
+class NameSearchBenchmarkTest {
+
+    private static final int ARTICLES = Integer.getInteger("benchmark.articles", 1_000_000);
+    private static final int ROUNDS = 200;
+
+    @Test
+    void trigramIndexVersusScan() {
+        ArticleNameIndex index = new ArticleNameIndex();
+        String[] names = new String[ARTICLES];
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < ARTICLES; i++) {
+            names[i] = ArticleSeeder.name(i).toLowerCase(Locale.ROOT);
+            index.apply(null, new ArticleSnapshot((long) i + 1, ArticleSeeder.name(i), 1, 1, EUnit.PIECES, ECategory.OTHER, null, null, 0));
+        }
+        index.markReady();
+        System.out.printf("%n%d articles, index built in %d ms%n", ARTICLES, (System.nanoTime() - buildStart) / 1_000_000);
+        System.out.printf("%-22s %8s %12s %12s%n", "term", "matches", "index ms", "scan ms");
+
+        //a unique article, a term without matches, a term that hits one in 300 articles and one that hits one in 18
+        for (String term : new String[]{"0123456", "swab 012345", "needle tape 00", "syringe"}) {
+            List<Long> ids = index.search(term, Integer.MAX_VALUE);
+            int scanned = scan(names, term);
+            assertEquals(scanned, ids.size());
+
+            double indexMs = median(() -> index.search(term, Integer.MAX_VALUE));
+            double scanMs = median(() -> scan(names, term));
+            System.out.printf("%-22s %8d %12.4f %12.4f%n", term, ids.size(), indexMs, scanMs);
+        }
+    }
+
+    private static int scan(String[] names, String term) {
+        int matches = 0;
+        for (String name : names) {
+            if (name.contains(term)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static double median(Runnable call) {
+        for (int i = 0; i < 20; i++) {
+            call.run();
+        }
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            call.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / 1_000_000.0;
+    }
+}
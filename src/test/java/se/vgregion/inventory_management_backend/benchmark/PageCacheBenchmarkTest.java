@@ -0,0 +1,84 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.cache.ArticlePageCache;
+import se.vgregion.inventory_management_backend.dto.CacheStatsDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.DoubleSupplier;
+
+//The dashboard mix: the first page, the low stock page and the first page of every category, over 100 000 articles.
+//Without the page cache (cleared before every request), with it, and with it while 1 in 100 requests is a write.
+//Run with: mvn test -Pbenchmark -Dtest=PageCacheBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class PageCacheBenchmarkTest {
+
+    private static final int REQUESTS = 20_000;
+    private static final List<String> CATEGORIES = List.of("ALL", "CLEANING", "CONSUMABLE", "EQUIPMENT", "MEDICATION", "OTHER");
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticlePageCache articlePageCache;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void dashboardRequests() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 100_000);
+        articleIndexer.rebuild();
+        long firstId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM article", Long.class);
+
+        run(false, 0, firstId);
+
+        System.out.printf("%n%d dashboard requests on 100 000 articles%n", REQUESTS);
+        System.out.printf("%-28s %12s %10s%n", "", "requests/s", "hit rate");
+        System.out.printf("%-28s %12.0f %10s%n", "without page cache", run(false, 0, firstId), "-");
+        print("page cache", () -> run(true, 0, firstId));
+        print("page cache, 1% writes", () -> run(true, 100, firstId));
+    }
+
+    private void print(String label, DoubleSupplier run) {
+        CacheStatsDTO before = articleService.getPageCacheStats();
+        double perSecond = run.getAsDouble();
+        CacheStatsDTO after = articleService.getPageCacheStats();
+        long hits = after.hits() - before.hits();
+        long misses = after.misses() - before.misses();
+        System.out.printf("%-28s %12.0f %9.1f%%%n", label, perSecond, 100.0 * hits / (hits + misses));
+    }
+
+    private double run(boolean cached, int writeEvery, long writeId) {
+        SplittableRandom random = new SplittableRandom(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            if (!cached) {
+                articlePageCache.clear();
+            }
+            if (writeEvery > 0 && i % writeEvery == 0) {
+                articleService.patchArticleAmountAdd(writeId, new PatchAmountDTO(1));
+            }
+            int pick = random.nextInt(CATEGORIES.size() + 1);
+            if (pick == CATEGORIES.size()) {
+                articleService.getAllArticlesPaginated(0, 10, null, true, "ALL", "name", "asc");
+            } else {
+                articleService.getAllArticlesPaginated(0, 10, null, false, CATEGORIES.get(pick), "name", "asc");
+            }
+        }
+        return REQUESTS / ((System.nanoTime() - start) / 1e9);
+    }
+}
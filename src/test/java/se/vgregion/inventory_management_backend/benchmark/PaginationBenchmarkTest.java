@@ -0,0 +1,103 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.cache.ArticleCountCache;
+import se.vgregion.inventory_management_backend.cache.ArticlePageCache;
+import se.vgregion.inventory_management_backend.dto.ArticleCursorPageDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.services.ArticleCursor;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Compares offset and keyset (cursor) pagination at page 1, 100 and 10 000.
+//Run with: mvn test -Pbenchmark -Dtest=PaginationBenchmarkTest (-Dbenchmark.articles=100000 for a quicker run)
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PaginationBenchmarkTest {
+
+    private static final int ARTICLES = Integer.getInteger("benchmark.articles", 1_000_000);
+    private static final int PAGE_SIZE = 20;
+    private static final int ROUNDS = 15;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArticlePageCache articlePageCache;
+
+    @Autowired
+    private ArticleCountCache articleCountCache;
+
+    @BeforeAll
+    void seed() {
+        ArticleSeeder.seed(jdbcTemplate, ARTICLES);
+    }
+
+    @Test
+    void offsetVersusKeyset() {
+        System.out.printf("%n%d articles, page size %d, median of %d rounds%n", ARTICLES, PAGE_SIZE, ROUNDS);
+        System.out.printf("%-10s %-6s %12s %12s%n", "sortBy", "page", "offset ms", "keyset ms");
+
+        for (String sortBy : new String[]{"name", "createdAt"}) {
+            for (int page : new int[]{1, 100, 10_000}) {
+                if ((long) page * PAGE_SIZE > ARTICLES) {
+                    continue;
+                }
+                //the cursor for page N points at the last article of page N - 1, it is taken from the offset query and isn't timed
+                String cursor = "";
+                if (page > 1) {
+                    Page<ArticleResponseDTO> previous = articleService.getAllArticlesPaginated(page - 2, PAGE_SIZE, null, false, "ALL", sortBy, "asc");
+                    ArticleResponseDTO last = previous.getContent().get(PAGE_SIZE - 1);
+                    Object value = "name".equals(sortBy) ? last.getName() : last.getCreatedAt();
+                    cursor = new ArticleCursor(sortBy, false, last.getId(), value).encode();
+                }
+
+                int offsetPage = page - 1;
+                String pageCursor = cursor;
+                //without the page and count caches, otherwise every offset round after the first is a cache hit
+                double offsetMs = median(() -> {
+                    articlePageCache.clear();
+                    articleCountCache.clear();
+                    articleService.getAllArticlesPaginated(offsetPage, PAGE_SIZE, null, false, "ALL", sortBy, "asc");
+                });
+                double keysetMs = median(() -> articleService.getArticlesByCursor(pageCursor, PAGE_SIZE, null, false, "ALL", sortBy, "asc"));
+
+                //both modes have to return the same page
+                Page<ArticleResponseDTO> offset = articleService.getAllArticlesPaginated(offsetPage, PAGE_SIZE, null, false, "ALL", sortBy, "asc");
+                ArticleCursorPageDTO keyset = articleService.getArticlesByCursor(pageCursor, PAGE_SIZE, null, false, "ALL", sortBy, "asc");
+                assertEquals(offset.getContent().get(0).getId(), keyset.getContent().get(0).getId());
+
+                System.out.printf("%-10s %-6d %12.2f %12.2f%n", sortBy, page, offsetMs, keysetMs);
+            }
+        }
+    }
+
+    private double median(Runnable call) {
+        //warm up first so that the jit and the h2 caches don't end up in the numbers
+        for (int i = 0; i < 3; i++) {
+            call.run();
+        }
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            call.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,110 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+//Bytes allocated (and time) for reading one page of 200 articles into ArticleResponseDTOs, the way the list did it before
+//(managed Article entities that are copied into DTOs) against the snapshot projection it uses now.
+//The first two run the query of findArticlesWithFilters in a read-only transaction, only the SELECT differs.
+//The database is h2 in the same jvm, so its allocations for the query are in the numbers too.
+//Run with: mvn test -Pbenchmark -Dtest=ReadPathAllocationBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class ReadPathAllocationBenchmarkTest {
+
+    private static final int PAGE_SIZE = 200;
+    private static final int ROUNDS = 2_000;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void entitiesVersusSnapshots() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 10_000);
+        TransactionTemplate readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+
+        Supplier<List<ArticleResponseDTO>> entities = () -> readTransaction.execute(status -> entityManager
+                .createQuery("SELECT a FROM Article a WHERE " + ArticleRepository.FILTERS + " ORDER BY a.name", Article.class)
+                .setParameter("search", null)
+                .setParameter("categoryFilter", null)
+                .setParameter("onlyLowStock", false)
+                .setMaxResults(PAGE_SIZE + 1)
+                .getResultList().stream()
+                .limit(PAGE_SIZE)
+                .map(ArticleResponseDTO::new)
+                .toList());
+        Supplier<List<ArticleResponseDTO>> snapshots = () -> readTransaction.execute(status -> entityManager
+                .createQuery(ArticleRepository.SNAPSHOT + "FROM Article a WHERE " + ArticleRepository.FILTERS + " ORDER BY a.name", ArticleSnapshot.class)
+                .setParameter("search", null)
+                .setParameter("categoryFilter", null)
+                .setParameter("onlyLowStock", false)
+                .setMaxResults(PAGE_SIZE + 1)
+                .getResultList().stream()
+                .limit(PAGE_SIZE)
+                .map(ArticleResponseDTO::new)
+                .toList());
+        //the same through the repository method the list uses, with the Slice and the sort from the Pageable
+        Supplier<List<ArticleResponseDTO>> repository = () -> readTransaction.execute(status -> articleRepository
+                .findArticlesWithFilters(null, null, false, PageRequest.of(0, PAGE_SIZE, Sort.by("name")))
+                .map(ArticleResponseDTO::new)
+                .getContent());
+
+        //warm up, so the jit and the query plan caches are done before measuring
+        measure(entities);
+        measure(snapshots);
+        measure(repository);
+
+        System.out.printf("%n%d rounds of one page of %d articles%n", ROUNDS, PAGE_SIZE);
+        System.out.printf("%-24s %14s %12s%n", "", "bytes/request", "us/request");
+        print("managed entities", measure(entities));
+        print("snapshots", measure(snapshots));
+        print("findArticlesWithFilters", measure(repository));
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-24s %14d %12.1f%n", label, result.bytesPerRequest(), result.microsPerRequest());
+    }
+
+    private Result measure(Supplier<List<ArticleResponseDTO>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            if (read.get().size() != PAGE_SIZE) {
+                throw new IllegalStateException("expected a full page");
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        return new Result((threads.getThreadAllocatedBytes(thread) - bytesBefore) / ROUNDS, nanos / 1_000.0 / ROUNDS);
+    }
+
+    private record Result(long bytesPerRequest, double microsPerRequest) {}
+}
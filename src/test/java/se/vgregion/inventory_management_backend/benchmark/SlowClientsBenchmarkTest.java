@@ -0,0 +1,161 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.InventoryManagementBackendApplication;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//2000 slow clients that each send a POST /api/articles and take 3 seconds to send its body, like phones on a bad connection.
+//Meanwhile one fast client keeps asking for GET /api/articles/{id}. The application is started twice, once as it is (tomcat's
+//200 platform threads) and once with the virtual-threads profile, and the table shows how long the slow clients took all
+//together and how long the fast client had to wait.
+//With platform threads every slow body keeps a thread for its 3 seconds, so only 200 of them are read at a time and the fast
+//client waits behind the rest. With virtual threads every request gets its own, but on java 21 tomcat waits for the body with
+//Object.wait inside synchronized, which keeps the carrier thread. The jvm adds carriers for that, up to 256, so without
+//-Djdk.virtualThreadScheduler.maxPoolSize the fast client still waits behind the slow ones (see the readme).
+//The clients are platform threads, as virtual threads they would wait for the same carriers as the server.
+//Run with: mvn test -Pbenchmark -Dtest=SlowClientsBenchmarkTest
+//and with -Dslowclients.clients=400 for fewer clients, -DargLine="-Djdk.virtualThreadScheduler.maxPoolSize=2500" for more carriers.
+@Tag("benchmark")
+class SlowClientsBenchmarkTest {
+
+    private static final int SLOW_CLIENTS = Integer.getInteger("slowclients.clients", 2_000);
+    private static final int BODY_PARTS = 6;
+    private static final long MILLIS_BETWEEN_PARTS = 500;
+    private static final long MILLIS_BETWEEN_PROBES = 50;
+
+    @Test
+    void platformThreadsVersusVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%n%d clients that send their POST body in %d ms, one client doing GET /api/articles/{id} meanwhile%n",
+                SLOW_CLIENTS, BODY_PARTS * MILLIS_BETWEEN_PARTS);
+        System.out.printf("%-18s %10s %10s %12s %10s %10s %10s %10s%n",
+                "", "created", "failed", "all done ms", "GETs", "p50 ms", "p99 ms", "max ms");
+        print("platform threads", platform);
+        print("virtual threads", virtual);
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-18s %10d %10d %12d %10d %10.1f %10.1f %10.1f%n", label, result.created(), result.failed(),
+                result.millis(), result.probes().size(), percentile(result.probes(), 50), percentile(result.probes(), 99),
+                percentile(result.probes(), 100));
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(InventoryManagementBackendApplication.class)
+                .properties("server.port=0", "spring.jmx.enabled=false");
+        if (virtualThreads) {
+            builder.profiles("virtual-threads");
+        }
+        try (ConfigurableApplicationContext context = builder.run()) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            ArticleSeeder.seed(jdbcTemplate, 100);
+            long probeId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM article", Long.class);
+
+            HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(60)).build();
+            HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/articles/" + probeId))
+                    .timeout(Duration.ofSeconds(120)).build();
+            //warm up, so the first GET doesn't count the jit and the cache load
+            for (int i = 0; i < 200; i++) {
+                http.send(probe, HttpResponse.BodyHandlers.discarding());
+            }
+
+            AtomicBoolean slowClientsDone = new AtomicBoolean();
+            List<Double> probes = Collections.synchronizedList(new ArrayList<>());
+            Thread prober = Thread.ofPlatform().start(() -> {
+                try {
+                    while (!slowClientsDone.get()) {
+                        long start = System.nanoTime();
+                        http.send(probe, HttpResponse.BodyHandlers.discarding());
+                        probes.add((System.nanoTime() - start) / 1e6);
+                        Thread.sleep(MILLIS_BETWEEN_PROBES);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            String mode = virtualThreads ? "virtual" : "platform";
+            int created = 0;
+            int failed = 0;
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().stackSize(256 * 1024).factory())) {
+                List<Future<Integer>> statuses = new ArrayList<>();
+                for (int i = 0; i < SLOW_CLIENTS; i++) {
+                    String name = String.format("Slow client %s %04d", mode, i);
+                    statuses.add(clients.submit(() -> slowPost(port, name)));
+                }
+                for (Future<Integer> status : statuses) {
+                    if (status.get() == 201) {
+                        created++;
+                    } else {
+                        failed++;
+                    }
+                }
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            slowClientsDone.set(true);
+            prober.join();
+            return new Result(created, failed, millis, new ArrayList<>(probes));
+        }
+    }
+
+    //sends the headers right away and the body in BODY_PARTS parts, returns the status code of the answer
+    private static int slowPost(int port, String name) throws Exception {
+        byte[] body = ("{\"name\":\"" + name + "\",\"amount\":10,\"minimumAmount\":5,\"unit\":\"PIECES\",\"category\":\"CONSUMABLE\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(120_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /api/articles HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            int partSize = (body.length + BODY_PARTS - 1) / BODY_PARTS;
+            for (int offset = 0; offset < body.length; offset += partSize) {
+                Thread.sleep(MILLIS_BETWEEN_PARTS);
+                out.write(body, offset, Math.min(partSize, body.length - offset));
+                out.flush();
+            }
+            //HTTP/1.1 201
+            InputStream in = socket.getInputStream();
+            byte[] statusLine = in.readNBytes(12);
+            in.transferTo(OutputStream.nullOutputStream());
+            return statusLine.length == 12 ? Integer.parseInt(new String(statusLine, 9, 3, StandardCharsets.US_ASCII)) : -1;
+        }
+    }
+
+    private static double percentile(List<Double> values, double percentile) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private record Result(int created, int failed, long millis, List<Double> probes) {}
+}
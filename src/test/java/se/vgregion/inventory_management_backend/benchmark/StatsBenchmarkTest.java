@@ -0,0 +1,87 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+import se.vgregion.inventory_management_backend.index.ArticleStatsIndex;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+import se.vgregion.inventory_management_backend.services.ArticleStatsReconciler;
+import se.vgregion.inventory_management_backend.services.HotStockCounters;
+
+import java.util.List;
+
+//The stats over 1 000 000 articles: the way a client had to get them before (paging through everything with size 200 and
+//adding up), GET /stats from the running totals, and the reconciliation count with 1, 2 and 4 threads.
+//Run with: mvn test -Pbenchmark -Dtest=StatsBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class StatsBenchmarkTest {
+
+    private static final int ARTICLES = 1_000_000;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private ArticleStatsIndex articleStatsIndex;
+
+    @Autowired
+    private HotStockCounters hotStockCounters;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void stats() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, ARTICLES);
+        articleIndexer.rebuild();
+
+        System.out.printf("%n%d articles%n", ARTICLES);
+
+        long start = System.nanoTime();
+        long amount = 0;
+        String cursor = "";
+        do {
+            var page = articleService.getArticlesByCursor(cursor, 200, null, false, "ALL", "name", "asc");
+            for (ArticleResponseDTO article : page.getContent()) {
+                amount += article.getAmount();
+            }
+            cursor = page.isHasNext() ? page.getNextCursor() : null;
+        } while (cursor != null);
+        System.out.printf("%-36s %12.1f ms   (amount %d)%n", "paging through everything, size 200", (System.nanoTime() - start) / 1e6, amount);
+
+        int calls = 1_000_000;
+        for (int i = 0; i < calls; i++) {
+            articleService.getStats();
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            articleService.getStats();
+        }
+        System.out.printf("%-36s %12.2f us   (amount %d)%n", "GET /stats", (System.nanoTime() - start) / 1e3 / calls, articleService.getStats().total().amount());
+
+        for (int threads : List.of(1, 2, 4)) {
+            ArticleStatsReconciler reconciler = new ArticleStatsReconciler(articleRepository, articleStatsIndex, hotStockCounters,
+                    transactionManager, threads, 100_000);
+            reconciler.reconcile();
+            ArticleStatsReconciler.Result result = reconciler.reconcile();
+            System.out.printf("%-36s %12d ms   (%s)%n", "reconciliation, " + threads + " threads", result.millis(), result.outcome());
+        }
+    }
+}
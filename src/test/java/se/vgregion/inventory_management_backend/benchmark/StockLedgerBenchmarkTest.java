@@ -0,0 +1,124 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.enums.EMovementType;
+import se.vgregion.inventory_management_backend.models.StockMovement;
+import se.vgregion.inventory_management_backend.repository.StockMovementRepository;
+import se.vgregion.inventory_management_backend.services.StockLedger;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+//The two costs of the stock ledger.
+//Appending: movements/s when every movement is its own transaction (a PATCH) and when 50 or 500 are appended with one saveAll
+//(POST /stock-movements, the hot counter flush, the import), hibernate then sends the INSERTs in jdbc batches.
+//Rebuilding the amount of an article with 100 to 100 000 movements: adding up its whole history against its snapshot plus
+//the 10 movements that came after the last compaction.
+//Run with: mvn test -Pbenchmark -Dtest=StockLedgerBenchmarkTest
+@Tag("benchmark")
+//h2 would answer the same SUM twice from its last result, OPTIMIZE_REUSE_RESULTS=FALSE makes every rebuild read the rows
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledger;OPTIMIZE_REUSE_RESULTS=FALSE",
+        "inventory.ledger.compact-interval-ms=3600000"
+})
+class StockLedgerBenchmarkTest {
+
+    private static final int ARTICLES = 10_000;
+    private static final int MOVEMENTS = 20_000;
+    private static final int TAIL = 10;
+    private static final int REBUILDS = 200;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void appendAndRebuild() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        //warm up
+        append(transaction, 50, 2_000, 0);
+
+        System.out.printf("%n%d movements appended to random articles out of %d%n", MOVEMENTS, ARTICLES);
+        System.out.printf("%-28s %14s%n", "", "movements/s");
+        for (int batchSize : new int[]{1, 50, 500}) {
+            System.out.printf("%-28s %14.0f%n", batchSize == 1 ? "one per transaction" : "batch of " + batchSize,
+                    append(transaction, batchSize, MOVEMENTS, 0));
+        }
+        stockLedger.compact();
+
+        System.out.printf("%nrebuilding the amount of one article, %d times%n", REBUILDS);
+        System.out.printf("%-12s %18s %18s %22s%n", "movements", "full replay ms", "snapshot+tail ms", "snapshot+tail amount");
+        long articleId = 1_000_000;
+        for (int history : new int[]{100, 10_000, 100_000}) {
+            articleId++;
+            appendHistory(transaction, articleId, history);
+            stockLedger.compact();
+            appendHistory(transaction, articleId, TAIL);
+
+            long id = articleId;
+            double[] full = time(() -> stockMovementRepository.sumDeltasAfter(id, 0));
+            double[] compacted = time(() -> stockLedger.rebuildAmount(id));
+            System.out.printf("%-12d %18.3f %18.3f %22d%n", history + TAIL, median(full), median(compacted), stockLedger.rebuildAmount(id));
+        }
+        jdbcTemplate.update("DELETE FROM stock_movement");
+        jdbcTemplate.update("DELETE FROM stock_snapshot");
+    }
+
+    private double append(TransactionTemplate transaction, int batchSize, int movements, long seed) {
+        Random random = new Random(seed);
+        LocalDateTime now = LocalDateTime.now();
+        long start = System.nanoTime();
+        for (int done = 0; done < movements; done += batchSize) {
+            List<StockMovement> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(new StockMovement((long) random.nextInt(ARTICLES) + 1, EMovementType.ADD, 1, 1, now));
+            }
+            transaction.executeWithoutResult(status -> stockLedger.append(batch));
+        }
+        return movements / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private void appendHistory(TransactionTemplate transaction, long articleId, int movements) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int done = 0; done < movements; done += 500) {
+            List<StockMovement> batch = new ArrayList<>(500);
+            for (int i = done; i < Math.min(done + 500, movements); i++) {
+                batch.add(new StockMovement(articleId, EMovementType.ADD, 1, i + 1, now));
+            }
+            transaction.executeWithoutResult(status -> stockLedger.append(batch));
+        }
+    }
+
+    private static double[] time(Runnable rebuild) {
+        double[] millis = new double[REBUILDS];
+        for (int i = 0; i < REBUILDS; i++) {
+            long start = System.nanoTime();
+            rebuild.run();
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        return millis;
+    }
+
+    private static double median(double[] millis) {
+        Arrays.sort(millis);
+        return millis[millis.length / 2];
+    }
+}
@@ -0,0 +1,70 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementDTO;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//Stock movements per second through POST /stock-movements with batches of 1, 50 and 500 movements,
+//against one PATCH .../changeAmount/add per movement. Random articles out of 10 000.
+//Run with: mvn test -Pbenchmark -Dtest=StockMovementBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class StockMovementBenchmarkTest {
+
+    private static final int ARTICLES = 10_000;
+    private static final int MOVEMENTS = 20_000;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void movementsPerSecondByBatchSize() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, ARTICLES);
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM article", Long.class);
+
+        //warm up
+        runBatches(ids, 50, 2_000);
+
+        System.out.printf("%n%d movements on random articles out of %d%n", MOVEMENTS, ARTICLES);
+        System.out.printf("%-22s %14s%n", "", "movements/s");
+        System.out.printf("%-22s %14.0f%n", "PATCH one at a time", runPatches(ids));
+        for (int batchSize : new int[]{1, 50, 500}) {
+            System.out.printf("%-22s %14.0f%n", "batch of " + batchSize, runBatches(ids, batchSize, MOVEMENTS));
+        }
+    }
+
+    private double runPatches(List<Long> ids) {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < MOVEMENTS; i++) {
+            articleService.patchArticleAmountAdd(ids.get(random.nextInt(ids.size())), new PatchAmountDTO(1));
+        }
+        return MOVEMENTS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private double runBatches(List<Long> ids, int batchSize, int movements) {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int done = 0; done < movements; done += batchSize) {
+            List<StockMovementDTO> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(new StockMovementDTO(ids.get(random.nextInt(ids.size())), 1));
+            }
+            articleService.applyStockMovements(batch);
+        }
+        return movements / ((System.nanoTime() - start) / 1e9);
+    }
+}
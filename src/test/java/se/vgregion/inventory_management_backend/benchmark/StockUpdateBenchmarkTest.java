@@ -0,0 +1,96 @@
+package se.vgregion.inventory_management_backend.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.repository.ArticleRepository;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//64 threads adding to the same article, the old read-modify-write (findById, setAmount, save) against the atomic UPDATE.
+//Run with: mvn test -Pbenchmark -Dtest=StockUpdateBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+class StockUpdateBenchmarkTest {
+
+    private static final int THREADS = 64;
+    private static final int CHANGES_PER_THREAD = 200;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void readModifyWriteVersusAtomicUpdate() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Long oldId = articleService.addArticle(new CreateArticleDTO("Gloves (read-modify-write)", 0, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        Long atomicId = articleService.addArticle(new CreateArticleDTO("Gloves (atomic)", 0, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+
+        //the way patchArticleAmountAdd used to work
+        Result old = run(() -> transaction.executeWithoutResult(status -> {
+            Article article = articleRepository.findById(oldId).orElseThrow();
+            article.setAmount(article.getAmount() + 1);
+            articleRepository.save(article);
+        }));
+        Result atomic = run(() -> articleService.patchArticleAmountAdd(atomicId, new PatchAmountDTO(1)));
+
+        int expected = THREADS * CHANGES_PER_THREAD;
+        System.out.printf("%n%d threads x %d adds of 1 to one article%n", THREADS, CHANGES_PER_THREAD);
+        System.out.printf("%-18s %12s %10s %12s%n", "", "changes/s", "failed", "lost");
+        System.out.printf("%-18s %12.0f %10d %12d%n", "read-modify-write", old.perSecond(), old.failed(),
+                expected - old.failed() - articleService.getArticleById(oldId).getAmount());
+        System.out.printf("%-18s %12.0f %10d %12d%n", "atomic update", atomic.perSecond(), atomic.failed(),
+                expected - atomic.failed() - articleService.getArticleById(atomicId).getAmount());
+    }
+
+    private Result run(Runnable change) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                        try {
+                            change.run();
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(THREADS * CHANGES_PER_THREAD / seconds, failed.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private record Result(double perSecond, int failed) {}
+}
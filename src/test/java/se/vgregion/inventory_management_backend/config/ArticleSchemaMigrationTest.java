@@ -0,0 +1,73 @@
+package se.vgregion.inventory_management_backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import se.vgregion.inventory_management_backend.InventoryManagementBackendApplication;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//A database that was created before the sequence ids, the low_stock column and the version column, with
+//spring.jpa.hibernate.ddl-auto=update. Hibernate adds the columns and creates article_seq at 1, the migration has to make it usable.
+class ArticleSchemaMigrationTest {
+
+    private static final String URL = "jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void legacyDatabase_getsNewIdsAfterTheOldOnesAndBackfilledColumns() {
+        startOnLegacyDatabase(false);
+    }
+
+    //started once with a version that had the sequence but not the migration, hibernate made article_seq at 1
+    @Test
+    void sequenceAtOne_isMovedAfterTheOldIds() {
+        startOnLegacyDatabase(true);
+    }
+
+    private void startOnLegacyDatabase(boolean withSequence) {
+        JdbcTemplate legacy = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        if (withSequence) {
+            legacy.execute("CREATE SEQUENCE article_seq START WITH 1 INCREMENT BY 50");
+        }
+        //the table as hibernate made it with IDENTITY ids
+        legacy.execute("CREATE TABLE article (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, amount INTEGER NOT NULL, " +
+                "minimum_amount INTEGER NOT NULL, created_at TIMESTAMP(6), updated_at TIMESTAMP(6), name VARCHAR(255) UNIQUE, " +
+                "unit TINYINT, category TINYINT)");
+        for (int i = 1; i <= 120; i++) {
+            legacy.update("INSERT INTO article (amount, minimum_amount, created_at, updated_at, name, unit, category) " +
+                    "VALUES (?, 10, LOCALTIMESTAMP, LOCALTIMESTAMP, ?, 0, 0)", i % 20, "Legacy " + i);
+        }
+
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(InventoryManagementBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jmx.enabled=false", "spring.datasource.url=" + URL, "spring.jpa.hibernate.ddl-auto=update");
+        try (ConfigurableApplicationContext context = builder.run()) {
+            ArticleService articleService = context.getBean(ArticleService.class);
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM article WHERE low_stock IS NULL " +
+                    "OR low_stock <> (amount <= minimum_amount)", Integer.class));
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM article WHERE version IS NULL", Integer.class));
+
+            //more than one block of ids, every one of them after the old ids
+            for (int i = 0; i < 60; i++) {
+                Long id = articleService.addArticle(new CreateArticleDTO("New " + i, 5, 1, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+                assertTrue(id > 120, "new article got the id " + id);
+            }
+
+            //an old article can be changed like any other
+            assertEquals(16, articleService.patchArticleAmountAdd(5L, new PatchAmountDTO(11)).getAmount());
+            assertEquals(1L, articleService.getArticleById(5L).getVersion());
+        } finally {
+            legacy.execute("DROP ALL OBJECTS");
+        }
+    }
+}
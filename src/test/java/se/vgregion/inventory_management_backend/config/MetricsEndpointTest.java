@@ -0,0 +1,62 @@
+package se.vgregion.inventory_management_backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//scrapes /actuator/prometheus after a list request, every query counts as slow with the threshold at 0.
+//The hibernate statistics behind the metrics don't log every session.
+@SpringBootTest(properties = "inventory.slow-query.threshold-ms=0")
+@AutoConfigureMockMvc
+//tests don't export metrics unless this is there
+@AutoConfigureObservability
+@ExtendWith(OutputCaptureExtension.class)
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void prometheusEndpoint_hasRequestServiceQueryHibernatePoolAndCacheMetrics(CapturedOutput output) throws Exception {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 20);
+        mockMvc.perform(get("/api/articles?page=0&size=5")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        for (String metric : new String[]{
+                "http_server_requests_seconds_count{",
+                "inventory_service_seconds_count{",
+                "method=\"getAllArticlesPaginated\"",
+                "inventory_query_seconds_bucket{",
+                "inventory_query_slow_total{",
+                "query=\"findArticlesWithFilters\"",
+                "hibernate_statements_total",
+                "hibernate_flushes_total",
+                "hikaricp_connections_active",
+                "inventory_cache_hits_total{cache=\"page\"",
+                "inventory_cache_size{cache=\"article\""
+        }) {
+            assertTrue(scrape.contains(metric), "missing " + metric);
+        }
+        assertFalse(output.getAll().contains("Session Metrics"), "hibernate logs its session metrics");
+    }
+}
@@ -0,0 +1,50 @@
+package se.vgregion.inventory_management_backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+//with the virtual-threads profile tomcat hands the requests to virtual threads and the pool gets the size from the defaults
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(VirtualThreadsEnvironmentDefaults.PROFILE)
+class VirtualThreadsProfileTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void virtualThreadsProfile_runsRequestsOnVirtualThreadsWithASizedPool() {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        assertInstanceOf(VirtualThreadExecutor.class, webServer.getTomcat().getConnector().getProtocolHandler().getExecutor());
+
+        int expectedPoolSize = Math.max(10, 2 * Runtime.getRuntime().availableProcessors());
+        assertEquals(expectedPoolSize, ((HikariDataSource) dataSource).getMaximumPoolSize());
+
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 5);
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/api/articles?page=0&size=5", String.class).getStatusCode());
+    }
+}
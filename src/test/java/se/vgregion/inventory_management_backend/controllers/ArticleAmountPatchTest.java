@@ -0,0 +1,75 @@
+package se.vgregion.inventory_management_backend.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//the status codes of the add/subtract patches when the single UPDATE changes no row
+@SpringBootTest
+@AutoConfigureMockMvc
+class ArticleAmountPatchTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    private long id;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 1);
+        articleIndexer.rebuild();
+        id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM article", Long.class);
+    }
+
+    @Test
+    void patchAmount_missingArticle_returns404() throws Exception {
+        mockMvc.perform(patchAmount(id + 1, "add", 5))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.message").value("Article not found with id: " + (id + 1)));
+        mockMvc.perform(patchAmount(id + 1, "subtract", 5))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("NOT_FOUND"));
+    }
+
+    //the new amount has to fit in the int column, like in the stock movements
+    @Test
+    void patchAmountAdd_tooLarge_returns400() throws Exception {
+        jdbcTemplate.update("UPDATE article SET amount = ? WHERE id = ?", Integer.MAX_VALUE - 10, id);
+
+        mockMvc.perform(patchAmount(id, "add", 100))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Amount is too large!"));
+        assertEquals(Integer.MAX_VALUE - 10, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE id = ?", Integer.class, id));
+
+        mockMvc.perform(patchAmount(id, "add", 10))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.amount").value(Integer.MAX_VALUE));
+    }
+
+    private static MockHttpServletRequestBuilder patchAmount(long id, String change, int amount) {
+        return patch("/api/articles/" + id + "/changeAmount/" + change)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"amount\": " + amount + "}");
+    }
+}
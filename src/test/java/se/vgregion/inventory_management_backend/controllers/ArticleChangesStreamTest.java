@@ -0,0 +1,114 @@
+package se.vgregion.inventory_management_backend.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.InventoryManagementBackendApplication;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.services.ArticleService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//a real client on GET /api/articles/changes sees a patch and a delete as change events, a second client gets a 503 with max-subscribers=1.
+//An open stream doesn't hold up the shutdown.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "inventory.changes.max-subscribers=1")
+class ArticleChangesStreamTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void changesStream_sendsCommittedChangesAndLimitsSubscribers() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 1);
+        long id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM article", Long.class);
+        int amount = jdbcTemplate.queryForObject("SELECT amount FROM article WHERE id = ?", Integer.class, id);
+
+        HttpClient http = HttpClient.newHttpClient();
+        HttpRequest changes = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/articles/changes")).build();
+
+        List<JsonNode> events = assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            HttpResponse<Stream<String>> stream = http.send(changes, HttpResponse.BodyHandlers.ofLines());
+            try (Stream<String> lines = stream.body()) {
+                assertEquals(200, stream.statusCode());
+                assertTrue(stream.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+                assertEquals(503, http.send(changes, HttpResponse.BodyHandlers.discarding()).statusCode());
+
+                articleService.patchArticleAmountAdd(id, new PatchAmountDTO(5));
+                articleService.deleteArticle(id);
+
+                List<JsonNode> received = new ArrayList<>();
+                Iterator<String> line = lines.iterator();
+                while (received.size() < 2) {
+                    if (line.next().equals("event:change")) {
+                        received.add(objectMapper.readTree(line.next().substring("data:".length())));
+                    }
+                }
+                return received;
+            }
+        });
+
+        JsonNode patched = events.get(0);
+        assertEquals(id, patched.get("id").asLong());
+        assertEquals(amount + 5, patched.get("amount").asInt());
+        assertTrue(patched.has("lowStock"));
+        assertTrue(patched.has("updatedAt"));
+        assertFalse(patched.has("deleted"));
+
+        JsonNode deleted = events.get(1);
+        assertEquals(id, deleted.get("id").asLong());
+        assertTrue(deleted.get("deleted").asBoolean());
+        assertFalse(deleted.has("amount"));
+    }
+
+    //the graceful shutdown waits for the open requests (30 seconds by default), the streams are ended before it starts
+    @Test
+    void closingTheApplication_endsOpenStreamsRightAway() throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(InventoryManagementBackendApplication.class)
+                .properties("server.port=0", "spring.jmx.enabled=false");
+        ConfigurableApplicationContext context = builder.run();
+        try {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            HttpRequest changes = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/articles/changes")).build();
+            HttpResponse<Stream<String>> stream = HttpClient.newHttpClient().send(changes, HttpResponse.BodyHandlers.ofLines());
+            assertEquals(200, stream.statusCode());
+
+            assertTimeoutPreemptively(Duration.ofSeconds(10), context::close);
+            try (Stream<String> lines = stream.body()) {
+                assertTimeoutPreemptively(Duration.ofSeconds(5), () -> lines.count());
+            }
+        } finally {
+            context.close();
+        }
+    }
+}
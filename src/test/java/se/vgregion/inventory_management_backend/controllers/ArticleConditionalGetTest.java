@@ -0,0 +1,100 @@
+package se.vgregion.inventory_management_backend.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//polling with If-None-Match gives an empty 304 until the article (or for the list, anything in the inventory) changes
+@SpringBootTest
+@AutoConfigureMockMvc
+class ArticleConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    private long id;
+    private long otherId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 2);
+        articleIndexer.rebuild();
+        id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM article", Long.class);
+        otherId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM article", Long.class);
+    }
+
+    @Test
+    void getArticleById_unchangedArticle_returns304UntilItChanges() throws Exception {
+        String eTag = eTagOf("/api/articles/" + id);
+
+        mockMvc.perform(get("/api/articles/" + id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        //a change to another article doesn't matter for this one
+        addOne(otherId);
+        mockMvc.perform(get("/api/articles/" + id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        addOne(id);
+        String newETag = mockMvc.perform(get("/api/articles/" + id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, newETag);
+    }
+
+    @Test
+    void getAllArticles_returns304UntilAnythingChanges() throws Exception {
+        String url = "/api/articles?page=0&size=10";
+        String eTag = eTagOf(url);
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        addOne(otherId);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    private String eTagOf(String url) throws Exception {
+        String eTag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        assertEquals('"', eTag.charAt(0));
+        return eTag;
+    }
+
+    private void addOne(long articleId) throws Exception {
+        mockMvc.perform(patch("/api/articles/" + articleId + "/changeAmount/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":1}"))
+                .andExpect(status().isOk());
+    }
+}
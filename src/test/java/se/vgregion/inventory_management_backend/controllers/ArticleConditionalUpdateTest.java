@@ -0,0 +1,100 @@
+package se.vgregion.inventory_management_backend.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//two clients read the same article and both send a PUT with its ETag in If-Match, only the first one goes through
+@SpringBootTest
+@AutoConfigureMockMvc
+class ArticleConditionalUpdateTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    private long id;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 1);
+        articleIndexer.rebuild();
+        id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM article", Long.class);
+    }
+
+    @Test
+    void updateArticle_withStaleIfMatch_returns412() throws Exception {
+        String eTag = eTagOf(id);
+
+        String newETag = mockMvc.perform(update(id, "First edit").header(HttpHeaders.IF_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("First edit"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, newETag);
+
+        mockMvc.perform(update(id, "Second edit").header(HttpHeaders.IF_MATCH, eTag))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").value("VERSION_CONFLICT"));
+        mockMvc.perform(get("/api/articles/" + id))
+                .andExpect(jsonPath("$.name").value("First edit"));
+
+        //with the ETag from the first PUT the second client can try again
+        mockMvc.perform(update(id, "Second edit").header(HttpHeaders.IF_MATCH, newETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTagOf(id)));
+    }
+
+    @Test
+    void updateArticle_withoutIfMatchOrWithStar_alwaysUpdates() throws Exception {
+        mockMvc.perform(update(id, "No precondition"))
+                .andExpect(status().isOk());
+        mockMvc.perform(update(id, "Any version").header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Any version"));
+    }
+
+    @Test
+    void updateArticle_withSomethingThatIsNotOurETag_returns412() throws Exception {
+        mockMvc.perform(update(id, "Weak").header(HttpHeaders.IF_MATCH, "W/" + eTagOf(id)))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(update(id, "Garbage").header(HttpHeaders.IF_MATCH, "\"abc\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    private String eTagOf(long articleId) throws Exception {
+        String eTag = mockMvc.perform(get("/api/articles/" + articleId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        return eTag;
+    }
+
+    private static MockHttpServletRequestBuilder update(long articleId, String name) {
+        return put("/api/articles/" + articleId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"" + name + "\",\"category\":\"CONSUMABLE\"}");
+    }
+}
@@ -0,0 +1,50 @@
+package se.vgregion.inventory_management_backend.dto;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//the hand-written serializer has to give exactly the json jackson wrote by reflection, with the object mapper spring configures
+@SpringBootTest
+class ArticleResponseDTOSerializerTest {
+
+    //switches the ArticleResponseDTOSerializer off again for the reference json
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private abstract static class ReflectiveSerialization {}
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ArticleResponseDTO article(String name, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        return new ArticleResponseDTO(new ArticleSnapshot(42L, name, 7, 10, EUnit.PIECES, ECategory.MEDICATION, createdAt, updatedAt, 3));
+    }
+
+    @Test
+    void writesTheSameJsonAsJackson() throws Exception {
+        ObjectMapper reflectiveMapper = objectMapper.copy().addMixIn(ArticleResponseDTO.class, ReflectiveSerialization.class);
+        List<ArticleResponseDTO> articles = List.of(
+                article("Gloves", LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 12, 31, 23, 59, 59)),
+                article("Syringe \"5 ml\", ÅÄÖ\n", LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123000000), LocalDateTime.of(2024, 5, 1, 12, 30, 15, 1)),
+                article("Mask", LocalDateTime.of(1, 2, 3, 4, 5, 6, 999999999), LocalDateTime.of(2024, 5, 1, 12, 30, 15, 100)),
+                article("Far future", LocalDateTime.of(12345, 1, 1, 0, 0), LocalDateTime.of(-5, 1, 1, 0, 0)),
+                article(null, null, null),
+                new ArticleResponseDTO()
+        );
+
+        for (ArticleResponseDTO article : articles) {
+            assertEquals(reflectiveMapper.writeValueAsString(article), objectMapper.writeValueAsString(article));
+        }
+        assertEquals(reflectiveMapper.writeValueAsString(articles), objectMapper.writeValueAsString(articles));
+    }
+}
@@ -0,0 +1,131 @@
+package se.vgregion.inventory_management_backend.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArticleNameIndexTest {
+
+    private ArticleNameIndex index;
+
+    private ArticleSnapshot article(long id, String name) {
+        return article(id, name, 0);
+    }
+
+    private ArticleSnapshot article(long id, String name, long version) {
+        return new ArticleSnapshot(id, name, 10, 5, EUnit.PIECES, ECategory.CONSUMABLE, null, null, version);
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new ArticleNameIndex();
+        index.apply(null, article(1, "Nitrile Gloves M"));
+        index.apply(null, article(2, "Nitrile Gloves L"));
+        index.apply(null, article(3, "Syringe 5ml"));
+        index.apply(null, article(4, "Glove box holder"));
+        index.markReady();
+    }
+
+    //same result as LOWER(name) LIKE LOWER('%search%')
+    @Test
+    void testSearch_SubstringIsCaseInsensitive() {
+        assertEquals(List.of(1L, 2L, 4L), index.search("GLOVE", 100));
+        assertEquals(List.of(1L, 2L), index.search("gloves", 100));
+        assertEquals(List.of(3L), index.search("inge 5", 100));
+    }
+
+    //"ves m" and "ves l" share all trigrams with each other except the last, the candidates have to be checked against the name
+    @Test
+    void testSearch_CandidatesAreVerified() {
+        assertEquals(List.of(1L), index.search("ves m", 100));
+        assertEquals(List.of(), index.search("ml5", 100));
+    }
+
+    @Test
+    void testSearch_NoMatch() {
+        assertEquals(List.of(), index.search("bandage", 100));
+    }
+
+    //terms shorter than a trigram, too many matches or a index that isnt loaded yet can't be answered
+    @Test
+    void testSearch_CantAnswer() {
+        assertNull(index.search("gl", 100));
+        assertNull(index.search("glove", 2));
+
+        ArticleNameIndex notLoaded = new ArticleNameIndex();
+        notLoaded.apply(null, article(1, "Nitrile Gloves M"));
+        assertNull(notLoaded.search("glove", 100));
+    }
+
+    @Test
+    void testApply_Rename() {
+        index.apply(article(3, "Syringe 5ml"), article(3, "Syringe 10ml"));
+
+        assertEquals(List.of(), index.search("5ml", 100));
+        assertEquals(List.of(3L), index.search("10ml", 100));
+    }
+
+    @Test
+    void testApply_Delete() {
+        index.apply(article(2, "Nitrile Gloves L"), null);
+
+        assertEquals(List.of(1L), index.search("nitrile", 100));
+        assertEquals(3, index.size());
+    }
+
+    //two renames whose events are handled in the other order, the older one is skipped
+    @Test
+    void testApply_OlderChangeIsSkipped() {
+        index.apply(article(3, "Syringe 5ml", 1), article(3, "Syringe 20ml", 3));
+        index.apply(article(3, "Syringe 5ml", 0), article(3, "Syringe 10ml", 1));
+
+        assertEquals(List.of(), index.search("10ml", 100));
+        assertEquals(List.of(3L), index.search("20ml", 100));
+    }
+
+    //a change that is handled after the delete doesn't bring the article back
+    @Test
+    void testApply_ChangeAfterDeleteIsSkipped() {
+        index.apply(article(3, "Syringe 5ml", 1), null);
+        index.apply(article(3, "Syringe 5ml", 0), article(3, "Syringe 10ml", 1));
+
+        assertEquals(List.of(), index.search("syringe", 100));
+        assertEquals(3, index.size());
+    }
+
+    //the tombstones of deleted articles are dropped on a later delete once no late change can come anymore
+    @Test
+    void testApply_OldTombstonesAreDropped() {
+        ArticleNameIndex shortTombstones = new ArticleNameIndex(0);
+        shortTombstones.apply(null, article(1, "Nitrile Gloves M"));
+        shortTombstones.apply(null, article(2, "Nitrile Gloves L"));
+        shortTombstones.apply(null, article(3, "Syringe 5ml"));
+
+        shortTombstones.apply(article(1, "Nitrile Gloves M"), null);
+        shortTombstones.apply(article(2, "Nitrile Gloves L"), null);
+        assertEquals(2, shortTombstones.trackedVersions());
+
+        //the default keeps them for a minute
+        index.apply(article(1, "Nitrile Gloves M"), null);
+        index.apply(article(2, "Nitrile Gloves L"), null);
+        assertEquals(4, index.trackedVersions());
+    }
+
+    //new ids that are lower than existing ones still end up in order
+    @Test
+    void testApply_OutOfOrderIds() {
+        ArticleNameIndex outOfOrder = new ArticleNameIndex();
+        outOfOrder.apply(null, article(9, "gauze 9"));
+        outOfOrder.apply(null, article(3, "gauze 3"));
+        outOfOrder.apply(null, article(6, "gauze 6"));
+        outOfOrder.markReady();
+
+        assertEquals(List.of(3L, 6L, 9L), outOfOrder.search("gauze", 100));
+    }
+}
@@ -0,0 +1,67 @@
+package se.vgregion.inventory_management_backend.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.vgregion.inventory_management_backend.dto.ArticleStatsDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArticleStatsIndexTest {
+
+    private ArticleStatsIndex index;
+
+    private ArticleSnapshot article(long id, int amount, EUnit unit, ECategory category) {
+        return new ArticleSnapshot(id, "Article " + id, amount, 10, unit, category, null, null, 0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new ArticleStatsIndex();
+        index.apply(null, article(1, 100, EUnit.PIECES, ECategory.CONSUMABLE));
+        index.apply(null, article(2, 5, EUnit.PIECES, ECategory.CONSUMABLE));
+        index.apply(null, article(3, 500, EUnit.MILLILITERS, ECategory.MEDICATION));
+    }
+
+    @Test
+    void testStats_TotalsPerCategoryAndUnit() {
+        ArticleStatsDTO stats = index.stats();
+
+        assertEquals(new ArticleStatsDTO.Totals(3, 1, 605), stats.total());
+        assertEquals(new ArticleStatsDTO.Totals(2, 1, 105), stats.byCategory().get(ECategory.CONSUMABLE));
+        assertEquals(new ArticleStatsDTO.Totals(1, 0, 500), stats.byCategory().get(ECategory.MEDICATION));
+        assertEquals(new ArticleStatsDTO.Totals(0, 0, 0), stats.byCategory().get(ECategory.CLEANING));
+        assertEquals(new ArticleStatsDTO.Totals(2, 1, 105), stats.byUnit().get(EUnit.PIECES));
+        assertEquals(new ArticleStatsDTO.Totals(1, 0, 500), stats.byUnit().get(EUnit.MILLILITERS));
+    }
+
+    //an update moves the article from its old cell to the new one, a delete removes it
+    @Test
+    void testApply_UpdateAndDelete() {
+        index.apply(article(1, 100, EUnit.PIECES, ECategory.CONSUMABLE), article(1, 2, EUnit.GRAMS, ECategory.OTHER));
+        index.apply(article(3, 500, EUnit.MILLILITERS, ECategory.MEDICATION), null);
+
+        ArticleStatsDTO stats = index.stats();
+        assertEquals(new ArticleStatsDTO.Totals(2, 2, 7), stats.total());
+        assertEquals(new ArticleStatsDTO.Totals(1, 1, 5), stats.byCategory().get(ECategory.CONSUMABLE));
+        assertEquals(new ArticleStatsDTO.Totals(1, 1, 2), stats.byUnit().get(EUnit.GRAMS));
+        assertEquals(new ArticleStatsDTO.Totals(0, 0, 0), stats.byCategory().get(ECategory.MEDICATION));
+    }
+
+    @Test
+    void testCorrect_AddsTheDrift() {
+        ArticleStatsIndex.Counts counted = index.counts();
+        counted.add(ECategory.CLEANING, EUnit.GRAMS, 1, 1, 3);
+
+        ArticleStatsIndex.Counts drift = counted.minus(index.counts());
+        assertEquals(List.of("CLEANING/GRAMS articles=1 lowStock=1 amount=3"), drift.describe());
+
+        index.correct(drift);
+        assertTrue(index.counts().minus(counted).isZero());
+        assertEquals(new ArticleStatsDTO.Totals(4, 2, 608), index.stats().total());
+    }
+}
@@ -0,0 +1,114 @@
+package se.vgregion.inventory_management_backend.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.vgregion.inventory_management_backend.dto.ArticleSuggestionDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArticleSuggestIndexTest {
+
+    private ArticleSuggestIndex index;
+
+    private ArticleSnapshot article(long id, String name, int amount) {
+        return article(id, name, amount, 0);
+    }
+
+    private ArticleSnapshot article(long id, String name, int amount, long version) {
+        return new ArticleSnapshot(id, name, amount, 10, EUnit.PIECES, ECategory.CONSUMABLE, null, null, version);
+    }
+
+    private List<String> names(List<ArticleSuggestionDTO> suggestions) {
+        return suggestions.stream().map(ArticleSuggestionDTO::name).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new ArticleSuggestIndex();
+        index.apply(null, article(1, "Gloves M", 100));
+        index.apply(null, article(2, "gloves L", 5));
+        index.apply(null, article(3, "Glue stick", 50));
+        index.apply(null, article(4, "Gauze", 50));
+        index.apply(null, article(5, "Syringe", 50));
+    }
+
+    //matches are in name order and the prefix is case insensitive
+    @Test
+    void testSuggest_Prefix() {
+        assertEquals(List.of("gloves L", "Gloves M", "Glue stick"), names(index.suggest("GL", 10)));
+        assertEquals(List.of("gloves L", "Gloves M"), names(index.suggest("glove", 10)));
+        assertEquals(List.of(), names(index.suggest("x", 10)));
+    }
+
+    @Test
+    void testSuggest_Limit() {
+        assertEquals(List.of("Gauze", "gloves L"), names(index.suggest("g", 2)));
+    }
+
+    @Test
+    void testSuggest_CarriesCategoryAndLowStock() {
+        ArticleSuggestionDTO suggestion = index.suggest("gloves l", 1).get(0);
+
+        assertEquals(2L, suggestion.id());
+        assertEquals(ECategory.CONSUMABLE, suggestion.category());
+        assertTrue(suggestion.lowStock());
+    }
+
+    @Test
+    void testApply_RenameAndStockChange() {
+        index.apply(article(3, "Glue stick", 50), article(3, "Adhesive stick", 50));
+        index.apply(article(1, "Gloves M", 100), article(1, "Gloves M", 1));
+
+        assertEquals(List.of("gloves L", "Gloves M"), names(index.suggest("gl", 10)));
+        assertTrue(index.suggest("gloves m", 1).get(0).lowStock());
+        assertEquals(List.of("Adhesive stick"), names(index.suggest("adh", 10)));
+    }
+
+    @Test
+    void testApply_Delete() {
+        index.apply(article(5, "Syringe", 50), null);
+
+        assertEquals(List.of(), index.suggest("syr", 10));
+    }
+
+    //two changes whose events are handled in the other order, the older one is skipped
+    @Test
+    void testApply_OlderChangeIsSkipped() {
+        index.apply(article(1, "Gloves M", 100, 1), article(1, "Gloves S", 2, 3));
+        index.apply(article(1, "Gloves M", 100, 0), article(1, "Gloves XL", 100, 1));
+
+        assertEquals(List.of("gloves L", "Gloves S"), names(index.suggest("gloves", 10)));
+        assertTrue(index.suggest("gloves s", 1).get(0).lowStock());
+    }
+
+    @Test
+    void testApply_ChangeAfterDeleteIsSkipped() {
+        index.apply(article(5, "Syringe", 50, 1), null);
+        index.apply(article(5, "Syringe", 50, 0), article(5, "Syringe 5ml", 50, 1));
+
+        assertEquals(List.of(), index.suggest("syr", 10));
+    }
+
+    //the tombstones of deleted articles are dropped on a later delete once no late change can come anymore
+    @Test
+    void testApply_OldTombstonesAreDropped() {
+        ArticleSuggestIndex shortTombstones = new ArticleSuggestIndex(0);
+        shortTombstones.apply(null, article(1, "Gloves M", 100));
+        shortTombstones.apply(null, article(2, "gloves L", 5));
+        shortTombstones.apply(null, article(3, "Glue stick", 50));
+
+        shortTombstones.apply(article(1, "Gloves M", 100), null);
+        shortTombstones.apply(article(2, "gloves L", 5), null);
+        assertEquals(2, shortTombstones.trackedVersions());
+
+        //the default keeps them for a minute
+        index.apply(article(1, "Gloves M", 100), null);
+        index.apply(article(2, "gloves L", 5), null);
+        assertEquals(5, index.trackedVersions());
+    }
+}
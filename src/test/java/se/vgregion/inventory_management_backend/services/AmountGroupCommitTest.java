@@ -0,0 +1,124 @@
+package se.vgregion.inventory_management_backend.services;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//group commit with a long wait, so that the patches sent at the same time really end up in the same batches
+@SpringBootTest(properties = {
+        "inventory.group-commit.enabled=true",
+        "inventory.group-commit.max-wait-ms=5"
+})
+class AmountGroupCommitTest {
+
+    private static final int THREADS = ArticleStockConcurrencyTest.THREADS;
+    private static final int CHANGES_PER_THREAD = 20;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private AmountGroupCommit amountGroupCommit;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+    }
+
+    @Test
+    void concurrentPatches_areCommittedInFewerTransactions() throws Exception {
+        Long gloves = articleService.addArticle(new CreateArticleDTO("Gloves", 0, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        int patches = THREADS * CHANGES_PER_THREAD;
+        Long masks = articleService.addArticle(new CreateArticleDTO("Masks", 3 * patches, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        long batchesBefore = amountGroupCommit.batches();
+
+        runConcurrently(() -> {
+            articleService.patchArticleAmountAdd(gloves, new PatchAmountDTO(1));
+            articleService.patchArticleAmountRemove(masks, new PatchAmountDTO(2));
+        });
+
+        assertEquals(patches, databaseAmount(gloves));
+        assertEquals(patches, databaseAmount(masks));
+        assertEquals(patches, articleService.getArticleById(gloves).getAmount());
+        assertEquals(patches, stockLedger.rebuildAmount(gloves));
+        assertEquals(patches, stockLedger.rebuildAmount(masks));
+        assertTrue(amountGroupCommit.batches() - batchesBefore < 2L * patches,
+                (amountGroupCommit.batches() - batchesBefore) + " batches for " + 2 * patches + " patches");
+    }
+
+    //every caller gets the amount right after its own patch, and the subtractions that would go below 0 fail on their own
+    @Test
+    void everyCaller_getsItsOwnResult() throws Exception {
+        Long id = articleService.addArticle(new CreateArticleDTO("Syringes", 100, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Integer> amounts = Collections.synchronizedList(new ArrayList<>());
+
+        runConcurrently(() -> {
+            try {
+                amounts.add(articleService.patchArticleAmountRemove(id, new PatchAmountDTO(1)).getAmount());
+            } catch (IllegalArgumentException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(0, databaseAmount(id));
+        assertEquals(THREADS * CHANGES_PER_THREAD - 100, rejected.get());
+        //0 to 99, each once
+        assertEquals(100, amounts.stream().distinct().count());
+        assertEquals(0, amounts.stream().mapToInt(Integer::intValue).min().orElseThrow());
+        assertEquals(99, amounts.stream().mapToInt(Integer::intValue).max().orElseThrow());
+    }
+
+    @Test
+    void unknownArticle_failsOnlyItsOwnPatch() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Gauze", 5, 1, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+
+        assertThrows(EntityNotFoundException.class, () -> articleService.patchArticleAmountAdd(-1L, new PatchAmountDTO(1)));
+        assertEquals(8, articleService.patchArticleAmountAdd(id, new PatchAmountDTO(3)).getAmount());
+    }
+
+    private int databaseAmount(Long id) {
+        return jdbcTemplate.queryForObject("SELECT amount FROM article WHERE id = ?", Integer.class, id);
+    }
+
+    private void runConcurrently(Runnable change) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                    change.run();
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
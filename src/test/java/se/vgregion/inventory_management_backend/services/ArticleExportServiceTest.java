@@ -0,0 +1,107 @@
+package se.vgregion.inventory_management_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleImportSummaryDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ArticleExportServiceTest {
+
+    @Autowired
+    private ArticleExportService articleExportService;
+
+    @Autowired
+    private ArticleImportService articleImportService;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+        articleService.addArticle(new CreateArticleDTO("Gloves, nitrile", 100, 10, EUnit.PIECES, ECategory.CONSUMABLE));
+        articleService.addArticle(new CreateArticleDTO("Ibuprofen \"400\"", 2, 5, EUnit.PIECES, ECategory.MEDICATION));
+        articleService.addArticle(new CreateArticleDTO("Soap", 1, 5, EUnit.MILLILITERS, ECategory.CLEANING));
+    }
+
+    @Test
+    void csv_quotesNamesAndUsesTheFilters() throws Exception {
+        String csv = export(ArticleExportService.Format.CSV, null, true, "ALL");
+
+        String[] lines = csv.split("\n");
+        assertEquals(ArticleExportService.CSV_HEADER, lines[0]);
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].contains(",\"Ibuprofen \"\"400\"\"\",2,5,PIECES,MEDICATION,true,"));
+        assertTrue(lines[2].contains(",Soap,1,5,MILLILITERS,CLEANING,true,"));
+
+        assertEquals(2, export(ArticleExportService.Format.CSV, "GLOVES", false, "consumable").split("\n").length);
+    }
+
+    @Test
+    void ndjson_oneArticlePerLine() throws Exception {
+        String[] lines = export(ArticleExportService.Format.NDJSON, null, false, "MEDICATION").split("\n");
+
+        assertEquals(1, lines.length);
+        ArticleResponseDTO article = objectMapper.readValue(lines[0], ArticleResponseDTO.class);
+        assertEquals("Ibuprofen \"400\"", article.getName());
+        assertTrue(article.isLowStock());
+    }
+
+    //an export can be imported again, every row is then an update of an existing article
+    @Test
+    void csv_canBeImportedAgain() throws Exception {
+        String csv = export(ArticleExportService.Format.CSV, null, false, "ALL");
+
+        ArticleImportSummaryDTO summary = articleImportService.importCsv(new StringReader(csv));
+
+        assertEquals(0, summary.inserted());
+        assertEquals(3, summary.updated());
+        assertEquals(0, summary.rejected());
+    }
+
+    //a name with a line break is written as a quoted value over two lines and read back as one row
+    @Test
+    void csv_namesWithLineBreaks_comeBackTheSame() throws Exception {
+        articleService.addArticle(new CreateArticleDTO("Gauze\n10 x 10 cm", 3, 1, EUnit.PIECES, ECategory.CONSUMABLE));
+        String csv = export(ArticleExportService.Format.CSV, null, false, "ALL");
+        jdbcTemplate.update("DELETE FROM article");
+
+        ArticleImportSummaryDTO summary = articleImportService.importCsv(new StringReader(csv));
+
+        assertEquals(4, summary.inserted());
+        assertEquals(0, summary.rejected(), summary.errors().toString());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE name = ?", Integer.class, "Gauze\n10 x 10 cm"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM article WHERE name = ?", Integer.class, "Ibuprofen \"400\""));
+    }
+
+    @Test
+    void unknownFormat_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ArticleExportService.Format.parse("xml"));
+    }
+
+    private String export(ArticleExportService.Format format, String search, boolean onlyLowStock, String category) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        articleExportService.export(out, format, search, onlyLowStock, category);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
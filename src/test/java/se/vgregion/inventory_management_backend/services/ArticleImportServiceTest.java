@@ -0,0 +1,147 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleImportSummaryDTO;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.index.ArticleNameIndex;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ArticleImportServiceTest {
+
+    @Autowired
+    private ArticleImportService articleImportService;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleNameIndex articleNameIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+    }
+
+    @Test
+    void csv_insertsUpdatesAndRejects() throws Exception {
+        articleService.addArticle(new CreateArticleDTO("Gloves", 5, 1, EUnit.PIECES, ECategory.CONSUMABLE));
+
+        ArticleImportSummaryDTO summary = articleImportService.importCsv(new StringReader("""
+                category,name,amount,minimumAmount,unit
+                consumable,Gloves,100,10,pieces
+                MEDICATION,"Ibuprofen, 400 mg",20,5,PIECES
+
+                CLEANING,Soap,-1,5,MILLILITERS
+                CLEANING,Hand sanitizer,abc,5,MILLILITERS
+                OTHER,Tape,3,1,meters
+                """));
+
+        assertEquals(1, summary.inserted());
+        assertEquals(1, summary.updated());
+        assertEquals(3, summary.rejected());
+        assertEquals(List.of(
+                new ArticleImportSummaryDTO.RejectedRow(5, "Amount cannot be negative"),
+                new ArticleImportSummaryDTO.RejectedRow(6, "Could not read the row: amount is not a number: abc"),
+                new ArticleImportSummaryDTO.RejectedRow(7, "Could not read the row: Unknown unit: meters")
+        ), summary.errors());
+        assertEquals(100, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE name = 'Gloves'", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM article WHERE name = 'Ibuprofen, 400 mg'", Integer.class));
+    }
+
+    @Test
+    void csv_missingColumnIsRejectedAsAWhole() {
+        assertThrows(IllegalArgumentException.class,
+                () -> articleImportService.importCsv(new StringReader("name,amount,unit,category\nGloves,1,PIECES,OTHER\n")));
+    }
+
+    //the same name twice keeps the last row, also when the two rows end up in different chunks
+    @Test
+    void ndjson_duplicateNamesAreUpdates() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < ArticleImportService.CHUNK_SIZE + 10; i++) {
+            body.append("{\"name\":\"Article ").append(i).append("\",\"amount\":1,\"minimumAmount\":0,\"unit\":\"PIECES\",\"category\":\"OTHER\"}\n");
+        }
+        body.append("{\"name\":\"Article 0\",\"amount\":7,\"minimumAmount\":0,\"unit\":\"GRAMS\",\"category\":\"OTHER\"}\n");
+        body.append("{\"name\":\"Article 1005\",\"amount\":8,\"minimumAmount\":0,\"unit\":\"GRAMS\",\"category\":\"OTHER\"}\n");
+        body.append("{\"name\":\"Broken\",\"amount\":\n");
+
+        ArticleImportSummaryDTO summary = articleImportService.importNdjson(new StringReader(body.toString()));
+
+        assertEquals(ArticleImportService.CHUNK_SIZE + 10, summary.inserted());
+        assertEquals(2, summary.updated());
+        assertEquals(1, summary.rejected());
+        assertEquals(ArticleImportService.CHUNK_SIZE + 13, summary.errors().get(0).line());
+        assertEquals(7, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE name = 'Article 0'", Integer.class));
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE name = 'Article 1005'", Integer.class));
+    }
+
+    //the same name twice in one chunk: the first row is written and the second one updates it, every row is counted once
+    @Test
+    void csv_duplicateNamesInOneChunk_areCountedAsWhatTheyDid() throws Exception {
+        articleService.addArticle(new CreateArticleDTO("Masks", 5, 1, EUnit.PIECES, ECategory.CONSUMABLE));
+
+        ArticleImportSummaryDTO summary = articleImportService.importCsv(new StringReader("""
+                name,amount,minimumAmount,unit,category
+                Gloves,1,0,PIECES,CONSUMABLE
+                Masks,2,0,PIECES,CONSUMABLE
+                Gloves,3,0,PIECES,CONSUMABLE
+                Masks,4,0,PIECES,CONSUMABLE
+                Tape,5,0,PIECES,OTHER
+                """));
+
+        assertEquals(2, summary.inserted());
+        assertEquals(3, summary.updated());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE name = 'Gloves'", Integer.class));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE name = 'Masks'", Integer.class));
+    }
+
+    //a quoted value can go on over several lines, the rejected rows still get the line they start on
+    @Test
+    void csv_quotedValuesOverSeveralLines() throws Exception {
+        ArticleImportSummaryDTO summary = articleImportService.importCsv(new StringReader("""
+                name,amount,minimumAmount,unit,category
+                "Gauze
+                10 x 10 cm",3,1,PIECES,CONSUMABLE
+                "Swabs ""sterile""
+                ",-1,1,PIECES,CONSUMABLE
+                Tape,5,0,PIECES,OTHER
+                "Never closed,1,1,PIECES,OTHER
+                Bandage,1,1,PIECES,OTHER
+                """));
+
+        assertEquals(2, summary.inserted());
+        assertEquals(List.of(
+                new ArticleImportSummaryDTO.RejectedRow(4, "Amount cannot be negative"),
+                new ArticleImportSummaryDTO.RejectedRow(7, "Could not read the row: Missing closing quote!")
+        ), summary.errors());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE name = ?", Integer.class, "Gauze\n10 x 10 cm"));
+    }
+
+    //imported articles are searchable right away, the indexes get the same events as from the other endpoints
+    @Test
+    void importedArticlesReachTheIndexes() throws Exception {
+        articleImportService.importCsv(new StringReader("name,amount,minimumAmount,unit,category\nNitrile gloves,1,0,PIECES,CONSUMABLE\n"));
+
+        assertEquals(1, articleNameIndex.search("nitrile", 10).size());
+    }
+
+    @Test
+    void splitCsvLine_handlesQuotes() {
+        assertEquals(List.of("a", "b, c", "say \"hi\"", ""), ArticleImportService.splitCsvLine("a,\"b, c\",\"say \"\"hi\"\"\","));
+        assertThrows(IllegalArgumentException.class, () -> ArticleImportService.splitCsvLine("a,\"b"));
+    }
+}
@@ -0,0 +1,73 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementDTO;
+import se.vgregion.inventory_management_backend.dto.UpdateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//the stored low_stock column has to follow every way the amount or minimum amount can change
+@SpringBootTest
+class ArticleLowStockTest {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+    }
+
+    @Test
+    void lowStock_followsPatchesUpdatesAndMovements() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Gloves", 20, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        assertFalse(storedLowStock(id));
+
+        articleService.patchArticleAmountRemove(id, new PatchAmountDTO(10));
+        assertTrue(storedLowStock(id));
+
+        articleService.patchArticleAmountAdd(id, new PatchAmountDTO(1));
+        assertFalse(storedLowStock(id));
+
+        UpdateArticleDTO update = new UpdateArticleDTO();
+        update.setMinimumAmount(50);
+        assertTrue(articleService.updateArticle(id, update).isLowStock());
+        assertTrue(storedLowStock(id));
+
+        articleService.applyStockMovements(List.of(new StockMovementDTO(id, 100)));
+        assertFalse(storedLowStock(id));
+    }
+
+    @Test
+    void lowStockList_onlyHasLowStockArticlesInNameOrder() {
+        articleService.addArticle(new CreateArticleDTO("Syringes", 5, 10, EUnit.PIECES, ECategory.CONSUMABLE));
+        articleService.addArticle(new CreateArticleDTO("Bandage", 10, 10, EUnit.PIECES, ECategory.CONSUMABLE));
+        articleService.addArticle(new CreateArticleDTO("Masks", 11, 10, EUnit.PIECES, ECategory.CONSUMABLE));
+
+        List<ArticleResponseDTO> lowStock = articleService.getLowStockArticles(100);
+
+        assertEquals(List.of("Bandage", "Syringes"), lowStock.stream().map(ArticleResponseDTO::getName).toList());
+        assertTrue(lowStock.stream().allMatch(ArticleResponseDTO::isLowStock));
+        assertEquals(1, articleService.getLowStockArticles(1).size());
+    }
+
+    private boolean storedLowStock(Long id) {
+        return jdbcTemplate.queryForObject("SELECT low_stock FROM article WHERE id = ?", Boolean.class, id);
+    }
+}
@@ -0,0 +1,142 @@
+package se.vgregion.inventory_management_backend.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+import se.vgregion.inventory_management_backend.cache.ArticleCountCache;
+import se.vgregion.inventory_management_backend.cache.ArticlePageCache;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementDTO;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Counts the sql statements that each list request runs, using the hibernate statistics.
+//Before the Slice query every list request ran two statements, the page and a COUNT with the same filters.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ArticleQueryCountTest {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleCountCache articleCountCache;
+
+    @Autowired
+    private ArticlePageCache articlePageCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 50);
+        articleIndexer.rebuild();
+        articleCountCache.clear();
+        articlePageCache.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void withoutTotals_runsOneStatement() {
+        articleService.getArticlesWithoutTotals(0, 10, null, false, "ALL", "name", "asc");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void withTotals_countsOnceThenUsesTheCache() {
+        articleService.getAllArticlesPaginated(0, 10, null, false, "ALL", "name", "asc");
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        articleService.getAllArticlesPaginated(1, 10, null, false, "ALL", "name", "asc");
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    //a page that isn't full is the last page, so the total is known without counting
+    @Test
+    void withTotals_lastPageIsNeverCounted() {
+        var result = articleService.getAllArticlesPaginated(4, 12, null, false, "ALL", "name", "asc");
+
+        assertEquals(50, result.getTotalElements());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    //the search is resolved by the trigram index and without other filters the total is the number of matching ids
+    @Test
+    void search_runsOneStatementAndNoCount() {
+        var result = articleService.getAllArticlesPaginated(0, 2, "GLOVES", false, "ALL", "name", "asc");
+
+        assertEquals(20, result.getTotalElements());
+        assertEquals(2, result.getContent().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    //the reads select straight into snapshots, hibernate never makes a managed entity for them
+    @Test
+    void reads_loadNoEntities() {
+        var page = articleService.getAllArticlesPaginated(0, 20, null, false, "ALL", "name", "asc");
+        articleService.getArticlesWithoutTotals(0, 20, "gloves", false, "ALL", "name", "asc");
+        var cursorPage = articleService.getArticlesByCursor("", 20, null, false, "ALL", "name", "asc");
+        articleService.getArticlesByCursor(cursorPage.getNextCursor(), 20, null, false, "ALL", "name", "asc");
+        articleService.getArticleById(page.getContent().get(0).getId());
+
+        assertEquals(20, page.getContent().size());
+        assertEquals(20, cursorPage.getContent().size());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    //30 movements on 30 articles, one SELECT ... FOR UPDATE, one jdbc batch with all the UPDATEs,
+    //and for the StockLedger one jdbc batch with all the INSERTs plus a sequence call for the ids (two if the 30 ids cross a block of 50)
+    @Test
+    void stockMovements_areWrittenInOneBatch() {
+        List<StockMovementDTO> movements = jdbcTemplate.queryForList("SELECT id FROM article ORDER BY id LIMIT 30", Long.class)
+                .stream()
+                .map(id -> new StockMovementDTO(id, 1))
+                .toList();
+
+        articleService.applyStockMovements(movements);
+
+        assertEquals(30, statistics.getEntityUpdateCount());
+        assertEquals(30, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 5, statistics.getPrepareStatementCount() + " statements");
+    }
+
+    //a page that was just loaded is served from the page cache without any statement, a write makes the next request load it again
+    @Test
+    void repeatedPage_runsNoStatementsUntilAWrite() {
+        var first = articleService.getAllArticlesPaginated(0, 10, null, false, "ALL", "name", "asc");
+        statistics.clear();
+
+        articleService.getAllArticlesPaginated(0, 10, null, false, "ALL", "name", "asc");
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        Long id = first.getContent().get(0).getId();
+        articleService.patchArticleAmountAdd(id, new PatchAmountDTO(1));
+        statistics.clear();
+
+        var afterWrite = articleService.getAllArticlesPaginated(0, 10, null, false, "ALL", "name", "asc");
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(first.getContent().get(0).getAmount() + 1, afterWrite.getContent().get(0).getAmount());
+    }
+}
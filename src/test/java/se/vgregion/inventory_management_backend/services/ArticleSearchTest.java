@@ -0,0 +1,73 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//a search gives the same articles whether it is answered by the trigram index (3 characters or more) or by the LIKE query,
+//so % and _ in the search have to be plain characters in the LIKE too
+@SpringBootTest
+class ArticleSearchTest {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+        articleIndexer.rebuild();
+        add("Saline 10%");
+        add("Saline 100 ml");
+        add("Tape_25");
+        add("Tape 25 mm");
+        add("Iodine 1\\2");
+    }
+
+    @Test
+    void wildcards_areMatchedAsThemselves() {
+        //too short for the index, LIKE
+        assertEquals(List.of("Saline 10%"), search("0%"));
+        assertEquals(List.of("Tape_25"), search("e_"));
+        assertEquals(List.of("Iodine 1\\2"), search("\\"));
+        //the index
+        assertEquals(List.of("Saline 10%"), search("10%"));
+        assertEquals(List.of("Tape_25"), search("pe_2"));
+    }
+
+    //the cursor pages build the LIKE with a Specification
+    @Test
+    void cursorPages_matchWildcardsAsThemselves() {
+        List<String> names = articleService.getArticlesByCursor("", 10, "0%", false, "ALL", "name", "asc").getContent().stream()
+                .map(ArticleResponseDTO::getName)
+                .toList();
+
+        assertEquals(List.of("Saline 10%"), names);
+    }
+
+    private List<String> search(String search) {
+        return articleService.getAllArticlesPaginated(0, 10, search, false, "ALL", "name", "asc").getContent().stream()
+                .map(ArticleResponseDTO::getName)
+                .toList();
+    }
+
+    private void add(String name) {
+        articleService.addArticle(new CreateArticleDTO(name, 10, 1, EUnit.PIECES, ECategory.CONSUMABLE));
+    }
+}
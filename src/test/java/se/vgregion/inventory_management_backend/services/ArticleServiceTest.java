@@ -1,25 +1,46 @@
 package se.vgregion.inventory_management_backend.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import se.vgregion.inventory_management_backend.cache.ArticleCache;
+import se.vgregion.inventory_management_backend.cache.ArticleCountCache;
+import se.vgregion.inventory_management_backend.cache.ArticlePageCache;
+import se.vgregion.inventory_management_backend.cache.InventoryVersion;
+import se.vgregion.inventory_management_backend.dto.ArticleCursorPageDTO;
 import se.vgregion.inventory_management_backend.dto.ArticleResponseDTO;
+import se.vgregion.inventory_management_backend.dto.ArticleSuggestionDTO;
 import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
 import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementResultDTO;
 import se.vgregion.inventory_management_backend.dto.UpdateArticleDTO;
 import se.vgregion.inventory_management_backend.enums.ECategory;
 import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.events.ArticleChangedEvent;
+import se.vgregion.inventory_management_backend.exception.ArticleVersionConflictException;
+import se.vgregion.inventory_management_backend.index.ArticleNameIndex;
+import se.vgregion.inventory_management_backend.index.ArticleSuggestIndex;
 import se.vgregion.inventory_management_backend.models.Article;
+import se.vgregion.inventory_management_backend.models.ArticleSnapshot;
 import se.vgregion.inventory_management_backend.repository.ArticleRepository;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -30,6 +51,41 @@ class ArticleServiceTest {
     @Mock
     private ArticleRepository articleRepository;
 
+    @Spy
+    private ArticleCountCache articleCountCache = new ArticleCountCache(5000);
+
+    @Spy
+    private ArticleCache articleCache = new ArticleCache(100, 60_000);
+
+    private final InventoryVersion inventoryVersion = new InventoryVersion();
+
+    @Spy
+    private ArticlePageCache articlePageCache = new ArticlePageCache(inventoryVersion, 100);
+
+    @Spy
+    private ArticleNameIndex articleNameIndex = new ArticleNameIndex();
+
+    @Spy
+    private ArticleSuggestIndex articleSuggestIndex = new ArticleSuggestIndex();
+
+    @Mock
+    private HotStockCounters hotStockCounters;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private AmountGroupCommit amountGroupCommit;
+
+    @Spy
+    private SlowQueryLog slowQueryLog = new SlowQueryLog(new SimpleMeterRegistry(), 200);
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private ArticleService articleService;
 
@@ -90,6 +146,7 @@ class ArticleServiceTest {
         assertEquals(EUnit.PIECES, result.getUnit());
         assertEquals(ECategory.OTHER, result.getCategory());
         verify(articleRepository, times(1)).save(any(Article.class));
+        verify(eventPublisher, times(1)).publishEvent(new ArticleChangedEvent(null, ArticleSnapshot.of(savedArticle)));
     }
 
     //makes sure pagination works
@@ -101,7 +158,7 @@ class ArticleServiceTest {
         article2.setName("Second Article");
 
         List<Article> articles = Arrays.asList(article1, article2);
-        Page<Article> articlePage = new PageImpl<>(articles, PageRequest.of(0, 10), 2);
+        Page<ArticleSnapshot> articlePage = new PageImpl<>(snapshots(articles), PageRequest.of(0, 10), 2);
 
         when(articleRepository.findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class)))
                 .thenReturn(articlePage);
@@ -118,7 +175,7 @@ class ArticleServiceTest {
     void testGetAllArticlesPaginated_WithSearch() {
         Article article = createTestArticle();
         List<Article> articles = Arrays.asList(article);
-        Page<Article> articlePage = new PageImpl<>(articles, PageRequest.of(0, 10), 1);
+        Page<ArticleSnapshot> articlePage = new PageImpl<>(snapshots(articles), PageRequest.of(0, 10), 1);
 
         when(articleRepository.findArticlesWithFilters(eq("Test"), any(), any(Boolean.class), any(Pageable.class)))
                 .thenReturn(articlePage);
@@ -135,23 +192,24 @@ class ArticleServiceTest {
         Article lowStockArticle = createTestArticle();
         lowStockArticle.setAmount(5);
         List<Article> articles = Arrays.asList(lowStockArticle);
-        Page<Article> articlePage = new PageImpl<>(articles, PageRequest.of(0, 10), 1);
+        Page<ArticleSnapshot> articlePage = new PageImpl<>(snapshots(articles), PageRequest.of(0, 10), 1);
 
-        when(articleRepository.findArticlesWithFilters(any(), any(), eq(true), any(Pageable.class)))
+        when(articleRepository.findLowStockArticlesWithFilters(any(), any(), any(Pageable.class)))
                 .thenReturn(articlePage);
 
         Page<ArticleResponseDTO> result = articleService.getAllArticlesPaginated(0, 10, "", true, "", "name", "asc");
 
         assertEquals(1, result.getContent().size());
         assertTrue(result.getContent().get(0).isLowStock());
-        verify(articleRepository, times(1)).findArticlesWithFilters(any(), any(), eq(true), any(Pageable.class));
+        verify(articleRepository, times(1)).findLowStockArticlesWithFilters(any(), any(), any(Pageable.class));
+        verify(articleRepository, never()).findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class));
     }
 
     @Test
     void testGetAllArticlesPaginated_DescendingSort() {
         Article article = createTestArticle();
         List<Article> articles = Arrays.asList(article);
-        Page<Article> articlePage = new PageImpl<>(articles, PageRequest.of(0, 10, Sort.by("name").descending()), 1);
+        Page<ArticleSnapshot> articlePage = new PageImpl<>(snapshots(articles), PageRequest.of(0, 10, Sort.by("name").descending()), 1);
 
         when(articleRepository.findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class)))
                 .thenReturn(articlePage);
@@ -162,57 +220,295 @@ class ArticleServiceTest {
         verify(articleRepository, times(1)).findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class));
     }
 
+    //the page is full so the total cant be known from the content, it has to be counted, but only once within the ttl
+    @Test
+    void testGetAllArticlesPaginated_CountIsCached() {
+        Article article1 = createTestArticle();
+        Article article2 = createTestArticle();
+        article2.setId(2L);
+        Slice<ArticleSnapshot> articleSlice = new SliceImpl<>(snapshots(Arrays.asList(article1, article2)), PageRequest.of(0, 2), true);
+
+        when(articleRepository.findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class)))
+                .thenReturn(articleSlice);
+        when(articleRepository.countArticlesWithFilters(any(), any(), any(Boolean.class))).thenReturn(40L);
+
+        Page<ArticleResponseDTO> first = articleService.getAllArticlesPaginated(0, 2, "", false, "", "name", "asc");
+        Page<ArticleResponseDTO> second = articleService.getAllArticlesPaginated(1, 2, "", false, "", "name", "asc");
+
+        assertEquals(40, first.getTotalElements());
+        assertEquals(20, first.getTotalPages());
+        assertEquals(40, second.getTotalElements());
+        verify(articleRepository, times(2)).findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class));
+        verify(articleRepository, times(1)).countArticlesWithFilters(any(), any(), any(Boolean.class));
+    }
+
+    //the same page again comes from the page cache, until a change to the inventory bumps the version
+    @Test
+    void testGetAllArticlesPaginated_PageIsCachedUntilTheInventoryChanges() {
+        Slice<ArticleSnapshot> articleSlice = new SliceImpl<>(snapshots(List.of(createTestArticle())), PageRequest.of(0, 2), false);
+        when(articleRepository.findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class)))
+                .thenReturn(articleSlice);
+
+        Page<ArticleResponseDTO> first = articleService.getAllArticlesPaginated(0, 2, "", false, "ALL", "name", "asc");
+        Page<ArticleResponseDTO> second = articleService.getAllArticlesPaginated(0, 2, null, false, "", "name", "ASC");
+        assertSame(first, second);
+        verify(articleRepository, times(1)).findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class));
+
+        inventoryVersion.onArticleChanged(new ArticleChangedEvent(null, ArticleSnapshot.of(createTestArticle())));
+        articleService.getAllArticlesPaginated(0, 2, "", false, "ALL", "name", "asc");
+        verify(articleRepository, times(2)).findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class));
+        assertEquals(1, articleService.getPageCacheStats().hits());
+        assertEquals(2, articleService.getPageCacheStats().misses());
+    }
+
+    //a count that is older than what the page itself shows is raised, so the total never claims there is no next page when there is one
+    @Test
+    void testGetAllArticlesPaginated_StaleCountIsRaised() {
+        Article article1 = createTestArticle();
+        Article article2 = createTestArticle();
+        article2.setId(2L);
+        Slice<ArticleSnapshot> articleSlice = new SliceImpl<>(snapshots(Arrays.asList(article1, article2)), PageRequest.of(1, 2), true);
+
+        when(articleRepository.findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class)))
+                .thenReturn(articleSlice);
+        when(articleRepository.countArticlesWithFilters(any(), any(), any(Boolean.class))).thenReturn(3L);
+
+        Page<ArticleResponseDTO> result = articleService.getAllArticlesPaginated(1, 2, "", false, "", "name", "asc");
+
+        assertEquals(5, result.getTotalElements());
+        assertTrue(result.hasNext());
+    }
+
+    @Test
+    void testGetArticlesWithoutTotals_NeverCounts() {
+        Article article = createTestArticle();
+        Slice<ArticleSnapshot> articleSlice = new SliceImpl<>(snapshots(List.of(article)), PageRequest.of(0, 1), true);
+
+        when(articleRepository.findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class)))
+                .thenReturn(articleSlice);
+
+        Slice<ArticleResponseDTO> result = articleService.getArticlesWithoutTotals(0, 1, "Test", false, "ALL", "name", "asc");
+
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.hasNext());
+        verify(articleRepository, never()).countArticlesWithFilters(any(), any(), any(Boolean.class));
+    }
+
+    //when the trigram index is loaded the search is resolved to ids and the LIKE query isnt used at all
+    @Test
+    void testGetAllArticlesPaginated_SearchUsesNameIndex() {
+        Article article = createTestArticle();
+        articleNameIndex.apply(null, ArticleSnapshot.of(article));
+        articleNameIndex.markReady();
+        Slice<ArticleSnapshot> articleSlice = new SliceImpl<>(snapshots(List.of(article)), PageRequest.of(0, 10), false);
+
+        when(articleRepository.findArticlesByIdsWithFilters(eq(List.of(1L)), any(), any(Boolean.class), any(Pageable.class)))
+                .thenReturn(articleSlice);
+
+        Page<ArticleResponseDTO> result = articleService.getAllArticlesPaginated(0, 10, "art", false, "", "name", "asc");
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Test Article", result.getContent().get(0).getName());
+        verify(articleRepository, never()).findArticlesWithFilters(any(), any(), any(Boolean.class), any(Pageable.class));
+    }
+
+    //nothing matches in the index, so the database isnt asked at all
+    @Test
+    void testGetAllArticlesPaginated_SearchWithoutMatchesSkipsDatabase() {
+        articleNameIndex.apply(null, ArticleSnapshot.of(createTestArticle()));
+        articleNameIndex.markReady();
+
+        Page<ArticleResponseDTO> result = articleService.getAllArticlesPaginated(0, 10, "syringe", false, "", "name", "asc");
+
+        assertTrue(result.isEmpty());
+        assertEquals(0, result.getTotalElements());
+        verifyNoInteractions(articleRepository);
+    }
+
+    //first page in cursor mode, the next cursor should point at the last article of the page
+    @Test
+    void testGetArticlesByCursor_FirstPage() {
+        Article article1 = createTestArticle();
+        Article article2 = createTestArticle();
+        article2.setId(2L);
+        article2.setName("Second Article");
+
+        Window<ArticleSnapshot> window = Window.from(snapshots(Arrays.asList(article1, article2)),
+                i -> ScrollPosition.forward(keysOf(i == 0 ? article1 : article2)), true);
+
+        when(articleRepository.scrollArticlesWithFilters(any(), any(), any(), any(Boolean.class), any(Sort.class), eq(2), eq(ScrollPosition.keyset())))
+                .thenReturn(window);
+
+        ArticleCursorPageDTO result = articleService.getArticlesByCursor("", 2, null, false, "ALL", "name", "asc");
+
+        assertEquals(2, result.getContent().size());
+        assertTrue(result.isHasNext());
+        assertEquals(new ArticleCursor("name", false, 2L, "Second Article"), ArticleCursor.decode(result.getNextCursor()));
+    }
+
+    //the cursor is turned back into the keys of the last article, so the query continues right after it
+    @Test
+    void testGetArticlesByCursor_NextPage() {
+        String cursor = new ArticleCursor("name", false, 2L, "Second Article").encode();
+        Window<ArticleSnapshot> window = Window.from(List.of(), i -> ScrollPosition.keyset(), false);
+
+        when(articleRepository.scrollArticlesWithFilters(any(), any(), any(), any(Boolean.class), any(Sort.class), anyInt(), any(ScrollPosition.class)))
+                .thenReturn(window);
+
+        ArticleCursorPageDTO result = articleService.getArticlesByCursor(cursor, 10, null, false, "ALL", "name", "asc");
+
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+        verify(articleRepository, times(1)).scrollArticlesWithFilters(
+                isNull(), isNull(), isNull(), eq(false),
+                eq(Sort.by("name").ascending().and(Sort.by("id").ascending())),
+                eq(10),
+                eq(ScrollPosition.forward(new ArticleCursor("name", false, 2L, "Second Article").toKeys()))
+        );
+    }
+
+    //a cursor from a name sorted list cant be used when sorting by amount
+    @Test
+    void testGetArticlesByCursor_SortingMismatch() {
+        String cursor = new ArticleCursor("name", false, 2L, "Second Article").encode();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> articleService.getArticlesByCursor(cursor, 10, null, false, "ALL", "amount", "asc"));
+
+        verifyNoInteractions(articleRepository);
+    }
+
+    @Test
+    void testGetArticlesByCursor_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> articleService.getArticlesByCursor("not a cursor", 10, null, false, "ALL", "name", "asc"));
+    }
+
+    @Test
+    void testGetArticlesByCursor_UnsupportedSortField() {
+        assertThrows(IllegalArgumentException.class,
+                () -> articleService.getArticlesByCursor("", 10, null, false, "ALL", "minimumAmount", "asc"));
+    }
+
+    //every sortable field has to survive being encoded and decoded again
+    @Test
+    void testArticleCursor_RoundTrip() {
+        List<ArticleCursor> cursors = List.of(
+                new ArticleCursor("name", false, 1L, "Gloves, size M"),
+                new ArticleCursor("createdAt", true, 2L, LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123000000)),
+                new ArticleCursor("unit", false, 3L, EUnit.GRAMS),
+                new ArticleCursor("amount", true, 4L, 42)
+        );
+
+        for (ArticleCursor cursor : cursors) {
+            assertEquals(cursor, ArticleCursor.decode(cursor.encode()));
+        }
+    }
+
+    private List<ArticleSnapshot> snapshots(List<Article> articles) {
+        return articles.stream().map(ArticleSnapshot::of).toList();
+    }
+
+    private Map<String, Object> keysOf(Article article) {
+        return new ArticleCursor("name", false, article.getId(), article.getName()).toKeys();
+    }
+
+    //suggestions come from the index only, the repository is never called
+    @Test
+    void testSuggestArticles() {
+        articleSuggestIndex.apply(null, ArticleSnapshot.of(createTestArticle()));
+
+        List<ArticleSuggestionDTO> result = articleService.suggestArticles(" test ", 10);
+
+        assertEquals(1, result.size());
+        assertEquals("Test Article", result.get(0).name());
+        verifyNoInteractions(articleRepository);
+    }
+
+    //read as a snapshot, no managed entity is loaded
     @Test
     void testGetArticleById_Success() {
         Article article = createTestArticle();
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(article));
+        when(articleRepository.findSnapshotById(1L)).thenAnswer(invocation -> Optional.of(ArticleSnapshot.of(article)));
 
         ArticleResponseDTO result = articleService.getArticleById(1L);
 
         assertEquals(1L, result.getId());
         assertEquals("Test Article", result.getName());
         assertEquals(100, result.getAmount());
-        verify(articleRepository, times(1)).findById(1L);
+        verify(articleRepository, times(1)).findSnapshotById(1L);
+        verify(articleRepository, never()).findById(any());
+    }
+
+    //the second lookup is answered by the cache, until a change to the article removes it again
+    @Test
+    void testGetArticleById_CachedUntilTheArticleChanges() {
+        Article article = createTestArticle();
+        when(articleRepository.findSnapshotById(1L)).thenAnswer(invocation -> Optional.of(ArticleSnapshot.of(article)));
+
+        articleService.getArticleById(1L);
+        articleService.getArticleById(1L);
+        verify(articleRepository, times(1)).findSnapshotById(1L);
+        assertEquals(1, articleService.getArticleCacheStats().hits());
+        assertEquals(1, articleService.getArticleCacheStats().misses());
+
+        ArticleSnapshot previous = ArticleSnapshot.of(article);
+        article.setAmount(5);
+        articleCache.onArticleChanged(new ArticleChangedEvent(previous, ArticleSnapshot.of(article)));
+
+        assertEquals(5, articleService.getArticleById(1L).getAmount());
+        verify(articleRepository, times(2)).findSnapshotById(1L);
     }
 
     @Test
     void testGetArticleById_NotFound() {
-        when(articleRepository.findById(999L)).thenReturn(Optional.empty());
+        when(articleRepository.findSnapshotById(999L)).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class,
                 () -> articleService.getArticleById(999L));
 
-        verify(articleRepository, times(1)).findById(999L);
+        verify(articleRepository, times(1)).findSnapshotById(999L);
     }
 
+    //the deleted article is loaded first so that the change event can tell the indexes what was removed
     @Test
     void testDeleteArticle_Success() {
-        when(articleRepository.existsById(1L)).thenReturn(true);
+        Article article = createTestArticle();
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(article));
 
         articleService.deleteArticle(1L);
 
-        verify(articleRepository, times(1)).existsById(1L);
-        verify(articleRepository, times(1)).deleteById(1L);
+        verify(articleRepository, times(1)).findById(1L);
+        verify(articleRepository, times(1)).delete(article);
+        verify(eventPublisher, times(1)).publishEvent(new ArticleChangedEvent(ArticleSnapshot.of(article), null));
     }
 
     @Test
     void testDeleteArticle_NotFound() {
-        when(articleRepository.existsById(999L)).thenReturn(false);
+        when(articleRepository.findById(999L)).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class,
                 () -> articleService.deleteArticle(999L));
 
-        verify(articleRepository, times(1)).existsById(999L);
-        verify(articleRepository, never()).deleteById(anyLong());
+        verify(articleRepository, times(1)).findById(999L);
+        verify(articleRepository, never()).delete(any(Article.class));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
+    //the update is one UPDATE ... WHERE version = the version that was read, then the article is read back
     @Test
     void testUpdateArticle_Success() {
         Article existingArticle = createTestArticle();
+        Article updatedArticle = createTestArticle();
+        updatedArticle.setName("Updated Article");
+        updatedArticle.setAmount(75);
+        updatedArticle.setMinimumAmount(15);
+        updatedArticle.setUnit(EUnit.GRAMS);
         UpdateArticleDTO updateDTO = createTestUpdateDTO();
 
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(existingArticle));
-        when(articleRepository.save(any(Article.class))).thenReturn(existingArticle);
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(existingArticle)).thenReturn(Optional.of(updatedArticle));
+        when(articleRepository.updateIfVersion(eq(1L), eq(0L), eq("Updated Article"), eq(75), eq(15), eq(EUnit.GRAMS), any(), any(LocalDateTime.class)))
+                .thenReturn(1);
 
         ArticleResponseDTO result = articleService.updateArticle(1L, updateDTO);
 
@@ -220,19 +516,28 @@ class ArticleServiceTest {
         assertEquals(75, result.getAmount());
         assertEquals(15, result.getMinimumAmount());
         assertEquals(EUnit.GRAMS, result.getUnit());
-        verify(articleRepository, times(1)).findById(1L);
-        verify(articleRepository, times(1)).save(existingArticle);
+        verify(articleRepository, times(2)).findById(1L);
+        verify(articleRepository, never()).saveAndFlush(any(Article.class));
+
+        //the event has the article both before and after the update
+        ArgumentCaptor<ArticleChangedEvent> event = ArgumentCaptor.forClass(ArticleChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals("Test Article", event.getValue().previous().name());
+        assertEquals("Updated Article", event.getValue().current().name());
     }
 
-    //fields not specified when calling update should remain unchanged
+    //fields not specified when calling update are passed as null and kept as they are by the UPDATE
     @Test
     void testUpdateArticle_PartialUpdate() {
         Article existingArticle = createTestArticle();
+        Article updatedArticle = createTestArticle();
+        updatedArticle.setName("Updated Article");
         UpdateArticleDTO updateDTO = new UpdateArticleDTO();
         updateDTO.setName("Updated Article");
 
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(existingArticle));
-        when(articleRepository.save(any(Article.class))).thenReturn(existingArticle);
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(existingArticle)).thenReturn(Optional.of(updatedArticle));
+        when(articleRepository.updateIfVersion(eq(1L), eq(0L), eq("Updated Article"), isNull(), isNull(), isNull(), isNull(), any(LocalDateTime.class)))
+                .thenReturn(1);
 
         ArticleResponseDTO result = articleService.updateArticle(1L, updateDTO);
 
@@ -240,8 +545,6 @@ class ArticleServiceTest {
         assertEquals(100, result.getAmount());
         assertEquals(10, result.getMinimumAmount());
         assertEquals(EUnit.PIECES, result.getUnit());
-        verify(articleRepository, times(1)).findById(1L);
-        verify(articleRepository, times(1)).save(existingArticle);
     }
 
     @Test
@@ -253,96 +556,241 @@ class ArticleServiceTest {
                 () -> articleService.updateArticle(999L, updateDTO));
 
         verify(articleRepository, times(1)).findById(999L);
-        verify(articleRepository, never()).save(any(Article.class));
+        verify(articleRepository, never()).updateIfVersion(any(), anyLong(), any(), any(), any(), any(), any(), any());
+    }
+
+    //If-Match with a version the article doesn't have anymore, nothing is written
+    @Test
+    void testUpdateArticle_StaleVersion() {
+        UpdateArticleDTO updateDTO = createTestUpdateDTO();
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(createTestArticle()));
+
+        assertThrows(ArticleVersionConflictException.class,
+                () -> articleService.updateArticle(1L, updateDTO, 3L));
+
+        verify(articleRepository, never()).updateIfVersion(any(), anyLong(), any(), any(), any(), any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    //the version matched when it was read but someone else committed before the UPDATE
+    @Test
+    void testUpdateArticle_ConcurrentChangeWithIfMatch() {
+        UpdateArticleDTO updateDTO = createTestUpdateDTO();
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(createTestArticle()));
+        when(articleRepository.updateIfVersion(eq(1L), eq(0L), any(), any(), any(), any(), any(), any(LocalDateTime.class))).thenReturn(0);
+
+        assertThrows(ArticleVersionConflictException.class,
+                () -> articleService.updateArticle(1L, updateDTO, 0L));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    //without If-Match a lost race is tried again on the new version instead of failing
+    @Test
+    void testUpdateArticle_ConcurrentChangeWithoutIfMatch_Retries() {
+        Article updatedArticle = createTestArticle();
+        updatedArticle.setName("Updated Article");
+        UpdateArticleDTO updateDTO = createTestUpdateDTO();
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(createTestArticle()))
+                .thenReturn(Optional.of(createTestArticle()))
+                .thenReturn(Optional.of(updatedArticle));
+        when(articleRepository.updateIfVersion(eq(1L), eq(0L), any(), any(), any(), any(), any(), any(LocalDateTime.class))).thenReturn(0, 1);
+
+        ArticleResponseDTO result = articleService.updateArticle(1L, updateDTO);
+
+        assertEquals("Updated Article", result.getName());
+        verify(articleRepository, times(2)).updateIfVersion(eq(1L), eq(0L), any(), any(), any(), any(), any(), any(LocalDateTime.class));
+        verify(eventPublisher, times(1)).publishEvent(any(ArticleChangedEvent.class));
+    }
+
+    //an article that changes on every try doesn't keep the update going forever
+    @Test
+    void testUpdateArticle_KeepsLosingWithoutIfMatch_GivesUp() {
+        UpdateArticleDTO updateDTO = createTestUpdateDTO();
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(createTestArticle()));
+        when(articleRepository.updateIfVersion(eq(1L), eq(0L), any(), any(), any(), any(), any(), any(LocalDateTime.class))).thenReturn(0);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> articleService.updateArticle(1L, updateDTO));
+        verify(articleRepository, times(ArticleService.MAX_UPDATE_ATTEMPTS))
+                .updateIfVersion(eq(1L), eq(0L), any(), any(), any(), any(), any(), any(LocalDateTime.class));
+        verify(eventPublisher, never()).publishEvent(any(ArticleChangedEvent.class));
     }
 
+    //the amount is changed with one UPDATE and the article is read back afterwards, never saved from java
     @Test
     void testPatchArticleAmountAdd_Success() {
-        Article existingArticle = createTestArticle();
+        Article updatedArticle = createTestArticle();
+        updatedArticle.setAmount(125);
         PatchAmountDTO patchDTO = createTestPatchDTO(25);
 
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(existingArticle));
-        when(articleRepository.save(any(Article.class))).thenReturn(existingArticle);
+        when(articleRepository.addToAmount(eq(1L), eq(25), any(LocalDateTime.class))).thenReturn(1);
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(updatedArticle));
 
         ArticleResponseDTO result = articleService.patchArticleAmountAdd(1L, patchDTO);
 
         assertEquals(125, result.getAmount());
         assertEquals("Test Article", result.getName());
-        verify(articleRepository, times(1)).findById(1L);
-        verify(articleRepository, times(1)).save(existingArticle);
+        verify(articleRepository, times(1)).addToAmount(eq(1L), eq(25), any(LocalDateTime.class));
+        verify(articleRepository, never()).save(any(Article.class));
+
+        //the amount before the change is worked out from the delta
+        ArgumentCaptor<ArticleChangedEvent> event = ArgumentCaptor.forClass(ArticleChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(100, event.getValue().previous().amount());
+        assertEquals(125, event.getValue().current().amount());
     }
 
     @Test
     void testPatchArticleAmountAdd_NotFound() {
         PatchAmountDTO patchDTO = createTestPatchDTO(25);
-        when(articleRepository.findById(999L)).thenReturn(Optional.empty());
+        when(articleRepository.addToAmount(eq(999L), eq(25), any(LocalDateTime.class))).thenReturn(0);
 
         assertThrows(EntityNotFoundException.class,
                 () -> articleService.patchArticleAmountAdd(999L, patchDTO));
 
-        verify(articleRepository, times(1)).findById(999L);
-        verify(articleRepository, never()).save(any(Article.class));
+        verify(articleRepository, never()).findById(999L);
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void testPatchArticleAmountRemove_Success() {
-        Article existingArticle = createTestArticle();
+        Article updatedArticle = createTestArticle();
+        updatedArticle.setAmount(75);
         PatchAmountDTO patchDTO = createTestPatchDTO(25);
 
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(existingArticle));
-        when(articleRepository.save(any(Article.class))).thenReturn(existingArticle);
+        when(articleRepository.subtractFromAmount(eq(1L), eq(25), any(LocalDateTime.class))).thenReturn(1);
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(updatedArticle));
 
         ArticleResponseDTO result = articleService.patchArticleAmountRemove(1L, patchDTO);
 
         assertEquals(75, result.getAmount());
         assertEquals("Test Article", result.getName());
-        verify(articleRepository, times(1)).findById(1L);
-        verify(articleRepository, times(1)).save(existingArticle);
+        verify(articleRepository, times(1)).subtractFromAmount(eq(1L), eq(25), any(LocalDateTime.class));
+        verify(articleRepository, never()).save(any(Article.class));
     }
 
-    //if you try to remove more than current amount, it should return an error
+    //if you try to remove more than current amount, it should return an error.
+    //the UPDATE updates nothing, but the article exists, so it was the amount that was too small
     @Test
     void testPatchArticleAmountRemove_InsufficientStock() {
-        Article existingArticle = createTestArticle();
         PatchAmountDTO patchDTO = createTestPatchDTO(150);
 
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(existingArticle));
+        when(articleRepository.subtractFromAmount(eq(1L), eq(150), any(LocalDateTime.class))).thenReturn(0);
+        when(articleRepository.existsById(1L)).thenReturn(true);
 
         assertThrows(IllegalArgumentException.class,
                 () -> articleService.patchArticleAmountRemove(1L, patchDTO));
 
-        verify(articleRepository, times(1)).findById(1L);
-        verify(articleRepository, never()).save(any(Article.class));
+        verify(articleRepository, times(1)).existsById(1L);
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     //makes sure you can remove all of the amount from an article without edgecase issues
     @Test
     void testPatchArticleAmountRemove_ExactAmount() {
-        Article existingArticle = createTestArticle();
+        Article updatedArticle = createTestArticle();
+        updatedArticle.setAmount(0);
         PatchAmountDTO patchDTO = createTestPatchDTO(100);
 
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(existingArticle));
-        when(articleRepository.save(any(Article.class))).thenReturn(existingArticle);
+        when(articleRepository.subtractFromAmount(eq(1L), eq(100), any(LocalDateTime.class))).thenReturn(1);
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(updatedArticle));
 
         ArticleResponseDTO result = articleService.patchArticleAmountRemove(1L, patchDTO);
 
         assertEquals(0, result.getAmount());
-        verify(articleRepository, times(1)).findById(1L);
-        verify(articleRepository, times(1)).save(existingArticle);
+        verify(articleRepository, times(1)).subtractFromAmount(eq(1L), eq(100), any(LocalDateTime.class));
     }
 
     @Test
     void testPatchArticleAmountRemove_NotFound() {
         PatchAmountDTO patchDTO = createTestPatchDTO(25);
-        when(articleRepository.findById(999L)).thenReturn(Optional.empty());
+        when(articleRepository.subtractFromAmount(eq(999L), eq(25), any(LocalDateTime.class))).thenReturn(0);
+        when(articleRepository.existsById(999L)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class,
                 () -> articleService.patchArticleAmountRemove(999L, patchDTO));
 
-        verify(articleRepository, times(1)).findById(999L);
+        verify(articleRepository, times(1)).existsById(999L);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    //in hot counter mode the patch only changes the counter, the database isn't touched
+    @Test
+    void testPatchArticleAmountAdd_HotCounterMode() {
+        Article article = createTestArticle();
+        when(hotStockCounters.handles(1L)).thenReturn(true);
+        when(hotStockCounters.add(1L, 5)).thenReturn(ArticleSnapshot.of(article).withAmount(105));
+
+        ArticleResponseDTO result = articleService.patchArticleAmountAdd(1L, createTestPatchDTO(5));
+
+        assertEquals(105, result.getAmount());
+        verifyNoInteractions(articleRepository, transactionManager);
+    }
+
+    @Test
+    void testPatchArticleAmountRemove_HotCounterMode() {
+        Article article = createTestArticle();
+        when(hotStockCounters.handles(1L)).thenReturn(true);
+        when(hotStockCounters.subtract(1L, 95)).thenReturn(ArticleSnapshot.of(article).withAmount(5));
+
+        ArticleResponseDTO result = articleService.patchArticleAmountRemove(1L, createTestPatchDTO(95));
+
+        assertEquals(5, result.getAmount());
+        assertTrue(result.isLowStock());
+        verifyNoInteractions(articleRepository, transactionManager);
+    }
+
+    //the amount in the database can be behind the counter, get by id shows the live one
+    @Test
+    void testGetArticleById_ShowsLiveAmountFromHotCounters() {
+        when(articleRepository.findSnapshotById(1L)).thenReturn(Optional.of(ArticleSnapshot.of(createTestArticle())));
+        when(hotStockCounters.liveAmount(1L)).thenReturn(OptionalInt.of(7));
+
+        ArticleResponseDTO result = articleService.getArticleById(1L);
+
+        assertEquals(7, result.getAmount());
+        assertTrue(result.isLowStock());
+    }
+
+    //every movement gets its own result, the ones that fail don't stop the others
+    @Test
+    void testApplyStockMovements_ReportsEachMovement() {
+        Article article = createTestArticle();
+        when(articleRepository.findAllByIdForUpdate(any())).thenReturn(List.of(article));
+
+        List<StockMovementResultDTO> results = articleService.applyStockMovements(List.of(
+                new StockMovementDTO(1L, 20),
+                new StockMovementDTO(999L, 5),
+                new StockMovementDTO(1L, -500),
+                new StockMovementDTO(1L, -120)
+        ));
+
+        assertEquals(List.of(
+                StockMovementResultDTO.applied(1L, 20, 120),
+                StockMovementResultDTO.failed(999L, 5, "Article not found with id: 999"),
+                StockMovementResultDTO.failed(1L, -500, "You cant subtract more than total amount!"),
+                StockMovementResultDTO.applied(1L, -120, 0)
+        ), results);
+        assertEquals(0, article.getAmount());
+        verify(articleRepository, times(1)).findAllByIdForUpdate(argThat(ids -> ids.size() == 2));
+        verify(articleRepository, times(1)).flush();
         verify(articleRepository, never()).save(any(Article.class));
     }
 
+    //one event per changed article, from before its first movement to after its last
+    @Test
+    void testApplyStockMovements_PublishesOneEventPerArticle() {
+        Article article = createTestArticle();
+        when(articleRepository.findAllByIdForUpdate(any())).thenReturn(List.of(article));
+
+        articleService.applyStockMovements(List.of(new StockMovementDTO(1L, 5), new StockMovementDTO(1L, 5)));
+
+        ArgumentCaptor<ArticleChangedEvent> event = ArgumentCaptor.forClass(ArticleChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(100, event.getValue().previous().amount());
+        assertEquals(110, event.getValue().current().amount());
+    }
+
     @Test
     void testLowStockDetection() {
         Article lowStockArticle = createTestArticle();
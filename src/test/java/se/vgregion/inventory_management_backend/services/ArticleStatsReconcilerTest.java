@@ -0,0 +1,73 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.benchmark.ArticleSeeder;
+import se.vgregion.inventory_management_backend.dto.ArticleStatsDTO;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+import se.vgregion.inventory_management_backend.index.ArticleIndexer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//the running totals against a count of the database, chunk size 7 so the 50 articles are counted in several parts
+@SpringBootTest(properties = "inventory.stats.reconcile-chunk-size=7")
+class ArticleStatsReconcilerTest {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleStatsReconciler articleStatsReconciler;
+
+    @Autowired
+    private ArticleIndexer articleIndexer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+        ArticleSeeder.seed(jdbcTemplate, 50);
+        articleIndexer.rebuild();
+    }
+
+    @Test
+    void changesThroughTheService_stayInSync() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Gloves", 20, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        articleService.patchArticleAmountRemove(id, new PatchAmountDTO(15));
+        articleService.deleteArticle(jdbcTemplate.queryForObject("SELECT MIN(id) FROM article", Long.class));
+
+        ArticleStatsReconciler.Result result = articleStatsReconciler.reconcile();
+
+        assertEquals(ArticleStatsReconciler.Outcome.IN_SYNC, result.outcome());
+        assertEquals(50, result.articles());
+        assertEquals(50, articleService.getStats().total().articles());
+    }
+
+    //a row written around the service is found as drift and corrected when the next run finds the same drift
+    @Test
+    void driftIsCorrectedOnTheSecondRun() {
+        ArticleStatsDTO.Totals before = articleService.getStats().total();
+        jdbcTemplate.update("UPDATE article SET amount = amount + 1000 WHERE id = (SELECT MIN(id) FROM article)");
+
+        ArticleStatsReconciler.Result first = articleStatsReconciler.reconcile();
+        assertEquals(ArticleStatsReconciler.Outcome.DRIFT_FOUND, first.outcome());
+        assertEquals(1, first.drift().size());
+        assertEquals(before, articleService.getStats().total());
+
+        ArticleStatsReconciler.Result second = articleStatsReconciler.reconcile();
+        assertEquals(ArticleStatsReconciler.Outcome.CORRECTED, second.outcome());
+        assertEquals(before.amount() + 1000, articleService.getStats().total().amount());
+
+        assertEquals(List.of(), articleStatsReconciler.reconcile().drift());
+    }
+}
@@ -0,0 +1,87 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//64 threads hammering the same article, no change may get lost and the amount may never go below 0
+@SpringBootTest
+class ArticleStockConcurrencyTest {
+
+    static final int THREADS = 64;
+    private static final int CHANGES_PER_THREAD = 25;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+    }
+
+    @Test
+    void concurrentAdds_noUpdatesAreLost() throws Exception {
+        Long id = articleService.addArticle(new CreateArticleDTO("Gloves", 0, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+
+        runConcurrently(() -> articleService.patchArticleAmountAdd(id, new PatchAmountDTO(1)));
+
+        assertEquals(THREADS * CHANGES_PER_THREAD, articleService.getArticleById(id).getAmount());
+    }
+
+    //there is stock for 1000 subtractions but 1600 are sent, exactly 1000 may succeed
+    @Test
+    void concurrentSubtracts_neverGoBelowZero() throws Exception {
+        Long id = articleService.addArticle(new CreateArticleDTO("Syringes", 1000, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(() -> {
+            try {
+                articleService.patchArticleAmountRemove(id, new PatchAmountDTO(1));
+            } catch (IllegalArgumentException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(0, articleService.getArticleById(id).getAmount());
+        assertEquals(THREADS * CHANGES_PER_THREAD - 1000, rejected.get());
+    }
+
+    private void runConcurrently(Runnable change) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                        change.run();
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.UpdateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//A PUT of a hot article writes its pending changes before its own transaction is opened. With one connection in the pool
+//a flush inside the update's transaction would wait for a second connection and time out, the +5 would stay pending
+//and be added on top of the new amount by the next flush.
+@SpringBootTest(properties = {
+        "inventory.hot-counters.enabled=true",
+        "inventory.hot-counters.flush-interval-ms=3600000",
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.datasource.hikari.connection-timeout=250"
+})
+class HotStockCountersPoolTest {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private HotStockCounters hotStockCounters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void updateWithAmount_needsOnlyOneConnection() {
+        jdbcTemplate.update("DELETE FROM article");
+        Long id = articleService.addArticle(new CreateArticleDTO("Masks", 10, 5, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        articleService.patchArticleAmountAdd(id, new PatchAmountDTO(5));
+
+        UpdateArticleDTO update = new UpdateArticleDTO();
+        update.setAmount(50);
+        articleService.updateArticle(id, update);
+        hotStockCounters.flush();
+
+        assertEquals(50, articleService.getArticleById(id).getAmount());
+        assertEquals(50, jdbcTemplate.queryForObject("SELECT amount FROM article WHERE id = ?", Integer.class, id));
+    }
+}
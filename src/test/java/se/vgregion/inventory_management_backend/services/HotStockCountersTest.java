@@ -0,0 +1,145 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.UpdateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//hot counter mode for every article, the scheduled flush is set to once an hour so the tests decide when it happens
+@SpringBootTest(properties = {
+        "inventory.hot-counters.enabled=true",
+        "inventory.hot-counters.flush-interval-ms=3600000"
+})
+class HotStockCountersTest {
+
+    private static final int THREADS = ArticleStockConcurrencyTest.THREADS;
+    private static final int CHANGES_PER_THREAD = 200;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private HotStockCounters hotStockCounters;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+    }
+
+    @Test
+    void concurrentChanges_areLiveBeforeTheFlushAndInTheDatabaseAfterIt() throws Exception {
+        Long id = articleService.addArticle(new CreateArticleDTO("Gloves", 0, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+
+        runConcurrently(() -> articleService.patchArticleAmountAdd(id, new PatchAmountDTO(1)));
+
+        assertEquals(THREADS * CHANGES_PER_THREAD, articleService.getArticleById(id).getAmount());
+        assertEquals(0, databaseAmount(id));
+
+        hotStockCounters.flush();
+        assertEquals(THREADS * CHANGES_PER_THREAD, databaseAmount(id));
+        assertEquals(THREADS * CHANGES_PER_THREAD, stockLedger.rebuildAmount(id));
+    }
+
+    @Test
+    void concurrentSubtracts_neverGoBelowZero() throws Exception {
+        Long id = articleService.addArticle(new CreateArticleDTO("Syringes", 1000, 10, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(() -> {
+            try {
+                articleService.patchArticleAmountRemove(id, new PatchAmountDTO(1));
+            } catch (IllegalArgumentException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(0, articleService.getArticleById(id).getAmount());
+        assertEquals(THREADS * CHANGES_PER_THREAD - 1000, rejected.get());
+        hotStockCounters.flush();
+        assertEquals(0, databaseAmount(id));
+    }
+
+    //a PUT with a new amount writes the pending change first and the counter continues from the new amount
+    @Test
+    void updateWithAmount_replacesTheCountedAmount() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Masks", 10, 5, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        articleService.patchArticleAmountAdd(id, new PatchAmountDTO(5));
+
+        UpdateArticleDTO update = new UpdateArticleDTO();
+        update.setAmount(50);
+        articleService.updateArticle(id, update);
+        articleService.patchArticleAmountRemove(id, new PatchAmountDTO(20));
+
+        assertEquals(30, articleService.getArticleById(id).getAmount());
+        hotStockCounters.flush();
+        assertEquals(30, databaseAmount(id));
+        assertEquals(30, stockLedger.rebuildAmount(id));
+    }
+
+    @Test
+    void deletedArticle_isForgotten() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Gauze", 10, 5, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        articleService.patchArticleAmountAdd(id, new PatchAmountDTO(5));
+
+        articleService.deleteArticle(id);
+
+        assertTrue(hotStockCounters.liveAmount(id).isEmpty());
+        hotStockCounters.flush();
+    }
+
+    //the live amount can't go past the int column, and a flush that would is kept for the next one instead of dropped
+    @Test
+    void amountThatIsTooLarge_isRejectedAndNeverLost() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Swabs", 10, 5, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        articleService.patchArticleAmountAdd(id, new PatchAmountDTO(5));
+
+        assertThrows(IllegalArgumentException.class, () -> hotStockCounters.add(id, Integer.MAX_VALUE));
+        assertEquals(15, hotStockCounters.liveAmount(id).getAsInt());
+
+        //the database amount changed behind the counter's back, the +5 doesn't fit anymore
+        jdbcTemplate.update("UPDATE article SET amount = ? WHERE id = ?", Integer.MAX_VALUE - 1, id);
+        hotStockCounters.flush();
+        assertEquals(Integer.MAX_VALUE - 1, databaseAmount(id));
+        assertTrue(hotStockCounters.liveAmount(id).isPresent());
+
+        jdbcTemplate.update("UPDATE article SET amount = 10 WHERE id = ?", id);
+        hotStockCounters.flush();
+        assertEquals(15, databaseAmount(id));
+    }
+
+    private int databaseAmount(Long id) {
+        return jdbcTemplate.queryForObject("SELECT amount FROM article WHERE id = ?", Integer.class, id);
+    }
+
+    private void runConcurrently(Runnable change) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                    change.run();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+}
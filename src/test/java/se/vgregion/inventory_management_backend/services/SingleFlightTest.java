@@ -0,0 +1,96 @@
+package se.vgregion.inventory_management_backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int WAITING = 8;
+
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallers_shareOneLoadAndNothingIsKeptAfterIt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(WAITING + 1);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.load("page 0", () -> {
+                runs.incrementAndGet();
+                await(release);
+                return new Object();
+            })));
+            waitUntil(() -> singleFlight.loads() == 1);
+            for (int i = 0; i < WAITING; i++) {
+                results.add(executor.submit(() -> singleFlight.load("page 0", () -> fail("should have shared the running load"))));
+            }
+            //another key doesn't wait for it
+            assertEquals("page 1", singleFlight.load("page 1", () -> "page 1"));
+            waitUntil(() -> singleFlight.shared() == WAITING);
+            release.countDown();
+
+            Object first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, runs.get());
+
+            //done, so the next caller loads again
+            assertNotSame(first, singleFlight.load("page 0", Object::new));
+            assertEquals(3, singleFlight.loads());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoad_isThrownToEveryWaitingCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database is gone");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> loading = executor.submit(() -> singleFlight.load("page 0", () -> {
+                await(release);
+                throw failure;
+            }));
+            waitUntil(() -> singleFlight.loads() == 1);
+            Future<Object> waiting = executor.submit(() -> singleFlight.load("page 0", Object::new));
+            waitUntil(() -> singleFlight.shared() == 1);
+            release.countDown();
+
+            assertSame(failure, assertThrows(Exception.class, () -> loading.get(10, TimeUnit.SECONDS)).getCause());
+            assertSame(failure, assertThrows(Exception.class, () -> waiting.get(10, TimeUnit.SECONDS)).getCause());
+            assertNotNull(singleFlight.load("page 0", Object::new));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package se.vgregion.inventory_management_backend.services;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.vgregion.inventory_management_backend.dto.CreateArticleDTO;
+import se.vgregion.inventory_management_backend.dto.PatchAmountDTO;
+import se.vgregion.inventory_management_backend.dto.StockLedgerEntryDTO;
+import se.vgregion.inventory_management_backend.dto.StockLedgerPageDTO;
+import se.vgregion.inventory_management_backend.dto.StockMovementDTO;
+import se.vgregion.inventory_management_backend.dto.UpdateArticleDTO;
+import se.vgregion.inventory_management_backend.enums.ECategory;
+import se.vgregion.inventory_management_backend.enums.EMovementType;
+import se.vgregion.inventory_management_backend.enums.EUnit;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//every way of changing an amount ends up in the ledger, and the ledger alone gives the amount back, before and after compaction
+@SpringBootTest
+class StockLedgerTest {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleImportService articleImportService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM article");
+    }
+
+    @Test
+    void everyChange_isAMovementAndTheLedgerRebuildsTheAmount() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Gloves", 10, 5, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        articleService.patchArticleAmountAdd(id, new PatchAmountDTO(5));
+        articleService.patchArticleAmountRemove(id, new PatchAmountDTO(3));
+        assertThrows(IllegalArgumentException.class, () -> articleService.patchArticleAmountRemove(id, new PatchAmountDTO(1000)));
+
+        UpdateArticleDTO update = new UpdateArticleDTO();
+        update.setAmount(40);
+        articleService.updateArticle(id, update);
+        //only the name, no movement
+        UpdateArticleDTO rename = new UpdateArticleDTO();
+        rename.setName("Exam gloves");
+        articleService.updateArticle(id, rename);
+
+        articleService.applyStockMovements(List.of(new StockMovementDTO(id, 7), new StockMovementDTO(id, -100), new StockMovementDTO(id, -2)));
+
+        assertEquals(45, databaseAmount(id));
+        assertEquals(45, stockLedger.rebuildAmount(id));
+
+        List<StockLedgerEntryDTO> movements = articleService.getStockMovements(id, null, 50).content();
+        assertEquals(List.of(EMovementType.SUBTRACT, EMovementType.ADD, EMovementType.SET, EMovementType.SUBTRACT, EMovementType.ADD, EMovementType.SET),
+                movements.stream().map(StockLedgerEntryDTO::type).toList());
+        assertEquals(List.of(-2, 7, 28, -3, 5, 10), movements.stream().map(StockLedgerEntryDTO::delta).toList());
+        assertEquals(List.of(45, 47, 40, 12, 15, 10), movements.stream().map(StockLedgerEntryDTO::amountAfter).toList());
+    }
+
+    @Test
+    void compaction_keepsTheAmountAndOnlyTheTailIsAddedAfterIt() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Masks", 100, 5, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        for (int i = 0; i < 20; i++) {
+            articleService.patchArticleAmountRemove(id, new PatchAmountDTO(2));
+        }
+
+        assertTrue(stockLedger.compact() >= 1);
+        assertEquals(60, stockLedger.rebuildAmount(id));
+        assertEquals(60, jdbcTemplate.queryForObject("SELECT amount FROM stock_snapshot WHERE article_id = ?", Integer.class, id));
+
+        articleService.patchArticleAmountAdd(id, new PatchAmountDTO(15));
+        assertEquals(75, stockLedger.rebuildAmount(id));
+
+        assertEquals(1, stockLedger.compact());
+        //nothing new since the last compaction
+        assertEquals(0, stockLedger.compact());
+        assertEquals(75, stockLedger.rebuildAmount(id));
+        assertEquals(75, jdbcTemplate.queryForObject("SELECT amount FROM stock_snapshot WHERE article_id = ?", Integer.class, id));
+    }
+
+    @Test
+    void importedArticles_haveTheirAmountInTheLedger() throws Exception {
+        Long id = articleService.addArticle(new CreateArticleDTO("Gauze", 5, 1, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+
+        articleImportService.importCsv(new StringReader("""
+                name,amount,minimumAmount,unit,category
+                Gauze,30,1,PIECES,CONSUMABLE
+                Tape,8,1,PIECES,OTHER
+                """));
+
+        assertEquals(30, stockLedger.rebuildAmount(id));
+        Long tape = jdbcTemplate.queryForObject("SELECT id FROM article WHERE name = 'Tape'", Long.class);
+        assertEquals(8, stockLedger.rebuildAmount(tape));
+    }
+
+    @Test
+    void history_isPagedNewestFirst() {
+        Long id = articleService.addArticle(new CreateArticleDTO("Swabs", 0, 1, EUnit.PIECES, ECategory.CONSUMABLE)).getId();
+        for (int i = 1; i <= 11; i++) {
+            articleService.patchArticleAmountAdd(id, new PatchAmountDTO(i));
+        }
+
+        List<Integer> deltas = new ArrayList<>();
+        Long before = null;
+        int pages = 0;
+        do {
+            StockLedgerPageDTO page = articleService.getStockMovements(id, before, 5);
+            page.content().forEach(movement -> deltas.add(movement.delta()));
+            before = page.nextBefore();
+            assertEquals(page.hasNext(), before != null);
+            pages++;
+        } while (before != null);
+
+        assertEquals(3, pages);
+        assertEquals(List.of(11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0), deltas);
+    }
+
+    @Test
+    void history_ofAnUnknownArticleIsNotFound() {
+        assertThrows(EntityNotFoundException.class, () -> articleService.getStockMovements(-1L, null, 10));
+    }
+
+    private int databaseAmount(Long id) {
+        return jdbcTemplate.queryForObject("SELECT amount FROM article WHERE id = ?", Integer.class, id);
+    }
+}